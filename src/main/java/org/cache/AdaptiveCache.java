@@ -0,0 +1,407 @@
+package org.cache;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache that picks its eviction policy at runtime.
+ * <p>
+ * The entries live in a real cache running one {@link Policy}. Next to it, a key-only ghost cache is simulated for
+ * every policy, so the hit rate each policy would have reached on the same traffic is known. Ghosts behave as
+ * read-through caches: a read that misses admits the key. Hit rates are compared once per window of {@code get}
+ * calls; when another policy beats the current one by at least the switch margin for several consecutive windows,
+ * the cache switches to it.
+ * <p>
+ * Each ghost entry costs a map entry and a list node but no value, and a ghost tracks at most 4096 keys. Up to that
+ * capacity the ghosts replay every read. For larger capacities they replay only the reads of a hash-selected
+ * 1/2<sup>n</sup> of the keys at 1/2<sup>n</sup> of the capacity, which estimates the hit rates of the full-size
+ * policies, so the memory used by the three ghosts stays bounded whatever the capacity.
+ * <p>
+ * Switching does not rebuild the cache: a new cache with the winning policy becomes active and the previous one
+ * is kept as a read-through source. Entries found there on a miss are moved to the new cache, and the previous
+ * cache is dropped after {@code capacity} further reads. During that period both caches together hold at most
+ * twice the capacity, and the cache does not switch again until the previous cache is dropped.
+ * <p>
+ * This class is not thread-safe; callers sharing it between threads must synchronize on it.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class AdaptiveCache<K, V> implements CacheService<K, V> {
+
+    /**
+     * Eviction policies the adaptive cache can switch between.
+     */
+    public enum Policy {
+        LRU, LFU, MRU;
+
+        /**
+         * Creates a cache running this policy.
+         *
+         * @param capacity the capacity of the cache
+         * @param <K>      the type of keys maintained by the cache
+         * @param <V>      the type of mapped values
+         * @return a new, empty cache
+         */
+        <K, V> CacheService<K, V> create(int capacity) {
+            switch (this) {
+                case LFU:
+                    return new LFUDoublyLinkedListCache<>(capacity);
+                case MRU:
+                    return new MRUCache<>(capacity);
+                default:
+                    return new LRUDoublyLinkedListCache<>(capacity);
+            }
+        }
+
+        /**
+         * Tells whether a cache created by this policy holds the key, without counting as an access.
+         *
+         * @param cache a cache returned by {@link #create(int)} of this policy
+         * @param id    the key to look up
+         * @param <K>   the type of keys maintained by the cache
+         * @return {@code true} if the cache contains a mapping for the key
+         */
+        <K> boolean contains(CacheService<K, ?> cache, K id) {
+            switch (this) {
+                case LFU:
+                    return ((LFUDoublyLinkedListCache<K, ?>) cache).containsKey(id);
+                case MRU:
+                    return ((MRUCache<K, ?>) cache).containsKey(id);
+                default:
+                    return ((LRUDoublyLinkedListCache<K, ?>) cache).containsKey(id);
+            }
+        }
+    }
+
+    private static final int DEFAULT_WINDOW_SIZE = 1024;
+    private static final double DEFAULT_SWITCH_MARGIN = 0.05;
+    private static final int DEFAULT_SUSTAINED_WINDOWS = 3;
+    private static final int MAX_GHOST_CAPACITY = 4096;
+
+    private final int capacity;
+    private final int windowSize;
+    private final double switchMargin;
+    private final int sustainedWindows;
+    private final int sampleShift;
+
+    private final Map<Policy, CacheService<K, Boolean>> ghosts;
+    private final Map<Policy, Double> lastHitRates;
+    private final int[] windowHits;
+    private int windowReads;
+    private int windowSampledReads;
+    private int leadingWindows;
+    private Policy leader;
+
+    private Policy policy;
+    private CacheService<K, V> active;
+    private CacheService<K, V> previous;
+    private Policy previousPolicy;
+    private int previousReadsLeft;
+
+    /**
+     * Constructs an adaptive cache starting with the LRU policy and default tuning.
+     *
+     * @param capacity the maximum number of elements the cache can hold
+     */
+    public AdaptiveCache(int capacity) {
+        this(capacity, Policy.LRU, DEFAULT_WINDOW_SIZE, DEFAULT_SWITCH_MARGIN, DEFAULT_SUSTAINED_WINDOWS);
+    }
+
+    /**
+     * Constructs an adaptive cache.
+     *
+     * @param capacity         the maximum number of elements the cache can hold
+     * @param initialPolicy    the policy used until another one proves better
+     * @param windowSize       the number of {@code get} calls over which hit rates are compared
+     * @param switchMargin     the hit rate difference, between 0 and 1, another policy must lead by
+     * @param sustainedWindows the number of consecutive windows the lead must hold before switching
+     */
+    public AdaptiveCache(int capacity, Policy initialPolicy, int windowSize, double switchMargin, int sustainedWindows) {
+        if (windowSize <= 0 || sustainedWindows <= 0) {
+            throw new IllegalArgumentException("windowSize and sustainedWindows must be positive");
+        }
+        this.capacity = capacity;
+        this.windowSize = windowSize;
+        this.switchMargin = switchMargin;
+        this.sustainedWindows = sustainedWindows;
+        int shift = 0;
+        while (capacity >> shift > MAX_GHOST_CAPACITY) {
+            shift++;
+        }
+        this.sampleShift = shift;
+        this.ghosts = new EnumMap<>(Policy.class);
+        this.lastHitRates = new EnumMap<>(Policy.class);
+        for (Policy ghostPolicy : Policy.values()) {
+            ghosts.put(ghostPolicy, ghostPolicy.create(capacity >> shift));
+            lastHitRates.put(ghostPolicy, 0.0);
+        }
+        this.windowHits = new int[Policy.values().length];
+        this.policy = initialPolicy;
+        this.active = initialPolicy.create(capacity);
+    }
+
+    /**
+     * Inserts the specified key-value pair into the active cache.
+     * Ghost caches are not updated: they model read-through caches and admit a key when its read misses.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        if (previous != null) {
+            previous.evict(id);
+        }
+        active.put(id, value);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     * The access is also replayed against the ghost cache of every policy.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        recordRead(id);
+
+        V value = active.get(id);
+        if (previous != null) {
+            if (value == null) {
+                value = previous.get(id);
+                if (value != null) {
+                    previous.evict(id);
+                    active.put(id, value);
+                }
+            }
+            if (--previousReadsLeft == 0) {
+                previous = null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes the mapping for a key from this cache and from every ghost cache.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        if (sampled(id)) {
+            for (CacheService<K, Boolean> ghost : ghosts.values()) {
+                ghost.evict(id);
+            }
+        }
+        if (previous != null) {
+            previous.evict(id);
+        }
+        active.evict(id);
+    }
+
+    /**
+     * Inserts a prefetched value into the active cache unless the key already has one, in this cache or in the cache
+     * of the previous policy. Ghost caches are not updated, since the key was not read.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        if (previous != null && previousPolicy.contains(previous, id)) {
+            return;
+        }
+        active.prefetch(id, value);
+    }
+
+    /**
+     * Inserts the specified value into the active cache unless the key already has one. Not a read: the ghost caches
+     * are not updated.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        takeFromPrevious(id);
+        return active.putIfAbsent(id, value);
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it into the active cache if there is none. Not a read: the
+     * ghost caches are not updated.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        takeFromPrevious(id);
+        return active.computeIfAbsent(id, mappingFunction);
+    }
+
+    /**
+     * Computes a new value from the key and its current value. A {@code null} result removes the key. Not a read: the
+     * ghost caches are not updated.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        takeFromPrevious(id);
+        return active.compute(id, remappingFunction);
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value. A {@code null}
+     * combination removes the key. Not a read: the ghost caches are not updated.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        takeFromPrevious(id);
+        return active.merge(id, value, remappingFunction);
+    }
+
+    /**
+     * Replaces the value of the key only if it has one. Not a read: the ghost caches are not updated.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        takeFromPrevious(id);
+        return active.replace(id, value);
+    }
+
+    /**
+     * Returns the policy currently used for the real entries.
+     *
+     * @return the active policy
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the hit rate the given policy reached in its ghost cache during the last completed window.
+     *
+     * @param ghostPolicy the policy to report
+     * @return the hit rate between 0 and 1
+     */
+    public double getGhostHitRate(Policy ghostPolicy) {
+        return lastHitRates.get(ghostPolicy);
+    }
+
+    /**
+     * Moves the entry of the key, if the previous cache holds one, to the active cache, so that a conditional operation
+     * sees it there. Keys the previous cache does not hold are only probed.
+     *
+     * @param id the key about to be written
+     */
+    private void takeFromPrevious(K id) {
+        if (previous != null && previousPolicy.contains(previous, id)) {
+            V value = previous.get(id);
+            previous.evict(id);
+            active.put(id, value);
+        }
+    }
+
+    /**
+     * Replays a read of a sampled key against every ghost cache, admitting the key where it missed, and closes the
+     * window once enough reads were seen.
+     *
+     * @param id the key being read
+     */
+    private void recordRead(K id) {
+        if (sampled(id)) {
+            windowSampledReads++;
+            for (Map.Entry<Policy, CacheService<K, Boolean>> entry : ghosts.entrySet()) {
+                CacheService<K, Boolean> ghost = entry.getValue();
+                if (ghost.get(id) != null) {
+                    windowHits[entry.getKey().ordinal()]++;
+                } else {
+                    ghost.put(id, Boolean.TRUE);
+                }
+            }
+        }
+        if (++windowReads == windowSize) {
+            closeWindow();
+        }
+    }
+
+    /**
+     * Compares the hit rates of the finished window and switches policy once a lead has been sustained.
+     */
+    private void closeWindow() {
+        if (windowSampledReads == 0) {
+            // No sampled key was read; the window says nothing about the policies
+            windowReads = 0;
+            return;
+        }
+        Policy best = policy;
+        for (Policy candidate : Policy.values()) {
+            lastHitRates.put(candidate, (double) windowHits[candidate.ordinal()] / windowSampledReads);
+            if (windowHits[candidate.ordinal()] > windowHits[best.ordinal()]) {
+                best = candidate;
+            }
+        }
+        double lead = lastHitRates.get(best) - lastHitRates.get(policy);
+        if (best != policy && lead >= switchMargin) {
+            leadingWindows = best == leader ? leadingWindows + 1 : 1;
+            leader = best;
+        } else {
+            leadingWindows = 0;
+            leader = null;
+        }
+        if (leadingWindows >= sustainedWindows && previous == null) {
+            // A sustained lead found while the last switch drains is acted on at the first window after it
+            switchTo(best);
+        }
+
+        windowReads = 0;
+        windowSampledReads = 0;
+        Arrays.fill(windowHits, 0);
+    }
+
+    /**
+     * Tells whether reads of the key are replayed against the ghost caches. With a sample shift of n, that is the case
+     * for the keys whose mixed hash code has n leading zero bits.
+     *
+     * @param id the key
+     * @return {@code true} if the ghost caches track the key
+     */
+    private boolean sampled(K id) {
+        return sampleShift == 0 || (id.hashCode() * 0x9E3779B9) >>> (32 - sampleShift) == 0;
+    }
+
+    /**
+     * Makes a fresh cache with the given policy active and keeps the current one as a read-through source.
+     *
+     * @param newPolicy the policy to switch to
+     */
+    private void switchTo(Policy newPolicy) {
+        previous = active;
+        previousPolicy = policy;
+        previousReadsLeft = Math.max(capacity, 1);
+        active = newPolicy.create(capacity);
+        policy = newPolicy;
+        leader = null;
+        leadingWindows = 0;
+    }
+}
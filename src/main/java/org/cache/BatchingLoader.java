@@ -0,0 +1,353 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache wrapper coalescing misses into batched backend loads.
+ * <p>
+ * A miss does not load its key right away. The key joins a batch, which is dispatched when it reaches the maximum
+ * batch size or when the window opened by its first key closes, whichever comes first. One {@link BulkCacheLoader}
+ * call then fetches all keys of the batch, the values found are put into the cache in one pass and every waiting
+ * caller's future is completed. Concurrent misses on the same key, in the open batch or in one being loaded, share
+ * one future, so each key is loaded once.
+ * <p>
+ * Operations on the wrapped cache synchronize on it, so the wrapper is thread-safe whatever cache it wraps. The
+ * bulk loader runs on the given executor, the common fork-join pool by default.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class BatchingLoader<K, V> implements CacheService<K, V>, Closeable {
+
+    private final CacheService<K, V> cache;
+    private final BulkCacheLoader<K, V> loader;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final Executor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<K, CompletableFuture<V>> futures = new ConcurrentHashMap<>();
+    private Set<K> batch = new LinkedHashSet<>();
+    private ScheduledFuture<?> windowClose;
+    private long batchCount;
+    private long loadedKeyCount;
+
+    /**
+     * Constructs a batching loader running the bulk loader on the common fork-join pool.
+     *
+     * @param cache        the cache to fill
+     * @param loader       loads a batch of missing keys
+     * @param maxBatchSize the number of keys that dispatches a batch immediately
+     * @param windowMillis how long a batch collects keys after its first one
+     */
+    public BatchingLoader(CacheService<K, V> cache, BulkCacheLoader<K, V> loader, int maxBatchSize, long windowMillis) {
+        this(cache, loader, maxBatchSize, windowMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a batching loader.
+     *
+     * @param cache        the cache to fill
+     * @param loader       loads a batch of missing keys
+     * @param maxBatchSize the number of keys that dispatches a batch immediately
+     * @param windowMillis how long a batch collects keys after its first one
+     * @param executor     runs the bulk loader
+     */
+    public BatchingLoader(CacheService<K, V> cache, BulkCacheLoader<K, V> loader, int maxBatchSize, long windowMillis,
+                          Executor executor) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("windowMillis must not be negative: " + windowMillis);
+        }
+        this.cache = cache;
+        this.loader = loader;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = windowMillis;
+        this.executor = executor;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-batching-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Returns the cached value of a key, or a future completed once the batch the key joins has been loaded.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return a future of the value, completed with {@code null} if the bulk loader found none
+     */
+    public CompletableFuture<V> getAsync(K id) {
+        V value;
+        synchronized (cache) {
+            value = cache.get(id);
+        }
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<V> future = futures.get(id);
+        if (future != null) {
+            return future;
+        }
+        Set<K> full = null;
+        synchronized (this) {
+            future = futures.get(id);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            futures.put(id, future);
+            batch.add(id);
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                try {
+                    windowClose = timer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Closed; the batch is dispatched right away
+                    full = takeBatch();
+                }
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the value of a key, waiting for the batch it joins on a miss.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value, or {@code null} if the bulk loader found none
+     * @throws CompletionException if the bulk loader failed
+     */
+    @Override
+    public V get(K id) {
+        return getAsync(id).join();
+    }
+
+    /**
+     * Inserts the specified key-value pair into the wrapped cache.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        synchronized (cache) {
+            cache.put(id, value);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from the wrapped cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        synchronized (cache) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value into the wrapped cache unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        synchronized (cache) {
+            return cache.putIfAbsent(id, value);
+        }
+    }
+
+    /**
+     * Atomically inserts a prefetched value into the wrapped cache unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        synchronized (cache) {
+            cache.prefetch(id, value);
+        }
+    }
+
+    /**
+     * Atomically returns the value of the key in the wrapped cache, computing and inserting it if there is none.
+     * The function replaces the bulk loader for this key.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        synchronized (cache) {
+            return cache.computeIfAbsent(id, mappingFunction);
+        }
+    }
+
+    /**
+     * Atomically computes a new value from the key and its current value in the wrapped cache, without loading it.
+     * A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        synchronized (cache) {
+            return cache.compute(id, remappingFunction);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value into the wrapped cache if the key has none, or else combines it with the
+     * current value, without loading it. A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        synchronized (cache) {
+            return cache.merge(id, value, remappingFunction);
+        }
+    }
+
+    /**
+     * Atomically replaces the value of the key in the wrapped cache only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        synchronized (cache) {
+            return cache.replace(id, value);
+        }
+    }
+
+    /**
+     * Dispatches the open batch without waiting for its window to close.
+     */
+    public void flush() {
+        Set<K> keys;
+        synchronized (this) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            keys = takeBatch();
+        }
+        dispatch(keys);
+    }
+
+    /**
+     * Returns the number of bulk loader calls made.
+     *
+     * @return the batch count
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Returns the number of keys passed to the bulk loader.
+     *
+     * @return the loaded key count
+     */
+    public synchronized long getLoadedKeyCount() {
+        return loadedKeyCount;
+    }
+
+    /**
+     * Dispatches the open batch and stops the window timer. Later misses are dispatched one by one.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Swaps in an empty batch and cancels the window of the taken one. The caller holds the lock.
+     */
+    private Set<K> takeBatch() {
+        Set<K> keys = batch;
+        batch = new LinkedHashSet<>();
+        if (windowClose != null) {
+            windowClose.cancel(false);
+            windowClose = null;
+        }
+        batchCount++;
+        loadedKeyCount += keys.size();
+        return keys;
+    }
+
+    private void dispatch(Set<K> keys) {
+        try {
+            executor.execute(() -> load(keys));
+        } catch (RejectedExecutionException e) {
+            load(keys);
+        }
+    }
+
+    /**
+     * Loads a batch and completes its futures. Whatever goes wrong, every future of the batch is completed and
+     * removed, so that its waiters return and later misses on its keys start a new load.
+     */
+    private void load(Set<K> keys) {
+        Map<K, V> values = null;
+        Throwable failure = null;
+        try {
+            values = Objects.requireNonNull(loader.loadAll(Collections.unmodifiableSet(keys)), "loadAll returned null");
+            synchronized (cache) {
+                for (Map.Entry<K, V> entry : values.entrySet()) {
+                    if (entry.getValue() != null && keys.contains(entry.getKey())) {
+                        cache.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        } finally {
+            for (K key : keys) {
+                CompletableFuture<V> future = futures.remove(key);
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(values.get(key));
+                }
+            }
+        }
+    }
+}
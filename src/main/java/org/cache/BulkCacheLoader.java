@@ -0,0 +1,22 @@
+package org.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the values of several keys missing from a cache in one call, see {@link BatchingLoader}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of loaded values
+ */
+@FunctionalInterface
+public interface BulkCacheLoader<K, V> {
+
+    /**
+     * Loads the values of a set of keys, typically with one request to a slower backend.
+     *
+     * @param keys the keys to load
+     * @return the values found; keys without a value are left out or mapped to {@code null}
+     */
+    Map<K, V> loadAll(Set<K> keys);
+}
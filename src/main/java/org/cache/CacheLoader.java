@@ -0,0 +1,19 @@
+package org.cache;
+
+/**
+ * Computes the value of a key that is missing from a cache, see {@link CacheService#get(Object, CacheLoader)}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of loaded values
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+    /**
+     * Loads the value of a key, typically from a slower backend.
+     *
+     * @param key the key to load
+     * @return the value, or {@code null} if the key has no value
+     */
+    V load(K key);
+}
@@ -1,7 +1,16 @@
 package org.cache;
 
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 /**
  * CacheService defines the interface for a cache that stores key-value pairs.
+ * <p>
+ * The conditional updates {@code putIfAbsent}, {@code computeIfAbsent}, {@code compute}, {@code merge} and
+ * {@code replace} follow the contracts of their {@link java.util.Map} counterparts, with {@code null} meaning absent.
+ * Their default implementations combine {@code get}, {@code put} and {@code evict}, so they look the key up twice and
+ * are not atomic. The cache policies override them with a single lookup and one policy update, and the thread-safe
+ * caches make them atomic. The functions must not modify the cache themselves.
  *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
@@ -33,4 +42,123 @@ public interface CacheService<K, V> {
      * @param id the key whose mapping is to be removed from the cache
      */
     void evict(K id);
-}
\ No newline at end of file
+
+    /**
+     * Returns the value to which the specified key is mapped, loading and inserting it on a miss.
+     * Nothing is inserted when the loader returns {@code null}.
+     *
+     * @param id     the key whose associated value is to be returned
+     * @param loader computes the value when the key is not cached
+     * @return the cached or loaded value, or {@code null} if the loader returned {@code null}
+     */
+    default V get(K id, CacheLoader<? super K, ? extends V> loader) {
+        V value = get(id);
+        if (value == null) {
+            value = loader.load(id);
+            if (value != null) {
+                put(id, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Inserts the specified value unless the key already has one.
+     * An existing value is accessed, as by {@link #get(Object)}.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    default V putIfAbsent(K id, V value) {
+        V existing = get(id);
+        if (existing == null) {
+            put(id, value);
+        }
+        return existing;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none.
+     * Nothing is inserted when the function returns {@code null}.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    default V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(id);
+        if (value == null) {
+            value = mappingFunction.apply(id);
+            if (value != null) {
+                put(id, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value, or {@code null} if there is none.
+     * The new value replaces the current one; a {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    default V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V value = remappingFunction.apply(id, get(id));
+        if (value != null) {
+            put(id, value);
+        } else {
+            evict(id);
+        }
+        return value;
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value.
+     * A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    default V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V current = get(id);
+        V merged = current == null ? value : remappingFunction.apply(current, value);
+        if (merged != null) {
+            put(id, merged);
+        } else {
+            evict(id);
+        }
+        return merged;
+    }
+
+    /**
+     * Replaces the value of the key only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    default V replace(K id, V value) {
+        V previous = get(id);
+        if (previous != null) {
+            put(id, value);
+        }
+        return previous;
+    }
+
+    /**
+     * Inserts a value loaded ahead of demand unless the key already has one. Policies that support it insert the value
+     * with the lowest priority, so that it is the first to be evicted if it is never read; by default it is inserted
+     * like {@link #putIfAbsent(Object, Object)}.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    default void prefetch(K id, V value) {
+        putIfAbsent(id, value);
+    }
+}
@@ -0,0 +1,92 @@
+package org.cache;
+
+/**
+ * Management interface of a named cache, registered by {@link InstrumentedCache#register()}.
+ * Size, capacity and evictions are only known for {@link ResizableCache}s; otherwise they read {@code -1}.
+ */
+public interface CacheStatsMXBean {
+
+    /**
+     * Returns the name of the cache.
+     *
+     * @return the name of the cache
+     */
+    String getName();
+
+    /**
+     * Returns the number of entries currently held, or {@code -1} if unknown.
+     *
+     * @return the number of entries currently held, or {@code -1} if unknown
+     */
+    int getSize();
+
+    /**
+     * Returns the maximum number of entries, or {@code -1} if unknown.
+     *
+     * @return the maximum number of entries, or {@code -1} if unknown
+     */
+    int getCapacity();
+
+    /**
+     * Changes the capacity of the cache.
+     *
+     * @param capacity the new maximum number of entries
+     * @throws UnsupportedOperationException if the cache is not resizable
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the number of lookups that found a value
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that found no value.
+     *
+     * @return the number of lookups that found no value
+     */
+    long getMissCount();
+
+    /**
+     * Returns the share of lookups that found a value, or {@code 0} before the first lookup.
+     *
+     * @return the share of lookups that found a value, or {@code 0} before the first lookup
+     */
+    double getHitRate();
+
+    /**
+     * Returns the number of loader calls.
+     *
+     * @return the number of loader calls
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the average loader call duration in milliseconds.
+     *
+     * @return the average loader call duration in milliseconds
+     */
+    double getAverageLoadMillis();
+
+    /**
+     * Returns the number of entries evicted to respect the capacity, or {@code -1} if unknown.
+     *
+     * @return the number of entries evicted to respect the capacity, or {@code -1} if unknown
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the average number of evictions per second since the statistics were last reset, or since the cache was
+     * created. Reading it changes nothing, so several monitoring clients see the same rate.
+     *
+     * @return the number of evictions per second since the last reset
+     */
+    double getEvictionRate();
+
+    /**
+     * Resets the hit, miss and load counters, and starts a new period for the eviction rate.
+     */
+    void resetStats();
+}
@@ -0,0 +1,151 @@
+package org.cache;
+
+/**
+ * Cache storing its values in serialized, optionally compressed form.
+ * <p>
+ * Values are encoded with a {@link ValueCodec} and kept as {@code byte[]} in any {@link CacheService},
+ * which decides what gets evicted. Compressed values are stored as LZ4 blocks, but only when that saves space.
+ * Values are decoded on {@code get}; a small LRU cache of decoded objects avoids decoding hot keys again.
+ * A decoded object is only returned while its serialized form is still in the underlying cache.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class CodecCache<K, V> implements CacheService<K, V> {
+
+    private static final byte RAW = 0;
+    private static final byte LZ4 = 1;
+
+    /**
+     * Values shorter than this are never compressed.
+     */
+    private static final int MIN_COMPRESSIBLE_LENGTH = 64;
+
+    private final CacheService<K, byte[]> store;
+    private final ValueCodec<V> codec;
+    private final boolean compress;
+    private final CacheService<K, V> decoded;
+
+    /**
+     * Constructs a codec cache.
+     *
+     * @param store            the cache holding the serialized values
+     * @param codec            the codec converting values
+     * @param compress         whether to compress serialized values
+     * @param decodedCacheSize the number of decoded values kept for hot keys, {@code 0} to always decode
+     */
+    public CodecCache(CacheService<K, byte[]> store, ValueCodec<V> codec, boolean compress, int decodedCacheSize) {
+        this.store = store;
+        this.codec = codec;
+        this.compress = compress;
+        this.decoded = decodedCacheSize > 0 ? new LRULinkedHashMapCache<>(decodedCacheSize) : null;
+    }
+
+    /**
+     * Encodes the value and inserts it into the underlying cache.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        store.put(id, encode(value));
+        if (decoded != null) {
+            decoded.put(id, value);
+        }
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     * The underlying cache is always consulted, so the access counts for its eviction policy.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        byte[] bytes = store.get(id);
+        if (bytes == null) {
+            if (decoded != null) {
+                decoded.evict(id);
+            }
+            return null;
+        }
+        if (decoded == null) {
+            return decode(bytes);
+        }
+        V value = decoded.get(id);
+        if (value == null) {
+            value = decode(bytes);
+            decoded.put(id, value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        store.evict(id);
+        if (decoded != null) {
+            decoded.evict(id);
+        }
+    }
+
+    /**
+     * Encodes a prefetched value and inserts it into the underlying cache unless the key already has one. A decoded
+     * copy of the key is dropped, since the underlying cache may have evicted the value it was decoded from.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        store.prefetch(id, encode(value));
+        if (decoded != null) {
+            decoded.evict(id);
+        }
+    }
+
+    /**
+     * Serializes a value, prefixed by a format byte and, for compressed values, the uncompressed length.
+     *
+     * @param value the value to encode
+     * @return the stored form
+     */
+    private byte[] encode(V value) {
+        byte[] raw = codec.encode(value);
+        if (compress && raw.length >= MIN_COMPRESSIBLE_LENGTH) {
+            byte[] block = Lz4Compressor.compress(raw);
+            if (block.length + 4 < raw.length) {
+                byte[] stored = new byte[block.length + 5];
+                stored[0] = LZ4;
+                stored[1] = (byte) (raw.length >>> 24);
+                stored[2] = (byte) (raw.length >>> 16);
+                stored[3] = (byte) (raw.length >>> 8);
+                stored[4] = (byte) raw.length;
+                System.arraycopy(block, 0, stored, 5, block.length);
+                return stored;
+            }
+        }
+        byte[] stored = new byte[raw.length + 1];
+        stored[0] = RAW;
+        System.arraycopy(raw, 0, stored, 1, raw.length);
+        return stored;
+    }
+
+    private V decode(byte[] stored) {
+        byte[] raw;
+        if (stored[0] == LZ4) {
+            int length = (stored[1] & 0xFF) << 24 | (stored[2] & 0xFF) << 16 | (stored[3] & 0xFF) << 8 | (stored[4] & 0xFF);
+            raw = Lz4Compressor.decompress(stored, 5, stored.length - 5, length);
+        } else {
+            raw = new byte[stored.length - 1];
+            System.arraycopy(stored, 1, raw, 0, raw.length);
+        }
+        return codec.decode(raw);
+    }
+}
@@ -0,0 +1,140 @@
+package org.cache;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter with 4-bit counters, so that keys can be removed again.
+ * <p>
+ * Counters saturate at 15 and are never decremented after that. Removing a key that was not added may make
+ * other keys disappear but never adds one, so the filter can only lose members, never gain false ones, by removals.
+ * Not thread-safe.
+ */
+final class CountingBloomFilter {
+
+    private static final int MAX_COUNT = 15;
+
+    private final long[] counters;
+    private final int counterCount;
+    private final int hashCount;
+    private int size;
+
+    /**
+     * Constructs a filter sized for the expected number of keys and false positive rate.
+     *
+     * @param expectedInsertions the number of keys the filter is sized for
+     * @param falsePositiveRate  the false positive rate at that number of keys
+     */
+    CountingBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.counterCount = (int) Math.min(Math.max(bits, 64), Integer.MAX_VALUE - 64L);
+        this.hashCount = Math.max(1, (int) Math.round((double) counterCount / expectedInsertions * ln2));
+        this.counters = new long[(counterCount + 15) / 16];
+    }
+
+    /**
+     * Returns whether the key may have been added. A {@code false} result is always right.
+     *
+     * @param key the key
+     * @return {@code false} if the key was certainly not added
+     */
+    boolean mightContain(Object key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            if (get(index(h1 + i * h2)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key the key
+     */
+    void add(Object key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1 + i * h2);
+            int count = get(index);
+            if (count < MAX_COUNT) {
+                set(index, count + 1);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Removes a key that was added once.
+     *
+     * @param key the key
+     */
+    void remove(Object key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1 + i * h2);
+            int count = get(index);
+            if (count > 0 && count < MAX_COUNT) {
+                set(index, count - 1);
+            }
+        }
+        size = Math.max(0, size - 1);
+    }
+
+    /**
+     * Returns the number of keys added and not removed.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes every key.
+     */
+    void clear() {
+        Arrays.fill(counters, 0);
+        size = 0;
+    }
+
+    private int index(int combinedHash) {
+        return (int) ((combinedHash & 0xFFFFFFFFL) % counterCount);
+    }
+
+    private int get(int index) {
+        return (int) (counters[index >>> 4] >>> ((index & 15) << 2)) & 0xF;
+    }
+
+    private void set(int index, int count) {
+        int shift = (index & 15) << 2;
+        counters[index >>> 4] = counters[index >>> 4] & ~(0xFL << shift) | (long) count << shift;
+    }
+
+    /**
+     * Derives two independent 32-bit hashes from the key's hash code (the MurmurHash3 64-bit finalizer).
+     */
+    private static long hash(Object key) {
+        // The offset keeps a zero hash code from mapping every probe to the same counter
+        long h = (key == null ? 0 : key.hashCode()) + 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,437 @@
+package org.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cost-aware cache using the GreedyDual-Size-Frequency (GDSF) policy.
+ * <p>
+ * Every entry has a priority {@code L + frequency * cost / size}, where {@code cost} is what a miss on the entry
+ * costs, for example its load time, {@code size} its weight and {@code L} an inflation clock. The entry with the
+ * lowest priority is evicted and its priority becomes the new {@code L}, so entries that are not accessed again
+ * age relative to newly accessed ones. This minimizes the total cost of misses rather than their number.
+ * <p>
+ * Costs are given to {@link #put(Object, Object, double)}, or measured by {@link #get(Object, CacheLoader)} as the
+ * loader's duration in milliseconds; a plain {@code put} keeps the entry's previous cost, or uses 1 for a new
+ * entry, and so do the conditional operations, each of which counts as a single access. Entries are kept in an
+ * indexed binary heap, so inserts, hits and evictions take O(log n).
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class GreedyDualSizeFrequencyCache<K, V> implements CacheService<K, V> {
+
+    private static final double DEFAULT_COST = 1;
+
+    private final long maxWeight;
+    private final ToIntFunction<? super V> weigher;
+    private final Map<K, Node<K, V>> cache = new HashMap<>();
+    private Node<K, V>[] heap;
+    private int size;
+    private long weight;
+    private double inflation;
+
+    /**
+     * Constructs a cache where every entry has weight 1.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public GreedyDualSizeFrequencyCache(int capacity) {
+        this(capacity, value -> 1);
+    }
+
+    /**
+     * Constructs a cache bounded by the total weight of its entries.
+     *
+     * @param maxWeight the maximum total weight
+     * @param weigher   computes the weight of a value, for example its size in bytes; must be positive
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public GreedyDualSizeFrequencyCache(long maxWeight, ToIntFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.heap = new Node[16];
+    }
+
+    /**
+     * Inserts the specified key-value pair, keeping the entry's previous cost or using 1 for a new entry.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        Node<K, V> node = cache.get(id);
+        store(id, node, value, node == null ? DEFAULT_COST : node.cost);
+    }
+
+    /**
+     * Inserts the specified key-value pair with the cost of a miss on it.
+     * Entries with the lowest priority are evicted until the weight fits; an entry heavier than the whole cache is not inserted,
+     * and the previous value of its key is removed.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @param cost  the cost of a miss, for example the load time in milliseconds
+     */
+    public void put(K id, V value, double cost) {
+        store(id, cache.get(id), value, cost);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     * A hit raises the entry's frequency and priority.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        Node<K, V> node = cache.get(id);
+        if (node == null) return null;
+
+        node.frequency++;
+        reprioritize(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the cached value, or loads it and records the load time in milliseconds as the entry's cost.
+     *
+     * @param id     the key whose associated value is to be returned
+     * @param loader computes the value when the key is not cached
+     * @return the cached or loaded value, or {@code null} if the loader returned {@code null}
+     */
+    @Override
+    public V get(K id, CacheLoader<? super K, ? extends V> loader) {
+        V value = get(id);
+        if (value == null) {
+            long start = System.nanoTime();
+            value = loader.load(id);
+            double millis = (System.nanoTime() - start) / 1e6;
+            if (value != null) {
+                put(id, value, millis);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        Node<K, V> node = cache.remove(id);
+        if (node == null) return;
+
+        removeAt(node.heapIndex);
+        weight -= node.weight;
+    }
+
+    /**
+     * Inserts the specified value with cost 1 unless the key already has one.
+     * A hit on an existing entry raises its frequency and priority.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        Node<K, V> node = cache.get(id);
+        if (node != null) {
+            node.frequency++;
+            reprioritize(node);
+            return node.value;
+        }
+        store(id, null, value, DEFAULT_COST);
+        return null;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it with cost 1 if there is none.
+     * The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        Node<K, V> node = cache.get(id);
+        if (node != null) {
+            node.frequency++;
+            reprioritize(node);
+            return node.value;
+        }
+        V value = mappingFunction.apply(id);
+        if (value != null) {
+            store(id, null, value, DEFAULT_COST);
+        }
+        return value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value, counted as a single access and keeping the entry's
+     * cost. A {@code null} result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Node<K, V> node = cache.get(id);
+        V value = remappingFunction.apply(id, node == null ? null : node.value);
+        update(id, node, value);
+        return value;
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, counted as a
+     * single access and keeping the entry's cost. A {@code null} combination removes the key. The function must
+     * not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Node<K, V> node = cache.get(id);
+        V merged = node == null ? value : remappingFunction.apply(node.value, value);
+        update(id, node, merged);
+        return merged;
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, counted as a single access and keeping the entry's cost.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        Node<K, V> node = cache.get(id);
+        if (node == null) {
+            return null;
+        }
+        V previous = node.value;
+        store(id, node, value, node.cost);
+        return previous;
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total weight of the entries currently held.
+     *
+     * @return the total weight
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the inflation clock, the priority of the last evicted entry.
+     *
+     * @return the inflation value
+     */
+    public double getInflation() {
+        return inflation;
+    }
+
+    /**
+     * Inserts or updates the entry of a key whose node the caller looked up.
+     *
+     * @param id    the key
+     * @param node  the node of the key, or {@code null} if it has none
+     * @param value the new value
+     * @param cost  the cost of a miss on the entry
+     */
+    private void store(K id, Node<K, V> node, V value, double cost) {
+        int entryWeight = weigher.applyAsInt(value);
+        if (entryWeight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive: " + entryWeight);
+        }
+        if (node != null && entryWeight > maxWeight) {
+            // Keeping the old value would serve stale data, and the new one does not fit
+            evict(id);
+            return;
+        }
+        if (node != null) {
+            weight -= node.weight;
+            node.value = value;
+            node.cost = cost;
+            node.weight = entryWeight;
+            node.frequency++;
+            weight += entryWeight;
+            reprioritize(node);
+            evictWhileOverweight(node);
+            return;
+        }
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        node = new Node<>(id, value, cost, entryWeight);
+        weight += entryWeight;
+        evictWhileOverweight(null);
+        cache.put(id, node);
+        node.priority = priority(node);
+        add(node);
+    }
+
+    /**
+     * Stores the result of a computation for the node found by the caller: updates it, inserts a new entry or removes it.
+     *
+     * @param id    the key
+     * @param node  the node of the key, or {@code null} if it has none
+     * @param value the new value, or {@code null} to remove the key
+     */
+    private void update(K id, Node<K, V> node, V value) {
+        if (value == null) {
+            if (node != null) {
+                evict(id);
+            }
+        } else {
+            store(id, node, value, node == null ? DEFAULT_COST : node.cost);
+        }
+    }
+
+    private double priority(Node<K, V> node) {
+        return inflation + node.frequency * node.cost / node.weight;
+    }
+
+    private void reprioritize(Node<K, V> node) {
+        node.priority = priority(node);
+        // A lower cost or a higher weight can lower the priority, so the node may have to move either way
+        siftDown(node.heapIndex);
+        siftUp(node.heapIndex);
+    }
+
+    /**
+     * Evicts the entries with the lowest priority until the weight fits, sparing the given node.
+     */
+    private void evictWhileOverweight(Node<K, V> spared) {
+        while (weight > maxWeight && size > 0) {
+            Node<K, V> victim = heap[0];
+            if (victim == spared) {
+                if (size == 1) {
+                    return;
+                }
+                // The spared node is heavier than everything else together; take the cheapest other entry
+                victim = heap[1];
+                if (size > 2 && heap[2].priority < victim.priority) {
+                    victim = heap[2];
+                }
+            }
+            inflation = victim.priority;
+            cache.remove(victim.key);
+            removeAt(victim.heapIndex);
+            weight -= victim.weight;
+        }
+    }
+
+    private void add(Node<K, V> node) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        heap[size] = node;
+        node.heapIndex = size;
+        size++;
+        siftUp(node.heapIndex);
+    }
+
+    private void removeAt(int index) {
+        size--;
+        Node<K, V> last = heap[size];
+        heap[size] = null;
+        if (index == size) {
+            return;
+        }
+        heap[index] = last;
+        last.heapIndex = index;
+        siftDown(index);
+        siftUp(last.heapIndex);
+    }
+
+    private void siftUp(int index) {
+        Node<K, V> node = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].priority <= node.priority) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].heapIndex = index;
+            index = parent;
+        }
+        heap[index] = node;
+        node.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+        Node<K, V> node = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1].priority < heap[child].priority) {
+                child++;
+            }
+            if (node.priority <= heap[child].priority) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].heapIndex = index;
+            index = child;
+        }
+        heap[index] = node;
+        node.heapIndex = index;
+    }
+
+    /**
+     * Node class representing an entry with its GDSF parameters and its position in the heap.
+     *
+     * @param <T> the type of key
+     * @param <V> the type of value
+     */
+    private static class Node<T, V> {
+        final T key;
+        V value;
+        double cost;
+        int weight;
+        long frequency = 1;
+        double priority;
+        int heapIndex;
+
+        /**
+         * Constructs a new node accessed once.
+         *
+         * @param key    the key of the node
+         * @param value  the value of the node
+         * @param cost   the cost of a miss on the node
+         * @param weight the weight of the value
+         */
+        Node(T key, V value, double cost, int weight) {
+            this.key = key;
+            this.value = value;
+            this.cost = cost;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package org.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate top-K of the most frequently accessed keys, using the Space-Saving algorithm.
+ * <p>
+ * Each stripe monitors at most {@code capacity} keys. A key that is not monitored takes over the counter with the
+ * lowest count and inherits that count as its possible overestimation, so any key accessed more often than
+ * {@code total / capacity} times is guaranteed to be monitored. Counters are kept in buckets of equal count, linked
+ * in ascending order like the frequency buckets of {@link LFUDoublyLinkedListCache}, so every update is O(1).
+ * <p>
+ * Threads record into one of several stripes, preferring a fixed one and moving on when it is busy, so a hot key
+ * does not serialize its callers. Queries merge the stripes. Memory is bounded by {@code stripes * capacity} counters
+ * whatever the number of distinct keys.
+ *
+ * @param <K> the type of keys
+ */
+public class HotKeySketch<K> {
+
+    private final Stripe<K>[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs a sketch with one stripe per available processor.
+     *
+     * @param capacity the number of keys monitored by each stripe, larger than the number of keys to be queried
+     */
+    public HotKeySketch(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a sketch.
+     *
+     * @param capacity    the number of keys monitored by each stripe, larger than the number of keys to be queried
+     * @param stripeCount the requested number of stripes, rounded up to a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HotKeySketch(int capacity, int stripeCount) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("stripeCount must be positive: " + stripeCount);
+        }
+        int count = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>(capacity);
+        }
+    }
+
+    /**
+     * Records one access to a key.
+     *
+     * @param key the accessed key
+     */
+    public void record(K key) {
+        int index = ShardedCache.spread((int) Thread.currentThread().getId());
+        for (int attempt = 0; attempt < mask; attempt++) {
+            Stripe<K> stripe = stripes[index++ & mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.increment(key);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                return;
+            }
+        }
+        Stripe<K> stripe = stripes[index & mask];
+        stripe.lock.lock();
+        try {
+            stripe.increment(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the most frequently accessed keys, most frequent first.
+     *
+     * @param k the number of keys to return
+     * @return up to {@code k} keys with their estimated counts
+     */
+    public List<HotKey<K>> getTopKeys(int k) {
+        // A key not monitored by a full stripe was seen there at most as often as the stripe's lowest count, so
+        // every estimate starts from the sum of those minimums and monitored keys add their excess over them
+        Map<K, long[]> merged = new HashMap<>();
+        long minimums = 0;
+        for (Stripe<K> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                long min = stripe.size < stripe.capacity ? 0 : stripe.buckets.next.count;
+                minimums += min;
+                for (Counter<K> counter : stripe.counters.values()) {
+                    long[] excess = merged.computeIfAbsent(counter.key, key -> new long[2]);
+                    excess[0] += counter.bucket.count - min;
+                    excess[1] += counter.error - min;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        List<HotKey<K>> keys = new ArrayList<>(merged.size());
+        for (Map.Entry<K, long[]> entry : merged.entrySet()) {
+            long[] excess = entry.getValue();
+            keys.add(new HotKey<>(entry.getKey(), minimums + excess[0], minimums + excess[1]));
+        }
+        keys.sort((a, b) -> Long.compare(b.count, a.count));
+        return keys.size() > k ? new ArrayList<>(keys.subList(0, k)) : keys;
+    }
+
+    /**
+     * Returns the total number of recorded accesses.
+     *
+     * @return the number of accesses
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (Stripe<K> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.total;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Forgets every recorded access.
+     */
+    public void reset() {
+        for (Stripe<K> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A key with its estimated access count.
+     *
+     * @param <K> the type of key
+     */
+    public static final class HotKey<K> {
+        private final K key;
+        private final long count;
+        private final long error;
+
+        HotKey(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Returns the key.
+         *
+         * @return the key
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the estimated number of accesses, which never underestimates the true count.
+         *
+         * @return the estimated count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the largest possible overestimation of {@link #getCount()}.
+         *
+         * @return the maximum error
+         */
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + count + " (error " + error + ")";
+        }
+    }
+
+    /**
+     * One Space-Saving summary.
+     *
+     * @param <K> the type of key
+     */
+    private static final class Stripe<K> {
+        final ReentrantLock lock = new ReentrantLock();
+        final int capacity;
+        final Map<K, Counter<K>> counters = new HashMap<>();
+
+        /**
+         * Sentinel of the circular list of buckets, lowest count first.
+         */
+        final Bucket<K> buckets = new Bucket<>(0);
+
+        /**
+         * Empty buckets kept for reuse, chained through {@link Bucket#next}.
+         */
+        Bucket<K> bucketPool;
+        int size;
+        long total;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            buckets.next = buckets;
+            buckets.prev = buckets;
+        }
+
+        void increment(K key) {
+            total++;
+            Counter<K> counter = counters.get(key);
+            if (counter == null) {
+                if (size < capacity) {
+                    counter = new Counter<>();
+                    size++;
+                    Bucket<K> first = buckets.next;
+                    if (first == buckets || first.count != 0) {
+                        first = linkBucketAfter(buckets, 0);
+                    }
+                    first.add(counter);
+                } else {
+                    // Take over a counter with the lowest count
+                    counter = buckets.next.head;
+                    counters.remove(counter.key);
+                    counter.error = counter.bucket.count;
+                }
+                counter.key = key;
+                counters.put(key, counter);
+            }
+
+            Bucket<K> current = counter.bucket;
+            long nextCount = current.count + 1;
+            Bucket<K> next = current.next;
+            if (next == buckets || next.count != nextCount) {
+                if (current.head == counter && counter.next == null) {
+                    current.count = nextCount;
+                    return;
+                }
+                next = linkBucketAfter(current, nextCount);
+            }
+            current.remove(counter);
+            if (current.head == null) {
+                unlinkBucket(current);
+            }
+            next.add(counter);
+        }
+
+        void clear() {
+            counters.clear();
+            buckets.next = buckets;
+            buckets.prev = buckets;
+            size = 0;
+            total = 0;
+        }
+
+        private Bucket<K> linkBucketAfter(Bucket<K> predecessor, long count) {
+            Bucket<K> bucket = bucketPool;
+            if (bucket != null) {
+                bucketPool = bucket.next;
+                bucket.count = count;
+            } else {
+                bucket = new Bucket<>(count);
+            }
+            bucket.prev = predecessor;
+            bucket.next = predecessor.next;
+            predecessor.next.prev = bucket;
+            predecessor.next = bucket;
+            return bucket;
+        }
+
+        private void unlinkBucket(Bucket<K> bucket) {
+            bucket.prev.next = bucket.next;
+            bucket.next.prev = bucket.prev;
+            bucket.prev = null;
+            bucket.next = bucketPool;
+            bucketPool = bucket;
+        }
+    }
+
+    /**
+     * Counters sharing the same count, in a doubly linked list. Buckets are themselves linked in ascending order of count.
+     *
+     * @param <K> the type of key
+     */
+    private static final class Bucket<K> {
+        long count;
+        Counter<K> head;
+        Bucket<K> prev;
+        Bucket<K> next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+
+        void add(Counter<K> counter) {
+            counter.bucket = this;
+            counter.prev = null;
+            counter.next = head;
+            if (head != null) {
+                head.prev = counter;
+            }
+            head = counter;
+        }
+
+        void remove(Counter<K> counter) {
+            if (counter.prev != null) {
+                counter.prev.next = counter.next;
+            } else {
+                head = counter.next;
+            }
+            if (counter.next != null) {
+                counter.next.prev = counter.prev;
+            }
+            counter.prev = null;
+            counter.next = null;
+        }
+    }
+
+    /**
+     * A monitored key with its overestimation.
+     *
+     * @param <K> the type of key
+     */
+    private static final class Counter<K> {
+        K key;
+        long error;
+        Bucket<K> bucket;
+        Counter<K> prev;
+        Counter<K> next;
+    }
+}
@@ -0,0 +1,152 @@
+package org.cache;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache wrapper feeding every accessed key into a {@link HotKeySketch}.
+ * <p>
+ * Both {@code get} and {@code put} count as accesses. The sketch is thread-safe; the wrapper adds no other
+ * synchronization, so it is as thread-safe as the wrapped cache.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class HotKeyTrackingCache<K, V> implements CacheService<K, V> {
+
+    private final CacheService<K, V> cache;
+    private final HotKeySketch<K> sketch;
+
+    /**
+     * Constructs a tracking cache.
+     *
+     * @param cache  the cache whose accesses are tracked
+     * @param sketch the sketch recording the accesses, possibly shared by several caches
+     */
+    public HotKeyTrackingCache(CacheService<K, V> cache, HotKeySketch<K> sketch) {
+        this.cache = cache;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Records an access to the key and inserts the specified key-value pair into the wrapped cache.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        sketch.record(id);
+        cache.put(id, value);
+    }
+
+    /**
+     * Records an access to the key and returns its value in the wrapped cache, or {@code null} if there is none.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        sketch.record(id);
+        return cache.get(id);
+    }
+
+    /**
+     * Records an access to the key and inserts the specified value into the wrapped cache unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        sketch.record(id);
+        return cache.putIfAbsent(id, value);
+    }
+
+    /**
+     * Inserts a prefetched value into the wrapped cache unless the key already has one. Not recorded as an access,
+     * since nothing asked for the key yet.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        cache.prefetch(id, value);
+    }
+
+    /**
+     * Records an access to the key and returns its value in the wrapped cache, computing and inserting it if there is none.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        sketch.record(id);
+        return cache.computeIfAbsent(id, mappingFunction);
+    }
+
+    /**
+     * Records an access to the key and computes its new value in the wrapped cache. A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        sketch.record(id);
+        return cache.compute(id, remappingFunction);
+    }
+
+    /**
+     * Records an access to the key and inserts the specified value into the wrapped cache if the key has none, or else
+     * combines it with the current value. A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        sketch.record(id);
+        return cache.merge(id, value, remappingFunction);
+    }
+
+    /**
+     * Records an access to the key and replaces its value in the wrapped cache only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        sketch.record(id);
+        return cache.replace(id, value);
+    }
+
+    /**
+     * Removes the mapping for a key from the wrapped cache if it is present. Evictions are not counted as accesses.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        cache.evict(id);
+    }
+
+    /**
+     * Returns the sketch recording the accesses.
+     *
+     * @return the sketch
+     */
+    public HotKeySketch<K> getSketch() {
+        return sketch;
+    }
+}
@@ -0,0 +1,55 @@
+package org.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation hub for cache instances living in the same JVM, mainly for tests.
+ * <p>
+ * Every {@link #endpoint()} is a transport connected to the hub; a batch published by one endpoint is
+ * delivered synchronously, on the publishing thread, to the listeners of all other endpoints.
+ *
+ * @param <K> the type of keys being invalidated
+ */
+public class InProcessInvalidationTransport<K> {
+
+    private final List<Endpoint> endpoints = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new transport connected to this hub.
+     *
+     * @return the transport
+     */
+    public InvalidationTransport<K> endpoint() {
+        Endpoint endpoint = new Endpoint();
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    private final class Endpoint implements InvalidationTransport<K> {
+        private final List<Consumer<Collection<K>>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(Collection<K> keys) {
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint != this) {
+                    for (Consumer<Collection<K>> listener : endpoint.listeners) {
+                        listener.accept(keys);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void subscribe(Consumer<Collection<K>> listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void close() {
+            endpoints.remove(this);
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package org.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache wrapper reporting to JDK Flight Recorder and JMX.
+ * <p>
+ * Three kinds of JFR events are emitted, all in the "Cache" category:
+ * <ul>
+ *     <li>{@code org.cache.Operation}: a sample of {@code get} and {@code put} calls slower than the threshold, 1 ms by default.</li>
+ *     <li>{@code org.cache.Load}: every loader call made through {@link #get(Object, CacheLoader)}.</li>
+ *     <li>{@code org.cache.Statistics}: once per period while registered, with the hits, misses and evictions of the
+ *     period.</li>
+ *     <li>{@code org.cache.EvictionBurst}: an operation through this wrapper that made the wrapped cache evict at least
+ *     two entries, more than the one a put into a full cache replaces. This happens while the excess left by a capacity
+ *     reduction is drained, a few entries per operation.</li>
+ * </ul>
+ * When an event type is disabled, the only cost is a check of its enabled flag; hit, miss and load counters are
+ * striped and always maintained. {@link #register()} exposes them as a {@link CacheStatsMXBean} named
+ * {@code org.cache:type=Cache,name=<name>}. Size, capacity, evictions and eviction bursts are available when the wrapped
+ * cache is a {@link ResizableCache}.
+ * <p>
+ * The wrapper adds no synchronization to cache operations; it is as thread-safe as the wrapped cache. Capacity
+ * changes made through JMX synchronize on the wrapped cache, like {@link MemoryPressureController}, and so do the
+ * size, capacity and eviction count reads, so they never see a resize half done.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class InstrumentedCache<K, V> implements CacheService<K, V>, CacheStatsMXBean, Closeable {
+
+    private static final EventType OPERATION_EVENT = EventType.getEventType(OperationEvent.class);
+    private static final EventType LOAD_EVENT = EventType.getEventType(LoadEvent.class);
+    private static final EventType EVICTION_BURST_EVENT = EventType.getEventType(EvictionBurstEvent.class);
+
+    /**
+     * Fewest entries one operation must evict to emit an eviction burst event.
+     */
+    static final int EVICTION_BURST_THRESHOLD = 2;
+
+    private final String name;
+    private final CacheService<K, V> cache;
+    private final ResizableCache<K, V> resizable;
+    private final int sampleMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final Runnable statisticsHook = this::emitStatistics;
+    private ObjectName objectName;
+
+    private long rateEvictions;
+    private long rateNanos;
+
+    private long periodHits;
+    private long periodMisses;
+    private long periodEvictions;
+
+    /**
+     * Constructs an instrumented cache sampling one in 64 operations for slow operation events.
+     *
+     * @param name  the name of the cache, used in events and in the MBean name
+     * @param cache the cache to instrument
+     */
+    public InstrumentedCache(String name, CacheService<K, V> cache) {
+        this(name, cache, 64);
+    }
+
+    /**
+     * Constructs an instrumented cache.
+     *
+     * @param name         the name of the cache, used in events and in the MBean name
+     * @param cache        the cache to instrument
+     * @param sampleRatio  one in how many operations is timed for slow operation events, rounded up to a power of two
+     */
+    public InstrumentedCache(String name, CacheService<K, V> cache, int sampleRatio) {
+        if (sampleRatio <= 0) {
+            throw new IllegalArgumentException("sampleRatio must be positive: " + sampleRatio);
+        }
+        this.name = name;
+        this.cache = cache;
+        this.resizable = cache instanceof ResizableCache ? (ResizableCache<K, V>) cache : null;
+        this.sampleMask = (sampleRatio == 1 ? 1 : Integer.highestOneBit(sampleRatio - 1) << 1) - 1;
+        this.rateEvictions = getEvictionCount();
+        this.rateNanos = System.nanoTime();
+    }
+
+    /**
+     * Inserts the specified key-value pair into the wrapped cache.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        long evictions = evictionsBefore();
+        if (!sampled()) {
+            cache.put(id, value);
+        } else {
+            OperationEvent event = new OperationEvent();
+            event.begin();
+            cache.put(id, value);
+            event.end();
+            if (event.shouldCommit()) {
+                event.cacheName = name;
+                event.operation = "put";
+                event.key = String.valueOf(id);
+                event.commit();
+            }
+        }
+        reportEvictions(evictions, "put");
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped in the wrapped cache, or {@code null} if there is none.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        long evictions = evictionsBefore();
+        V value;
+        if (!sampled()) {
+            value = count(cache.get(id));
+        } else {
+            OperationEvent event = new OperationEvent();
+            event.begin();
+            value = count(cache.get(id));
+            event.end();
+            if (event.shouldCommit()) {
+                event.cacheName = name;
+                event.operation = "get";
+                event.key = String.valueOf(id);
+                event.hit = value != null;
+                event.commit();
+            }
+        }
+        reportEvictions(evictions, "get");
+        return value;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, loading and inserting it on a miss.
+     * Loader calls are counted and timed.
+     *
+     * @param id     the key whose associated value is to be returned
+     * @param loader computes the value when the key is not cached
+     * @return the cached or loaded value, or {@code null} if the loader returned {@code null}
+     */
+    @Override
+    public V get(K id, CacheLoader<? super K, ? extends V> loader) {
+        V value = get(id);
+        if (value != null) {
+            return value;
+        }
+        LoadEvent event = LOAD_EVENT.isEnabled() ? new LoadEvent() : null;
+        long start = System.nanoTime();
+        if (event != null) {
+            event.begin();
+        }
+        value = loader.load(id);
+        loadNanos.add(System.nanoTime() - start);
+        loads.increment();
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cacheName = name;
+                event.key = String.valueOf(id);
+                event.found = value != null;
+                event.commit();
+            }
+        }
+        if (value != null) {
+            put(id, value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the mapping for a key from the wrapped cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        long evictions = evictionsBefore();
+        cache.evict(id);
+        reportEvictions(evictions, "evict");
+    }
+
+    /**
+     * Inserts the specified value into the wrapped cache unless the key already has one. Not counted as a lookup.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        long evictions = evictionsBefore();
+        V result = cache.putIfAbsent(id, value);
+        reportEvictions(evictions, "putIfAbsent");
+        return result;
+    }
+
+    /**
+     * Inserts a prefetched value into the wrapped cache unless the key already has one. Not counted as a lookup.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        long evictions = evictionsBefore();
+        cache.prefetch(id, value);
+        reportEvictions(evictions, "prefetch");
+    }
+
+    /**
+     * Returns the value of the key in the wrapped cache, computing and inserting it if there is none. Not counted as a
+     * lookup.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        long evictions = evictionsBefore();
+        V result = cache.computeIfAbsent(id, mappingFunction);
+        reportEvictions(evictions, "computeIfAbsent");
+        return result;
+    }
+
+    /**
+     * Computes a new value from the key and its current value in the wrapped cache. A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long evictions = evictionsBefore();
+        V result = cache.compute(id, remappingFunction);
+        reportEvictions(evictions, "compute");
+        return result;
+    }
+
+    /**
+     * Inserts the specified value into the wrapped cache if the key has none, or else combines it with the current value.
+     * A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        long evictions = evictionsBefore();
+        V result = cache.merge(id, value, remappingFunction);
+        reportEvictions(evictions, "merge");
+        return result;
+    }
+
+    /**
+     * Replaces the value of the key in the wrapped cache only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        long evictions = evictionsBefore();
+        V result = cache.replace(id, value);
+        reportEvictions(evictions, "replace");
+        return result;
+    }
+
+    /**
+     * Registers the MBean of this cache with the platform MBean server and starts the periodic statistics event.
+     *
+     * @throws IllegalStateException if an MBean with the same name is already registered
+     */
+    public synchronized void register() {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName("org.cache:type=Cache,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register MBean for cache " + name, e);
+        }
+        FlightRecorder.addPeriodicEvent(StatisticsEvent.class, statisticsHook);
+    }
+
+    /**
+     * Unregisters the MBean and stops the periodic statistics event. The wrapped cache remains usable.
+     */
+    @Override
+    public synchronized void close() {
+        if (objectName == null) {
+            return;
+        }
+        FlightRecorder.removePeriodicEvent(statisticsHook);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException ignored) {
+            // Already unregistered by someone else
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSize() {
+        if (resizable == null) {
+            return -1;
+        }
+        synchronized (cache) {
+            return resizable.size();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        if (resizable == null) {
+            return -1;
+        }
+        synchronized (cache) {
+            return resizable.getCapacity();
+        }
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (resizable == null) {
+            throw new UnsupportedOperationException("Cache is not resizable: " + cache.getClass().getName());
+        }
+        // Called from JMX threads; locks the wrapped cache as MemoryPressureController does
+        synchronized (cache) {
+            resizable.setCapacity(capacity);
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    @Override
+    public double getAverageLoadMillis() {
+        long count = loads.sum();
+        return count == 0 ? 0 : loadNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        if (resizable == null) {
+            return -1;
+        }
+        synchronized (cache) {
+            return resizable.getEvictionCount();
+        }
+    }
+
+    @Override
+    public synchronized double getEvictionRate() {
+        long now = System.nanoTime();
+        double rate = now == rateNanos ? 0 : (getEvictionCount() - rateEvictions) * 1e9 / (now - rateNanos);
+        return Math.max(rate, 0);
+    }
+
+    @Override
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        loads.reset();
+        loadNanos.reset();
+        synchronized (this) {
+            rateEvictions = getEvictionCount();
+            rateNanos = System.nanoTime();
+        }
+    }
+
+    private boolean sampled() {
+        return OPERATION_EVENT.isEnabled() && (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    private long evictionsBefore() {
+        return resizable != null && EVICTION_BURST_EVENT.isEnabled() ? resizable.getEvictionCount() : -1;
+    }
+
+    private void reportEvictions(long before, String operation) {
+        if (before < 0) {
+            return;
+        }
+        long evicted = resizable.getEvictionCount() - before;
+        if (evicted >= EVICTION_BURST_THRESHOLD) {
+            EvictionBurstEvent event = new EvictionBurstEvent();
+            if (event.shouldCommit()) {
+                event.cacheName = name;
+                event.operation = operation;
+                event.evicted = evicted;
+                event.size = resizable.size();
+                event.capacity = resizable.getCapacity();
+                event.commit();
+            }
+        }
+    }
+
+    private V count(V value) {
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    private synchronized void emitStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long evictions = Math.max(getEvictionCount(), 0);
+        StatisticsEvent event = new StatisticsEvent();
+        event.cacheName = name;
+        event.size = getSize();
+        event.capacity = getCapacity();
+        event.hits = hitCount - periodHits;
+        event.misses = missCount - periodMisses;
+        event.evictions = evictions - periodEvictions;
+        event.commit();
+        periodHits = hitCount;
+        periodMisses = missCount;
+        periodEvictions = evictions;
+    }
+
+    @Name("org.cache.Operation")
+    @Label("Cache Operation")
+    @Category("Cache")
+    @Description("A sampled cache get or put that took longer than the threshold")
+    @Threshold("1 ms")
+    static class OperationEvent extends Event {
+        @Label("Cache")
+        String cacheName;
+        @Label("Operation")
+        String operation;
+        @Label("Key")
+        String key;
+        @Label("Hit")
+        boolean hit;
+    }
+
+    @Name("org.cache.Load")
+    @Label("Cache Load")
+    @Category("Cache")
+    @Description("A loader call made on a cache miss")
+    static class LoadEvent extends Event {
+        @Label("Cache")
+        String cacheName;
+        @Label("Key")
+        String key;
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("org.cache.EvictionBurst")
+    @Label("Cache Eviction Burst")
+    @Category("Cache")
+    @Description("A cache operation that evicted several entries, such as while draining the excess of a capacity reduction")
+    static class EvictionBurstEvent extends Event {
+        @Label("Cache")
+        String cacheName;
+        @Label("Operation")
+        String operation;
+        @Label("Evicted Entries")
+        long evicted;
+        @Label("Size")
+        int size;
+        @Label("Capacity")
+        int capacity;
+    }
+
+    @Name("org.cache.Statistics")
+    @Label("Cache Statistics")
+    @Category("Cache")
+    @Description("Cache activity during the last period")
+    @Period("1 s")
+    @StackTrace(false)
+    static class StatisticsEvent extends Event {
+        @Label("Cache")
+        String cacheName;
+        @Label("Size")
+        int size;
+        @Label("Capacity")
+        int capacity;
+        @Label("Hits")
+        long hits;
+        @Label("Misses")
+        long misses;
+        @Label("Evictions")
+        long evictions;
+    }
+}
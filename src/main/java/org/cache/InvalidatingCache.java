@@ -0,0 +1,317 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Near-cache wrapper keeping several cache instances, usually in different JVMs, free of stale entries.
+ * <p>
+ * Every local {@code put} or {@code evict} is applied to the wrapped cache and the key is queued for
+ * invalidation on all peers. Queued keys are coalesced, so a key written many times is sent once, and
+ * published through the {@link InvalidationTransport} in batches: when the batch size is reached, or at the
+ * latest after the flush delay. Batches received from peers evict the keys from the wrapped cache without
+ * being published again.
+ * <p>
+ * A batch the transport fails to send is queued again and retried after the flush delay. Failures of background
+ * publishes are passed to the uncaught exception handler of the publisher thread. After {@link #close()}, writes are
+ * only applied to the wrapped cache.
+ * <p>
+ * Access to the wrapped cache is synchronized, since invalidations arrive on transport threads.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class InvalidatingCache<K, V> implements CacheService<K, V>, Closeable {
+
+    private final CacheService<K, V> cache;
+    private final InvalidationTransport<K> transport;
+    private final int maxBatchSize;
+    private final long flushDelayMillis;
+    private final ScheduledThreadPoolExecutor publisher;
+
+    /**
+     * Keys waiting to be published, guarded by itself.
+     */
+    private final Set<K> pending = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    /**
+     * Constructs an invalidating wrapper and subscribes it to the transport.
+     *
+     * @param cache            the local cache
+     * @param transport        the transport connecting the peers
+     * @param maxBatchSize     the number of distinct keys that triggers an immediate publish
+     * @param flushDelayMillis the longest time a key waits before being published
+     */
+    public InvalidatingCache(CacheService<K, V> cache, InvalidationTransport<K> transport, int maxBatchSize, long flushDelayMillis) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.cache = cache;
+        this.transport = transport;
+        this.maxBatchSize = maxBatchSize;
+        this.flushDelayMillis = flushDelayMillis;
+        this.publisher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        transport.subscribe(this::invalidateLocally);
+    }
+
+    /**
+     * Inserts the specified key-value pair and queues the key for invalidation on the peers.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        synchronized (cache) {
+            cache.put(id, value);
+        }
+        enqueue(id);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped in the local cache, or {@code null} if there is none.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        synchronized (cache) {
+            return cache.get(id);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key and queues the key for invalidation on the peers.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        synchronized (cache) {
+            cache.evict(id);
+        }
+        enqueue(id);
+    }
+
+    /**
+     * Atomically inserts the specified value unless the key already has one, and queues the key for invalidation on
+     * the peers if it was inserted.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        V existing;
+        synchronized (cache) {
+            existing = cache.putIfAbsent(id, value);
+        }
+        if (existing == null) {
+            enqueue(id);
+        }
+        return existing;
+    }
+
+    /**
+     * Atomically inserts a prefetched value into the local cache unless the key already has one. The value was read
+     * from the source rather than changed, so the peers are not invalidated.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        synchronized (cache) {
+            cache.prefetch(id, value);
+        }
+    }
+
+    /**
+     * Atomically returns the value of the key, computing and inserting it if there is none, and queues the key for
+     * invalidation on the peers if a value was computed.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        boolean[] computed = new boolean[1];
+        V value;
+        synchronized (cache) {
+            value = cache.computeIfAbsent(id, key -> {
+                computed[0] = true;
+                return mappingFunction.apply(key);
+            });
+        }
+        if (computed[0] && value != null) {
+            enqueue(id);
+        }
+        return value;
+    }
+
+    /**
+     * Atomically computes a new value from the key and its current value and queues the key for invalidation on the
+     * peers. A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V value;
+        synchronized (cache) {
+            value = cache.compute(id, remappingFunction);
+        }
+        enqueue(id);
+        return value;
+    }
+
+    /**
+     * Atomically inserts the specified value if the key has none, or else combines it with the current value, and
+     * queues the key for invalidation on the peers. A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V merged;
+        synchronized (cache) {
+            merged = cache.merge(id, value, remappingFunction);
+        }
+        enqueue(id);
+        return merged;
+    }
+
+    /**
+     * Atomically replaces the value of the key only if it has one, and queues the key for invalidation on the peers
+     * if it was replaced.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        V previous;
+        synchronized (cache) {
+            previous = cache.replace(id, value);
+        }
+        if (previous != null) {
+            enqueue(id);
+        }
+        return previous;
+    }
+
+    /**
+     * Publishes every queued key now. If the transport fails to send them, the keys are queued again and retried after
+     * the flush delay.
+     *
+     * @throws UncheckedIOException     if the transport failed to send the keys
+     * @throws IllegalArgumentException if the transport cannot carry some keys, which are dropped
+     */
+    public void flush() {
+        List<K> batch;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        try {
+            transport.publish(batch);
+        } catch (UncheckedIOException e) {
+            synchronized (pending) {
+                pending.addAll(batch);
+                if (!flushScheduled && !publisher.isShutdown()) {
+                    flushScheduled = true;
+                    publisher.schedule(this::flushInBackground, flushDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Publishes the queued keys, stops the publisher and closes the transport, even if publishing fails. Later writes
+     * are not published.
+     *
+     * @throws IOException if closing the transport fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (pending) {
+            publisher.shutdown();
+        }
+        try {
+            publisher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            transport.close();
+        }
+    }
+
+    private void enqueue(K id) {
+        synchronized (pending) {
+            if (publisher.isShutdown()) {
+                return;
+            }
+            pending.add(id);
+            if (pending.size() == maxBatchSize) {
+                flushScheduled = true;
+                publisher.execute(this::flushInBackground);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                publisher.schedule(this::flushInBackground, flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Flushes on the publisher thread, where an exception would otherwise be kept unseen in the task's future.
+     */
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private void invalidateLocally(Collection<K> keys) {
+        synchronized (cache) {
+            for (K key : keys) {
+                cache.evict(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Carries batches of invalidated keys between cache instances, see {@link InvalidatingCache}.
+ * <p>
+ * A transport never delivers a batch back to the instance that published it.
+ *
+ * @param <K> the type of keys being invalidated
+ */
+public interface InvalidationTransport<K> extends Closeable {
+
+    /**
+     * Sends a batch of invalidated keys to every peer.
+     *
+     * @param keys the keys whose cached values are stale
+     * @throws java.io.UncheckedIOException if the batch could not be sent; publishing it again may succeed
+     * @throws IllegalArgumentException     if the transport cannot carry some keys; the other keys are still sent
+     */
+    void publish(Collection<K> keys);
+
+    /**
+     * Registers the listener receiving batches published by peers.
+     * Listeners may be called from a transport thread.
+     *
+     * @param listener the listener
+     */
+    void subscribe(Consumer<Collection<K>> listener);
+}
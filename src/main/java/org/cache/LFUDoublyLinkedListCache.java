@@ -2,20 +2,43 @@ package org.cache;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A class representing a Least Frequently Used (LFU) Cache using a doubly linked list.
+ * <p>
+ * Nodes with the same frequency are kept in a bucket, and the buckets themselves form a doubly linked
+ * list ordered by frequency, so the least frequently used bucket is always the first one. Each node
+ * references its bucket directly, which means a hit needs no frequency lookup and no boxing.
+ * Empty buckets are unlinked and kept in a small pool for reuse, so hits do not allocate.
  *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
+public class LFUDoublyLinkedListCache<K, V> implements ResizableCache<K, V> {
 
-    private final int capacity;
+    private int capacity;
     private int size;
+    private long evictionCount;
     private final Map<K, Node<K, V>> cache;
-    private final Map<Integer, DoublyLinkedList<K, V>> frequencyMap;
-    private int minFrequency;
+
+    /**
+     * Creates nodes without a value for {@link HashMap#computeIfAbsent}; the value is set once the node is known to be
+     * new. Kept in a field so that no lambda capturing the value is allocated per call.
+     */
+    private final Function<K, Node<K, V>> nodeFactory;
+
+    /**
+     * Sentinel of the circular list of frequency buckets. {@code buckets.next} is the bucket with the
+     * lowest frequency, {@code buckets.prev} the one with the highest.
+     */
+    private final DoublyLinkedList<K, V> buckets;
+
+    /**
+     * Empty buckets kept for reuse, chained through {@link DoublyLinkedList#next}.
+     */
+    private DoublyLinkedList<K, V> bucketPool;
 
     /**
      * Constructs an LFU Cache with the specified capacity.
@@ -26,8 +49,10 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
         this.capacity = capacity;
         this.size = 0;
         this.cache = new HashMap<>();
-        this.frequencyMap = new HashMap<>();
-        this.minFrequency = 0;
+        this.nodeFactory = key -> new Node<>(key, null);
+        this.buckets = new DoublyLinkedList<>(0);
+        buckets.next = buckets;
+        buckets.prev = buckets;
     }
 
     /**
@@ -39,27 +64,18 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void put(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         if (capacity <= 0) return;
 
-        if (cache.containsKey(id)) {
-            Node<K, V> node = cache.get(id);
+        Node<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.bucket == null) {
             node.value = value;
-            get(id); // Increase frequency
+            linkNew(node, 1);
         } else {
-            if (size == capacity) {
-                // Evict the least frequently used item
-                DoublyLinkedList<K, V> list = frequencyMap.get(minFrequency);
-                Node<K, V> nodeToEvict = list.tail.prev;
-                list.remove(nodeToEvict);
-                cache.remove(nodeToEvict.key);
-                size--;
-            }
-            // Add new item
-            Node<K, V> newNode = new Node<>(id, value);
-            cache.put(id, newNode);
-            frequencyMap.computeIfAbsent(1, k -> new DoublyLinkedList<>()).add(newNode);
-            minFrequency = 1;
-            size++;
+            node.value = value;
+            increment(node);
         }
     }
 
@@ -72,19 +88,13 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public V get(K id) {
-        if (!cache.containsKey(id)) return null;
-
-        Node<K, V> node = cache.get(id);
-        int currentFreq = node.frequency;
-        DoublyLinkedList<K, V> list = frequencyMap.get(currentFreq);
-        list.remove(node);
-
-        if (currentFreq == minFrequency && list.size == 0) {
-            minFrequency++;
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
         }
+        Node<K, V> node = cache.get(id);
+        if (node == null) return null;
 
-        node.frequency++;
-        frequencyMap.computeIfAbsent(node.frequency, k -> new DoublyLinkedList<>()).add(node);
+        increment(node);
         return node.value;
     }
 
@@ -95,23 +105,371 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void evict(K id) {
-        if (!cache.containsKey(id)) return;
+        Node<K, V> node = cache.remove(id);
+        if (node == null) return;
+
+        unlink(node);
+        size--;
+    }
+
+    /**
+     * Inserts the specified value unless the key already has one, with a single lookup.
+     * An existing entry is counted as used once more.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.bucket == null) {
+            node.value = value;
+            linkNew(node, 1);
+            return null;
+        }
+        increment(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none, with a single lookup.
+     * The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.computeIfAbsent(id, key -> {
+            V value = mappingFunction.apply(key);
+            return value == null ? null : new Node<>(key, value);
+        });
+        if (node == null) {
+            return null;
+        }
+        if (node.bucket == null) {
+            linkNew(node, 1);
+        } else {
+            increment(node);
+        }
+        return node.value;
+    }
 
+    /**
+     * Computes a new value from the key and its current value with a single lookup.
+     * A {@code null} result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.compute(id, (key, current) ->
+                update(key, current, remappingFunction.apply(key, current == null ? null : current.value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, with a single lookup.
+     * A {@code null} combination removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.compute(id, (key, current) ->
+                update(key, current, current == null ? value : remappingFunction.apply(current.value, value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, with a single lookup.
+     * The entry is counted as used once more.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         Node<K, V> node = cache.get(id);
-        int currentFreq = node.frequency;
-        DoublyLinkedList<K, V> list = frequencyMap.get(currentFreq);
-        list.remove(node);
-        cache.remove(id);
+        if (node == null) {
+            return null;
+        }
+        V previous = node.value;
+        node.value = value;
+        increment(node);
+        return previous;
+    }
 
-        if (currentFreq == minFrequency && list.size == 0) {
-            minFrequency++;
+    /**
+     * Inserts a prefetched value with frequency 0 unless the key already has one, so that unread prefetches are
+     * evicted before any entry that has been read, oldest first. Its first read raises it to frequency 1. When the
+     * cache is full, the oldest unread prefetch is evicted; if every entry has been read, the prefetch is dropped, so
+     * wrong guesses never evict the working set. An existing entry is left untouched.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
         }
+        if (capacity <= 0) return;
+
+        Node<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.bucket == null) {
+            node.value = value;
+            linkNew(node, 0);
+        }
+    }
+
+    /**
+     * Tells whether the key has a mapping, without counting as an access.
+     *
+     * @param id the key to look up
+     * @return {@code true} if the cache contains a mapping for the key
+     */
+    boolean containsKey(K id) {
+        return cache.containsKey(id);
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return size;
+    }
 
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, the least frequently used entries beyond the
+     * capacity are evicted a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts least frequently used entries while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        while (evicted < maxEvictions && size > Math.max(capacity, 0)) {
+            removeLeastFrequentlyUsed();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Applies the result of a computation inside {@link HashMap#compute}, without touching the map: returns a new
+     * unlinked node, the updated node counted as used once more, or {@code null} after unlinking the node to remove it.
+     *
+     * @param id    the key
+     * @param node  the node of the key, or {@code null} if it has none
+     * @param value the new value, or {@code null} to remove the key
+     * @return the node to keep in the map, or {@code null} if the key has none
+     */
+    private Node<K, V> update(K id, Node<K, V> node, V value) {
+        if (node == null) {
+            return value == null ? null : new Node<>(id, value);
+        }
+        if (value == null) {
+            unlink(node);
+            size--;
+            return null;
+        }
+        node.value = value;
+        increment(node);
+        return node;
+    }
+
+    /**
+     * Links the node left in the map by a computation with frequency 1 if it was just created, and returns its value.
+     *
+     * @param node the node of the key, or {@code null} if it has none
+     * @return the value of the node, or {@code null} if there is none
+     */
+    private V linkIfNew(Node<K, V> node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.bucket == null) {
+            linkNew(node, 1);
+        }
+        return node.value;
+    }
+
+    /**
+     * Links a node just added to the map with the given frequency, 0 or 1, evicting the least frequently used entry
+     * if the cache is full. The node is dropped if the capacity is zero, or if it is a prefetch and the cache is full
+     * of entries that have been read.
+     *
+     * @param node      the new node, not linked yet
+     * @param frequency the initial frequency, lower than or equal to that of every other bucket
+     */
+    private void linkNew(Node<K, V> node, int frequency) {
+        if (capacity <= 0) {
+            cache.remove(node.key);
+            return;
+        }
+        if (size >= capacity) {
+            if (frequency == 0 && buckets.next.frequency != 0) {
+                cache.remove(node.key);
+                return;
+            }
+            removeLeastFrequentlyUsed();
+        }
+        DoublyLinkedList<K, V> predecessor = buckets;
+        DoublyLinkedList<K, V> bucket = buckets.next;
+        if (bucket != buckets && bucket.frequency < frequency) {
+            // Frequency 1 goes after the bucket of unread prefetches
+            predecessor = bucket;
+            bucket = bucket.next;
+        }
+        if (bucket == buckets || bucket.frequency != frequency) {
+            bucket = linkBucketAfter(predecessor, frequency);
+        }
+        bucket.add(node);
+        size++;
+    }
+
+    /**
+     * Evicts the least recently used node of the lowest frequency bucket.
+     */
+    private void removeLeastFrequentlyUsed() {
+        removeLeastRecentlyUsed(buckets.next);
+    }
+
+    /**
+     * Evicts the least recently used node of a bucket.
+     *
+     * @param bucket the bucket to evict from
+     */
+    private void removeLeastRecentlyUsed(DoublyLinkedList<K, V> bucket) {
+        Node<K, V> nodeToEvict = bucket.tail.prev;
+        unlink(nodeToEvict);
+        cache.remove(nodeToEvict.key);
         size--;
+        evictionCount++;
+    }
+
+    /**
+     * Moves the node to the bucket of the next frequency. When the node is alone in its bucket and no
+     * bucket exists for the next frequency, the bucket is simply relabelled instead of being replaced.
+     *
+     * @param node the node whose frequency is to be increased
+     */
+    private void increment(Node<K, V> node) {
+        DoublyLinkedList<K, V> current = node.bucket;
+        int nextFrequency = current.frequency + 1;
+        DoublyLinkedList<K, V> next = current.next;
+        boolean nextExists = next != buckets && next.frequency == nextFrequency;
+
+        if (current.size == 1 && !nextExists) {
+            current.frequency = nextFrequency;
+            return;
+        }
+        if (!nextExists) {
+            next = linkBucketAfter(current, nextFrequency);
+        }
+        unlink(node);
+        next.add(node);
     }
 
     /**
-     * Node class representing a key-value pair with a frequency counter.
+     * Removes the node from its bucket and releases the bucket if it became empty.
+     *
+     * @param node the node to be removed
+     */
+    private void unlink(Node<K, V> node) {
+        DoublyLinkedList<K, V> bucket = node.bucket;
+        bucket.remove(node);
+        if (bucket.size == 0) {
+            bucket.prev.next = bucket.next;
+            bucket.next.prev = bucket.prev;
+            bucket.prev = null;
+            bucket.next = bucketPool;
+            bucketPool = bucket;
+        }
+    }
+
+    /**
+     * Links a bucket for the given frequency right after {@code predecessor}, taking it from the pool when possible.
+     *
+     * @param predecessor the bucket after which the new bucket is linked
+     * @param frequency   the frequency of the new bucket
+     * @return the linked bucket
+     */
+    private DoublyLinkedList<K, V> linkBucketAfter(DoublyLinkedList<K, V> predecessor, int frequency) {
+        DoublyLinkedList<K, V> bucket = bucketPool;
+        if (bucket != null) {
+            bucketPool = bucket.next;
+            bucket.frequency = frequency;
+        } else {
+            bucket = new DoublyLinkedList<>(frequency);
+        }
+        bucket.prev = predecessor;
+        bucket.next = predecessor.next;
+        predecessor.next.prev = bucket;
+        predecessor.next = bucket;
+        return bucket;
+    }
+
+    /**
+     * Node class representing a key-value pair and the frequency bucket it belongs to.
      *
      * @param <T> the type of key
      * @param <V> the type of value
@@ -119,12 +477,12 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
     private static class Node<T, V> {
         T key;
         V value;
-        int frequency;
+        DoublyLinkedList<T, V> bucket;
         Node<T, V> prev;
         Node<T, V> next;
 
         /**
-         * Constructs a new node with the specified key and value. Initializes the frequency to 1.
+         * Constructs a new node with the specified key and value.
          *
          * @param key   the key of the node
          * @param value the value of the node
@@ -132,12 +490,12 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
         Node(T key, V value) {
             this.key = key;
             this.value = value;
-            this.frequency = 1;
         }
     }
 
     /**
-     * DoublyLinkedList class representing a list of nodes. Provides methods to add and remove nodes.
+     * DoublyLinkedList class representing a bucket of nodes sharing the same frequency. Provides methods
+     * to add and remove nodes. Buckets are themselves linked in ascending order of frequency.
      *
      * @param <T> the type of key
      * @param <V> the type of value
@@ -146,16 +504,22 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
         Node<T, V> head;
         Node<T, V> tail;
         int size;
+        int frequency;
+        DoublyLinkedList<T, V> prev;
+        DoublyLinkedList<T, V> next;
 
         /**
          * Constructs an empty doubly linked list with dummy head and tail nodes.
+         *
+         * @param frequency the access frequency shared by the nodes of this list
          */
-        DoublyLinkedList() {
+        DoublyLinkedList(int frequency) {
             this.head = new Node<>(null, null);
             this.tail = new Node<>(null, null);
             head.next = tail;
             tail.prev = head;
             this.size = 0;
+            this.frequency = frequency;
         }
 
         /**
@@ -169,6 +533,7 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
             node.prev = head;
             node.next = next;
             next.prev = node;
+            node.bucket = this;
             size++;
         }
 
@@ -186,4 +551,3 @@ public class LFUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
         }
     }
 }
-
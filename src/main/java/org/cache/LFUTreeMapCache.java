@@ -3,19 +3,41 @@ package org.cache;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A class representing a Least Frequently Used (LFU) Cache using a HashMap and a TreeMap.
+ * <p>
+ * Each frequency maps to a bucket holding its nodes in an intrusive doubly linked list, least recently
+ * used last. Nodes reference their bucket directly and emptied buckets are pooled for reuse.
  *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
+public class LFUTreeMapCache<K, V> implements ResizableCache<K, V> {
 
-    private final int capacity;
+    private int capacity;
     private int size;
+    private long evictionCount;
     private final Map<K, CacheNode<K, V>> cache;
-    private final TreeMap<Integer, Map<K, CacheNode<K, V>>> frequencyMap;
+    private final TreeMap<Integer, Bucket<K, V>> frequencyMap;
+
+    /**
+     * Creates buckets for {@link TreeMap#computeIfAbsent}; kept in a field so that no lambda is allocated per call.
+     */
+    private final Function<Integer, Bucket<K, V>> bucketFactory;
+
+    /**
+     * Creates nodes without a value for {@link HashMap#computeIfAbsent}; the value is set once the node is known to be
+     * new. Kept in a field so that no lambda capturing the value is allocated per call.
+     */
+    private final Function<K, CacheNode<K, V>> nodeFactory;
+
+    /**
+     * Empty buckets kept for reuse, chained through {@link Bucket#nextFree}.
+     */
+    private Bucket<K, V> bucketPool;
 
     /**
      * Constructs an LFU Cache with the specified capacity.
@@ -27,6 +49,8 @@ public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
         this.size = 0;
         this.cache = new HashMap<>();
         this.frequencyMap = new TreeMap<>();
+        this.bucketFactory = this::takeBucket;
+        this.nodeFactory = key -> new CacheNode<>(key, null);
     }
 
     /**
@@ -38,30 +62,18 @@ public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void put(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         if (capacity <= 0) return;
 
-        if (cache.containsKey(id)) {
-            CacheNode<K, V> node = cache.get(id);
+        CacheNode<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.bucket == null) {
             node.value = value;
-            get(id); // Increase frequency
+            linkNew(node);
         } else {
-            if (size == capacity) {
-                // Evict the least frequently used item
-                Map.Entry<Integer, Map<K, CacheNode<K, V>>> entry = frequencyMap.firstEntry();
-                Map<K, CacheNode<K, V>> nodes = entry.getValue();
-                CacheNode<K, V> nodeToEvict = nodes.values().iterator().next();
-                nodes.remove(nodeToEvict.key);
-                if (nodes.isEmpty()) {
-                    frequencyMap.pollFirstEntry();
-                }
-                cache.remove(nodeToEvict.key);
-                size--;
-            }
-            // Add new item
-            CacheNode<K, V> newNode = new CacheNode<>(id, value);
-            cache.put(id, newNode);
-            frequencyMap.computeIfAbsent(1, k -> new HashMap<>()).put(id, newNode);
-            size++;
+            node.value = value;
+            increment(node);
         }
     }
 
@@ -74,19 +86,13 @@ public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public V get(K id) {
-        if (!cache.containsKey(id)) return null;
-
-        CacheNode<K, V> node = cache.get(id);
-        int currentFreq = node.frequency;
-        Map<K, CacheNode<K, V>> nodes = frequencyMap.get(currentFreq);
-        nodes.remove(id);
-
-        if (nodes.isEmpty()) {
-            frequencyMap.remove(currentFreq);
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
         }
+        CacheNode<K, V> node = cache.get(id);
+        if (node == null) return null;
 
-        node.frequency++;
-        frequencyMap.computeIfAbsent(node.frequency, k -> new HashMap<>()).put(id, node);
+        increment(node);
         return node.value;
     }
 
@@ -97,23 +103,295 @@ public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void evict(K id) {
-        if (!cache.containsKey(id)) return;
+        CacheNode<K, V> node = cache.remove(id);
+        if (node == null) return;
+
+        unlink(node);
+        size--;
+    }
+
+    /**
+     * Inserts the specified value unless the key already has one, with a single lookup.
+     * An existing entry is counted as used once more.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        CacheNode<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.bucket == null) {
+            node.value = value;
+            linkNew(node);
+            return null;
+        }
+        increment(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none, with a single lookup.
+     * The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        CacheNode<K, V> node = cache.computeIfAbsent(id, key -> {
+            V value = mappingFunction.apply(key);
+            return value == null ? null : new CacheNode<>(key, value);
+        });
+        if (node == null) {
+            return null;
+        }
+        if (node.bucket == null) {
+            linkNew(node);
+        } else {
+            increment(node);
+        }
+        return node.value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value with a single lookup.
+     * A {@code null} result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        CacheNode<K, V> node = cache.compute(id, (key, current) ->
+                update(key, current, remappingFunction.apply(key, current == null ? null : current.value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, with a single lookup.
+     * A {@code null} combination removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        CacheNode<K, V> node = cache.compute(id, (key, current) ->
+                update(key, current, current == null ? value : remappingFunction.apply(current.value, value)));
+        return linkIfNew(node);
+    }
 
+    /**
+     * Replaces the value of the key only if it has one, with a single lookup.
+     * The entry is counted as used once more.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         CacheNode<K, V> node = cache.get(id);
-        int currentFreq = node.frequency;
-        Map<K, CacheNode<K, V>> nodes = frequencyMap.get(currentFreq);
-        nodes.remove(id);
+        if (node == null) {
+            return null;
+        }
+        V previous = node.value;
+        node.value = value;
+        increment(node);
+        return previous;
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, the least frequently used entries beyond the
+     * capacity are evicted a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts least frequently used entries while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        while (evicted < maxEvictions && size > Math.max(capacity, 0)) {
+            removeLeastFrequentlyUsed();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Applies the result of a computation inside {@link HashMap#compute}, without touching the map: returns a new
+     * unlinked node, the updated node counted as used once more, or {@code null} after unlinking the node to remove it.
+     *
+     * @param id    the key
+     * @param node  the node of the key, or {@code null} if it has none
+     * @param value the new value, or {@code null} to remove the key
+     * @return the node to keep in the map, or {@code null} if the key has none
+     */
+    private CacheNode<K, V> update(K id, CacheNode<K, V> node, V value) {
+        if (node == null) {
+            return value == null ? null : new CacheNode<>(id, value);
+        }
+        if (value == null) {
+            unlink(node);
+            size--;
+            return null;
+        }
+        node.value = value;
+        increment(node);
+        return node;
+    }
+
+    /**
+     * Links the node left in the map by a computation if it was just created, and returns its value.
+     *
+     * @param node the node of the key, or {@code null} if it has none
+     * @return the value of the node, or {@code null} if there is none
+     */
+    private V linkIfNew(CacheNode<K, V> node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.bucket == null) {
+            linkNew(node);
+        }
+        return node.value;
+    }
 
-        if (nodes.isEmpty()) {
-            frequencyMap.remove(currentFreq);
+    /**
+     * Links a node just added to the map with frequency 1, evicting the least frequently used entry if the cache is
+     * full. The node is dropped if the capacity is zero.
+     *
+     * @param node the new node, not linked yet
+     */
+    private void linkNew(CacheNode<K, V> node) {
+        if (capacity <= 0) {
+            cache.remove(node.key);
+            return;
         }
+        if (size >= capacity) {
+            removeLeastFrequentlyUsed();
+        }
+        frequencyMap.computeIfAbsent(1, bucketFactory).add(node);
+        size++;
+    }
 
-        cache.remove(id);
+    /**
+     * Evicts the least recently used node of the lowest frequency.
+     */
+    private void removeLeastFrequentlyUsed() {
+        CacheNode<K, V> nodeToEvict = frequencyMap.firstEntry().getValue().tail.prev;
+        unlink(nodeToEvict);
+        cache.remove(nodeToEvict.key);
         size--;
+        evictionCount++;
+    }
+
+    /**
+     * Moves the node to the bucket of the next frequency.
+     *
+     * @param node the node whose frequency is to be increased
+     */
+    private void increment(CacheNode<K, V> node) {
+        int nextFrequency = node.bucket.frequency + 1;
+        unlink(node);
+        frequencyMap.computeIfAbsent(nextFrequency, bucketFactory).add(node);
+    }
+
+    /**
+     * Removes the node from its bucket, dropping the bucket from the frequency map if it became empty.
+     *
+     * @param node the node to be removed
+     */
+    private void unlink(CacheNode<K, V> node) {
+        Bucket<K, V> bucket = node.bucket;
+        bucket.remove(node);
+        if (bucket.size == 0) {
+            frequencyMap.remove(bucket.frequency);
+            bucket.nextFree = bucketPool;
+            bucketPool = bucket;
+        }
+    }
+
+    /**
+     * Returns an empty bucket for the given frequency, taking it from the pool when possible.
+     *
+     * @param frequency the frequency of the bucket
+     * @return an empty bucket
+     */
+    private Bucket<K, V> takeBucket(Integer frequency) {
+        Bucket<K, V> bucket = bucketPool;
+        if (bucket == null) {
+            bucket = new Bucket<>();
+        } else {
+            bucketPool = bucket.nextFree;
+            bucket.nextFree = null;
+        }
+        bucket.frequency = frequency;
+        return bucket;
     }
 
     /**
-     * Node class representing a key-value pair with a frequency counter.
+     * Node class representing a key-value pair and the frequency bucket it belongs to.
      *
      * @param <T> the type of key
      * @param <V> the type of value
@@ -121,10 +399,12 @@ public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
     private static class CacheNode<T, V> {
         T key;
         V value;
-        int frequency;
+        Bucket<T, V> bucket;
+        CacheNode<T, V> prev;
+        CacheNode<T, V> next;
 
         /**
-         * Constructs a new node with the specified key and value. Initializes the frequency to 1.
+         * Constructs a new node with the specified key and value.
          *
          * @param key   the key of the node
          * @param value the value of the node
@@ -132,8 +412,58 @@ public class LFUTreeMapCache<K, V> implements CacheService<K, V> {
         CacheNode(T key, V value) {
             this.key = key;
             this.value = value;
-            this.frequency = 1;
         }
     }
-}
 
+    /**
+     * Bucket class holding the nodes of one frequency in a doubly linked list, most recently used first.
+     *
+     * @param <T> the type of key
+     * @param <V> the type of value
+     */
+    private static class Bucket<T, V> {
+        final CacheNode<T, V> head;
+        final CacheNode<T, V> tail;
+        int size;
+        int frequency;
+        Bucket<T, V> nextFree;
+
+        /**
+         * Constructs an empty bucket with dummy head and tail nodes.
+         */
+        Bucket() {
+            this.head = new CacheNode<>(null, null);
+            this.tail = new CacheNode<>(null, null);
+            head.next = tail;
+            tail.prev = head;
+        }
+
+        /**
+         * Adds a node to the front of the bucket.
+         *
+         * @param node the node to be added
+         */
+        void add(CacheNode<T, V> node) {
+            CacheNode<T, V> next = head.next;
+            head.next = node;
+            node.prev = head;
+            node.next = next;
+            next.prev = node;
+            node.bucket = this;
+            size++;
+        }
+
+        /**
+         * Removes a node from the bucket.
+         *
+         * @param node the node to be removed
+         */
+        void remove(CacheNode<T, V> node) {
+            CacheNode<T, V> prev = node.prev;
+            CacheNode<T, V> next = node.next;
+            prev.next = next;
+            next.prev = prev;
+            size--;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.cache;
 
 import java.util.HashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * LRU (Least Recently Used) Cache implementation using a custom doubly linked list and {@link HashMap}.
@@ -9,18 +11,29 @@ import java.util.HashMap;
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
+public class LRUDoublyLinkedListCache<K, V> implements ResizableCache<K, V> {
 
     /**
      * The maximum number of elements the cache can hold.
      */
-    private final int capacity;
+    private int capacity;
+
+    /**
+     * The number of entries evicted to respect the capacity.
+     */
+    private long evictionCount;
 
     /**
      * The HashMap that stores the cache entries.
      */
     private final HashMap<K, Node<K, V>> cacheMap;
 
+    /**
+     * Creates nodes without a value for {@link HashMap#computeIfAbsent}; the value is set once the node is known to be
+     * new. Kept in a field so that no lambda capturing the value is allocated per call.
+     */
+    private final Function<K, Node<K, V>> nodeFactory;
+
     /**
      * Dummy head of the doubly linked list.
      */
@@ -31,6 +44,12 @@ public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     private Node<K, V> tail;
 
+    /**
+     * The latest unread prefetched node, heading the unread prefetched nodes at the tail end of the list, or
+     * {@code tail} if there are none.
+     */
+    private Node<K, V> prefetched;
+
     /**
      * Constructs a new LRUCacheNodeBased with the specified capacity.
      *
@@ -39,10 +58,12 @@ public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
     public LRUDoublyLinkedListCache(int capacity) {
         this.capacity = capacity;
         this.cacheMap = new HashMap<>();
+        this.nodeFactory = key -> new Node<>(key, null);
         this.head = new Node<>(null, null);
         this.tail = new Node<>(null, null);
         head.next = tail;
         tail.prev = head;
+        this.prefetched = tail;
     }
 
     /**
@@ -55,19 +76,19 @@ public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void put(K id, V value) {
-        if (cacheMap.containsKey(id)) {
-            Node<K, V> node = cacheMap.get(id);
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        if (capacity <= 0) return;
+
+        Node<K, V> node = cacheMap.computeIfAbsent(id, nodeFactory);
+        if (node.prev == null) {
+            node.value = value;
+            linkNew(node);
+        } else {
             node.value = value;
             removeNode(node);
             addNodeToHead(node);
-        } else {
-            if (cacheMap.size() == capacity) {
-                cacheMap.remove(tail.prev.key);
-                removeNode(tail.prev);
-            }
-            Node<K, V> newNode = new Node<>(id, value);
-            cacheMap.put(id, newNode);
-            addNodeToHead(newNode);
         }
     }
 
@@ -80,13 +101,16 @@ public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public V get(K id) {
-        if (cacheMap.containsKey(id)) {
-            Node<K, V> node = cacheMap.get(id);
-            removeNode(node);
-            addNodeToHead(node);
-            return node.value;
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cacheMap.get(id);
+        if (node == null) {
+            return null;
         }
-        return null;
+        removeNode(node);
+        addNodeToHead(node);
+        return node.value;
     }
 
     /**
@@ -96,11 +120,293 @@ public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void evict(K id) {
-        if (cacheMap.containsKey(id)) {
-            Node<K, V> node = cacheMap.get(id);
+        Node<K, V> node = cacheMap.remove(id);
+        if (node != null) {
+            removeNode(node);
+        }
+    }
+
+    /**
+     * Inserts the specified value unless the key already has one, with a single lookup.
+     * An existing entry is marked as recently used.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cacheMap.computeIfAbsent(id, nodeFactory);
+        if (node.prev == null) {
+            node.value = value;
+            linkNew(node);
+            return null;
+        }
+        removeNode(node);
+        addNodeToHead(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none, with a single lookup.
+     * The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cacheMap.computeIfAbsent(id, key -> {
+            V value = mappingFunction.apply(key);
+            return value == null ? null : new Node<>(key, value);
+        });
+        if (node == null) {
+            return null;
+        }
+        if (node.prev == null) {
+            linkNew(node);
+        } else {
             removeNode(node);
-            cacheMap.remove(id);
+            addNodeToHead(node);
+        }
+        return node.value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value with a single lookup.
+     * A {@code null} result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
         }
+        Node<K, V> node = cacheMap.compute(id, (key, current) ->
+                update(key, current, remappingFunction.apply(key, current == null ? null : current.value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, with a single lookup.
+     * A {@code null} combination removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cacheMap.compute(id, (key, current) ->
+                update(key, current, current == null ? value : remappingFunction.apply(current.value, value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, with a single lookup, and marks it as recently used.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cacheMap.get(id);
+        if (node == null) {
+            return null;
+        }
+        V previous = node.value;
+        node.value = value;
+        removeNode(node);
+        addNodeToHead(node);
+        return previous;
+    }
+
+    /**
+     * Inserts a prefetched value below every entry that has been read, unless the key already has one, so that unread
+     * prefetches are evicted first, oldest first. When the cache is full, the oldest unread prefetch is evicted; if
+     * every entry has been read, the prefetch is dropped, so wrong guesses never evict the working set. An existing
+     * entry is left untouched.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        if (cacheMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        if (capacity <= 0) return;
+
+        Node<K, V> newNode = cacheMap.computeIfAbsent(id, nodeFactory);
+        if (newNode.prev != null) return;
+
+        newNode.value = value;
+        if (cacheMap.size() > capacity) {
+            if (prefetched == tail) {
+                cacheMap.remove(id);
+                return;
+            }
+            Node<K, V> victim = tail.prev;
+            cacheMap.remove(victim.key);
+            removeNode(victim);
+            evictionCount++;
+        }
+        newNode.prev = prefetched.prev;
+        newNode.next = prefetched;
+        prefetched.prev.next = newNode;
+        prefetched.prev = newNode;
+        prefetched = newNode;
+    }
+
+    /**
+     * Tells whether the key has a mapping, without counting as an access.
+     *
+     * @param id the key to look up
+     * @return {@code true} if the cache contains a mapping for the key
+     */
+    boolean containsKey(K id) {
+        return cacheMap.containsKey(id);
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return cacheMap.size();
+    }
+
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, the least recently used entries beyond the
+     * capacity are evicted a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts least recently used entries while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        while (evicted < maxEvictions && cacheMap.size() > Math.max(capacity, 0)) {
+            removeLeastRecentlyUsed();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Applies the result of a computation inside {@link HashMap#compute}, without touching the map: returns a new
+     * unlinked node, the updated node marked as recently used, or {@code null} after unlinking the node to remove it.
+     *
+     * @param id    the key
+     * @param node  the node of the key, or {@code null} if it has none
+     * @param value the new value, or {@code null} to remove the key
+     * @return the node to keep in the map, or {@code null} if the key has none
+     */
+    private Node<K, V> update(K id, Node<K, V> node, V value) {
+        if (node == null) {
+            return value == null ? null : new Node<>(id, value);
+        }
+        if (value == null) {
+            removeNode(node);
+            return null;
+        }
+        node.value = value;
+        removeNode(node);
+        addNodeToHead(node);
+        return node;
+    }
+
+    /**
+     * Links the node left in the map by a computation if it was just created, and returns its value.
+     *
+     * @param node the node of the key, or {@code null} if it has none
+     * @return the value of the node, or {@code null} if there is none
+     */
+    private V linkIfNew(Node<K, V> node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.prev == null) {
+            linkNew(node);
+        }
+        return node.value;
+    }
+
+    /**
+     * Links a node just added to the map at the head of the list, evicting the least recently used entry if the
+     * cache went over its capacity. The node is dropped if the capacity is zero.
+     *
+     * @param node the new node, not linked yet
+     */
+    private void linkNew(Node<K, V> node) {
+        if (capacity <= 0) {
+            cacheMap.remove(node.key);
+            return;
+        }
+        if (cacheMap.size() > capacity) {
+            removeLeastRecentlyUsed();
+        }
+        addNodeToHead(node);
+    }
+
+    /**
+     * Removes the entry at the tail of the list.
+     */
+    private void removeLeastRecentlyUsed() {
+        Node<K, V> last = tail.prev;
+        cacheMap.remove(last.key);
+        removeNode(last);
+        evictionCount++;
     }
 
     /**
@@ -121,6 +427,9 @@ public class LRUDoublyLinkedListCache<K, V> implements CacheService<K, V> {
      * @param node the node to be removed from the list
      */
     private void removeNode(Node<K, V> node) {
+        if (node == prefetched) {
+            prefetched = node.next;
+        }
         node.prev.next = node.next;
         node.next.prev = node.prev;
     }
@@ -1,14 +1,17 @@
 package org.cache;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
-public class LRUHashMapQueueCache<K, V> implements CacheService<K, V> {
-    private final int capacity;
+public class LRUHashMapQueueCache<K, V> implements ResizableCache<K, V> {
+    private int capacity;
     private final Map<K, V> cacheMap;
     private final Deque<K> deque;
+    private long evictionCount;
 
     /**
      * Constructor to initialize LRU Cache with the specified capacity.
@@ -18,7 +21,7 @@ public class LRUHashMapQueueCache<K, V> implements CacheService<K, V> {
     public LRUHashMapQueueCache(int capacity) {
         this.capacity = capacity;
         this.cacheMap = new HashMap<>();
-        this.deque = new LinkedList<>();
+        this.deque = new ArrayDeque<>();
     }
 
     /**
@@ -31,16 +34,21 @@ public class LRUHashMapQueueCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void put(K id, V value) {
-        if (cacheMap.containsKey(id)) {
-            deque.remove(id);
-        } else {
-            if (deque.size() == capacity) {
-                K leastUsedKey = deque.removeLast();
-                cacheMap.remove(leastUsedKey);
-            }
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
         }
-        deque.addFirst(id);
+        if (capacity <= 0) return;
+
         cacheMap.put(id, value);
+        if (cacheMap.size() == deque.size()) {
+            // The key was already present, the map size did not change
+            deque.removeFirstOccurrence(id);
+        } else if (deque.size() >= capacity) {
+            K leastUsedKey = deque.removeLast();
+            cacheMap.remove(leastUsedKey);
+            evictionCount++;
+        }
+        deque.addFirst(id);
     }
 
     /**
@@ -52,12 +60,16 @@ public class LRUHashMapQueueCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public V get(K id) {
-        if (!cacheMap.containsKey(id)) {
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        V value = cacheMap.get(id);
+        if (value == null) {
             return null;
         }
-        deque.remove(id);
+        deque.removeFirstOccurrence(id);
         deque.addFirst(id);
-        return cacheMap.get(id);
+        return value;
     }
 
     /**
@@ -67,10 +79,213 @@ public class LRUHashMapQueueCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void evict(K id) {
-        if (cacheMap.containsKey(id)) {
-            deque.remove(id);
+        int sizeBefore = cacheMap.size();
+        cacheMap.remove(id);
+        if (cacheMap.size() != sizeBefore) {
+            deque.removeFirstOccurrence(id);
+        }
+    }
+
+    /**
+     * Adds the element unless the key already has one, with a single map lookup.
+     * An existing element is moved to the front of the deque.
+     *
+     * @param id    the key of the element to be added
+     * @param value the value of the element to be added
+     * @return the existing value, or {@code null} if the element was added
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        V existing = cacheMap.putIfAbsent(id, value);
+        if (existing != null) {
+            moveToFront(id);
+        } else {
+            added(id);
+        }
+        return existing;
+    }
+
+    /**
+     * Returns the value of the key, computing and adding it if there is none, with a single map lookup.
+     *
+     * @param id              the key of the element to be retrieved
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int sizeBefore = cacheMap.size();
+        V value = cacheMap.computeIfAbsent(id, mappingFunction);
+        afterUpdate(id, sizeBefore, value);
+        return value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value with a single map lookup.
+     * A {@code null} result removes the element.
+     *
+     * @param id                the key of the element to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int sizeBefore = cacheMap.size();
+        V value = cacheMap.compute(id, remappingFunction);
+        afterUpdate(id, sizeBefore, value);
+        return value;
+    }
+
+    /**
+     * Adds the element if the key has none, or else combines it with the current value, with a single map lookup.
+     * A {@code null} combination removes the element.
+     *
+     * @param id                the key of the element to be merged
+     * @param value             the value to add or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the element was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int sizeBefore = cacheMap.size();
+        V merged = cacheMap.merge(id, value, remappingFunction);
+        afterUpdate(id, sizeBefore, merged);
+        return merged;
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, with a single map lookup, and moves it to the front of the deque.
+     *
+     * @param id    the key of the element to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was added
+     */
+    @Override
+    public V replace(K id, V value) {
+        if (deque.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        V previous = cacheMap.replace(id, value);
+        if (previous != null) {
+            moveToFront(id);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the number of elements currently held.
+     *
+     * @return the number of elements
+     */
+    @Override
+    public int size() {
+        return cacheMap.size();
+    }
+
+    /**
+     * Returns the maximum number of elements the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, the least recently used elements beyond the
+     * capacity are evicted a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of elements
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts least recently used elements while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of elements to evict
+     * @return the number of evicted elements
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        while (evicted < maxEvictions && deque.size() > Math.max(capacity, 0)) {
+            cacheMap.remove(deque.removeLast());
+            evictionCount++;
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Updates the deque after a map operation on the key: a grown map means the key was added, a shrunk one that it
+     * was removed, and an unchanged one with a value that it was updated.
+     *
+     * @param id         the key
+     * @param sizeBefore the size of the map before the operation
+     * @param value      the value of the key after the operation
+     */
+    private void afterUpdate(K id, int sizeBefore, V value) {
+        if (cacheMap.size() > sizeBefore) {
+            added(id);
+        } else if (cacheMap.size() < sizeBefore) {
+            deque.removeFirstOccurrence(id);
+        } else if (value != null) {
+            moveToFront(id);
+        }
+    }
+
+    /**
+     * Puts a key just added to the map at the front of the deque, removing the least recently used element if the
+     * cache is full.
+     *
+     * @param id the added key
+     */
+    private void added(K id) {
+        if (capacity <= 0) {
             cacheMap.remove(id);
+            return;
+        }
+        if (deque.size() >= capacity) {
+            cacheMap.remove(deque.removeLast());
+            evictionCount++;
         }
+        deque.addFirst(id);
+    }
+
+    /**
+     * Moves a key to the front of the deque.
+     *
+     * @param id the key
+     */
+    private void moveToFront(K id) {
+        deque.removeFirstOccurrence(id);
+        deque.addFirst(id);
     }
 
     // Main method to test the LRUCacheService implementation
@@ -1,7 +1,10 @@
 package org.cache;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * LRU (Least Recently Used) Cache implementation using {@link LinkedHashMap}.
@@ -10,13 +13,23 @@ import java.util.Map;
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class LRULinkedHashMapCache<K, V> implements CacheService<K, V> {
+public class LRULinkedHashMapCache<K, V> implements ResizableCache<K, V> {
+
+    /**
+     * The maximum number of elements the cache can hold.
+     */
+    private int capacity;
 
     /**
      * The underlying LinkedHashMap that stores the cache entries.
      */
     private final LinkedHashMap<K, V> linkHashMap;
 
+    /**
+     * The number of entries evicted to respect the capacity.
+     */
+    private long evictionCount;
+
     /**
      * Constructor to initialize LRU Cache with the specified capacity.
      * The cache will automatically remove the least recently used entries when the capacity is exceeded.
@@ -24,10 +37,15 @@ public class LRULinkedHashMapCache<K, V> implements CacheService<K, V> {
      * @param capacity the maximum number of elements the cache can hold
      */
     public LRULinkedHashMapCache(int capacity) {
+        this.capacity = capacity;
         linkHashMap = new LinkedHashMap<>(capacity, 0.75F, true) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-                return size() > capacity;
+                if (size() > LRULinkedHashMapCache.this.capacity) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
             }
         };
     }
@@ -42,6 +60,9 @@ public class LRULinkedHashMapCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public void put(K id, V value) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         linkHashMap.put(id, value);
     }
 
@@ -54,6 +75,9 @@ public class LRULinkedHashMapCache<K, V> implements CacheService<K, V> {
      */
     @Override
     public V get(K id) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         return linkHashMap.get(id);
     }
 
@@ -66,4 +90,143 @@ public class LRULinkedHashMapCache<K, V> implements CacheService<K, V> {
     public void evict(K id) {
         linkHashMap.remove(id);
     }
-}
\ No newline at end of file
+
+    /**
+     * Inserts the specified value unless the key already has one, with a single lookup.
+     * An existing entry is marked as recently used.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        return linkHashMap.putIfAbsent(id, value);
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none, with a single lookup.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        return linkHashMap.computeIfAbsent(id, mappingFunction);
+    }
+
+    /**
+     * Computes a new value from the key and its current value with a single lookup.
+     * A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        return linkHashMap.compute(id, remappingFunction);
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, with a single lookup.
+     * A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        return linkHashMap.merge(id, value, remappingFunction);
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, with a single lookup, and marks it as recently used.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        if (linkHashMap.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        return linkHashMap.replace(id, value);
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return linkHashMap.size();
+    }
+
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, the least recently used entries beyond the
+     * capacity are evicted a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts least recently used entries while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        Iterator<K> eldest = linkHashMap.keySet().iterator();
+        while (evicted < maxEvictions && linkHashMap.size() > Math.max(capacity, 0)) {
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,733 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent cache storing entries in append-only segment files.
+ * <p>
+ * Every {@code put} and {@code evict} appends a record to the active segment through its {@link FileChannel}; an
+ * in-memory hash index maps each key to the location of its latest value. Segments are memory-mapped, so reads
+ * copy straight from the page cache, and {@link #getBuffer(byte[])} returns a read-only slice without any copy.
+ * When the active segment is full a new one is started.
+ * <p>
+ * Eviction works on whole segments: when the segments take more than the maximum disk usage, the oldest one is
+ * deleted with all entries still in it. Entries read while in the oldest segment are first copied to the active
+ * segment, which gives them a second chance, like the CLOCK approximation of LRU. Compaction rewrites the live
+ * entries of segments that are mostly overwritten or evicted and deletes them; it runs on demand or periodically.
+ * <p>
+ * On start the index is rebuilt by scanning the segments in order. Each record carries a CRC32C checksum, and a
+ * segment is truncated at its first incomplete or corrupt record, which is where a crash interrupted a write.
+ * Writes are not forced to disk unless {@link #flush()} is called.
+ * <p>
+ * All methods are synchronized. Buffers returned by {@link #getBuffer(byte[])} stay valid after their entry is
+ * overwritten or its segment deleted, since the mapping is only released when the buffer is garbage-collected.
+ */
+public class LogStructuredCache implements CacheService<byte[], byte[]>, Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Record header: checksum, key length and value length, the latter {@code -1} for a removal.
+     */
+    private static final int HEADER_BYTES = 12;
+
+    /**
+     * Segments whose live share drops below this are compacted.
+     */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final Map<Key, Location> index = new HashMap<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ScheduledThreadPoolExecutor compactor;
+    private Segment active;
+    private long totalBytes;
+    private boolean closed;
+
+    /**
+     * Opens a cache without background compaction.
+     *
+     * @param directory    the directory holding the segment files, created if missing
+     * @param maxBytes     the disk usage above which the oldest segment is deleted
+     * @param segmentBytes the size of one segment file, which also bounds the size of one entry
+     * @throws IOException if the segments cannot be read or created
+     */
+    public LogStructuredCache(Path directory, long maxBytes, int segmentBytes) throws IOException {
+        this(directory, maxBytes, segmentBytes, 0);
+    }
+
+    /**
+     * Opens a cache, rebuilding the index from the existing segments.
+     *
+     * @param directory                the directory holding the segment files, created if missing
+     * @param maxBytes                 the disk usage above which the oldest segment is deleted
+     * @param segmentBytes             the size of one segment file, which also bounds the size of one entry
+     * @param compactionIntervalMillis the time between background compactions, {@code 0} for none
+     * @throws IOException if the segments cannot be read or created
+     */
+    public LogStructuredCache(Path directory, long maxBytes, int segmentBytes, long compactionIntervalMillis) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        if (maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("maxBytes must hold at least one segment: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        recover();
+        if (compactionIntervalMillis > 0) {
+            this.compactor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "cache-log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            compactor.scheduleWithFixedDelay(this::compact, compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.compactor = null;
+        }
+    }
+
+    /**
+     * Appends the specified key-value pair to the log.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @throws IllegalArgumentException if the entry does not fit in one segment
+     * @throws UncheckedIOException     if the write fails
+     */
+    @Override
+    public synchronized void put(byte[] id, byte[] value) {
+        try {
+            // The index keeps the key, so it must not change with the caller's array
+            append(new Key(id.clone()), value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a copy of the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     * @throws UncheckedIOException if the entry has to be moved and the write fails
+     */
+    @Override
+    public synchronized byte[] get(byte[] id) {
+        ByteBuffer buffer = getBuffer(id);
+        if (buffer == null) {
+            return null;
+        }
+        byte[] value = new byte[buffer.remaining()];
+        buffer.get(value);
+        return value;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped as a read-only slice of the segment mapping.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value, or {@code null} if this cache contains no mapping for the key
+     * @throws UncheckedIOException if the entry has to be moved and the write fails
+     */
+    public synchronized ByteBuffer getBuffer(byte[] id) {
+        Key key = new Key(id);
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer value = location.segment.slice(location.valueOffset, location.valueLength);
+        if (location.segment == segments.peekFirst() && location.segment != active) {
+            // Second chance: move the entry out of the segment that is deleted next
+            try {
+                byte[] copy = new byte[value.remaining()];
+                value.duplicate().get(copy);
+                append(new Key(id.clone()), copy);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes the mapping for a key by appending a removal record.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     * @throws UncheckedIOException if the write fails
+     */
+    @Override
+    public synchronized void evict(byte[] id) {
+        Key key = new Key(id);
+        if (!index.containsKey(key)) {
+            return;
+        }
+        try {
+            append(key, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value unless the key already has one, with a single index lookup. An existing
+     * entry in the oldest segment gets a second chance, as on {@link #get(byte[])}.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return a copy of the existing value, or {@code null} if the value was inserted
+     * @throws UncheckedIOException if the write fails
+     */
+    @Override
+    public synchronized byte[] putIfAbsent(byte[] id, byte[] value) {
+        byte[][] existing = new byte[1][];
+        update(id, (key, location) -> {
+            if (location == null) {
+                return write(key, null, value);
+            }
+            existing[0] = read(location);
+            return keep(key, location, existing[0]);
+        });
+        return existing[0];
+    }
+
+    /**
+     * Atomically returns the value of the key, computing and inserting it if there is none, with a single index
+     * lookup. The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     * @throws UncheckedIOException if the write fails
+     */
+    @Override
+    public synchronized byte[] computeIfAbsent(byte[] id, Function<? super byte[], ? extends byte[]> mappingFunction) {
+        byte[][] result = new byte[1][];
+        update(id, (key, location) -> {
+            if (location == null) {
+                result[0] = mappingFunction.apply(id);
+                return write(key, null, result[0]);
+            }
+            result[0] = read(location);
+            return keep(key, location, result[0]);
+        });
+        return result[0];
+    }
+
+    /**
+     * Atomically computes a new value from the key and its current value with a single index lookup. A {@code null}
+     * result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     * @throws UncheckedIOException if the write fails
+     */
+    @Override
+    public synchronized byte[] compute(byte[] id, BiFunction<? super byte[], ? super byte[], ? extends byte[]> remappingFunction) {
+        byte[][] result = new byte[1][];
+        update(id, (key, location) -> {
+            result[0] = remappingFunction.apply(id, location == null ? null : read(location));
+            return write(key, location, result[0]);
+        });
+        return result[0];
+    }
+
+    /**
+     * Atomically inserts the specified value if the key has none, or else combines it with the current value, with a
+     * single index lookup. A {@code null} combination removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     * @throws UncheckedIOException if the write fails
+     */
+    @Override
+    public synchronized byte[] merge(byte[] id, byte[] value, BiFunction<? super byte[], ? super byte[], ? extends byte[]> remappingFunction) {
+        byte[][] result = new byte[1][];
+        update(id, (key, location) -> {
+            result[0] = location == null ? value : remappingFunction.apply(read(location), value);
+            return write(key, location, result[0]);
+        });
+        return result[0];
+    }
+
+    /**
+     * Atomically replaces the value of the key only if it has one, with a single index lookup.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return a copy of the previous value, or {@code null} if the key had none and nothing was inserted
+     * @throws UncheckedIOException if the write fails
+     */
+    @Override
+    public synchronized byte[] replace(byte[] id, byte[] value) {
+        byte[][] previous = new byte[1][];
+        update(id, (key, location) -> {
+            if (location == null) {
+                return null;
+            }
+            previous[0] = read(location);
+            return write(key, location, value);
+        });
+        return previous[0];
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the bytes written to all segments, including overwritten and removed records.
+     *
+     * @return the disk usage in bytes
+     */
+    public synchronized long getDiskUsage() {
+        return totalBytes;
+    }
+
+    /**
+     * Rewrites the live entries of every sealed segment whose live share is below one half and deletes the segment.
+     *
+     * @return the number of compacted segments
+     * @throws UncheckedIOException if a write fails
+     */
+    public synchronized int compact() {
+        if (closed) {
+            return 0;
+        }
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment != active && segment.liveBytes < segment.size * COMPACTION_THRESHOLD) {
+                candidates.add(segment);
+            }
+        }
+        try {
+            for (Segment segment : candidates) {
+                rewrite(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return candidates.size();
+    }
+
+    /**
+     * Forces the active segment to disk.
+     *
+     * @throws IOException if the segment cannot be forced
+     */
+    public synchronized void flush() throws IOException {
+        active.channel.force(false);
+    }
+
+    /**
+     * Stops compaction, truncates the active segment to its content and closes the segment files.
+     *
+     * @throws IOException if a segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.channel.force(false);
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+            // The mapping extended the active file to the full segment size
+            try (FileChannel channel = FileChannel.open(active.path, StandardOpenOption.WRITE)) {
+                channel.truncate(active.size);
+            }
+        }
+    }
+
+    /**
+     * Appends a value record, or a removal record when {@code value} is {@code null}, and updates the index.
+     */
+    private void append(Key key, byte[] value) throws IOException {
+        Location location = appendRecord(key, value);
+        Location previous = value == null ? index.remove(key) : index.put(key, location);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.recordLength;
+        }
+        evictSegments();
+    }
+
+    /**
+     * Applies a conditional operation to the index entry of a key in one {@link HashMap#compute} call, then deletes
+     * the segments the writes pushed over the disk limit.
+     *
+     * @param id        the key, copied before it is stored in the index
+     * @param operation returns the new location of the key from its current one, writing the records it needs
+     */
+    private void update(byte[] id, BiFunction<Key, Location, Location> operation) {
+        if (closed) {
+            throw new IllegalStateException("Cache is closed");
+        }
+        index.compute(new Key(id.clone()), operation);
+        try {
+            evictSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the new value of a key inside {@link #update}, or a removal record when the value is {@code null} and
+     * the key has one, without touching the index.
+     *
+     * @param key      the key
+     * @param location the current location of the key, or {@code null} if it has none
+     * @param value    the new value, or {@code null} to remove the key
+     * @return the new location of the key, or {@code null} if it has none
+     */
+    private Location write(Key key, Location location, byte[] value) {
+        if (value == null && location == null) {
+            return null;
+        }
+        try {
+            Location written = appendRecord(key, value);
+            if (location != null) {
+                location.segment.liveBytes -= location.recordLength;
+            }
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Keeps the current value of a key inside {@link #update} after a read, giving it a second chance if it is in the
+     * oldest segment.
+     *
+     * @param key      the key
+     * @param location the current location of the key
+     * @param value    a copy of the current value
+     * @return the location of the key
+     */
+    private Location keep(Key key, Location location, byte[] value) {
+        if (location.segment == segments.peekFirst() && location.segment != active) {
+            return write(key, location, value);
+        }
+        return location;
+    }
+
+    private static byte[] read(Location location) {
+        byte[] value = new byte[location.valueLength];
+        location.segment.slice(location.valueOffset, location.valueLength).get(value);
+        return value;
+    }
+
+    /**
+     * Appends a value record, or a removal record when {@code value} is {@code null}, to the active segment.
+     *
+     * @return the location of the value, or {@code null} for a removal record
+     */
+    private Location appendRecord(Key key, byte[] value) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Cache is closed");
+        }
+        int valueLength = value == null ? 0 : value.length;
+        int recordLength = HEADER_BYTES + key.bytes.length + valueLength;
+        if (recordLength > segmentBytes) {
+            throw new IllegalArgumentException("Entry of " + recordLength + " bytes does not fit in a segment of " + segmentBytes);
+        }
+        if (active.size + recordLength > segmentBytes) {
+            roll();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.position(4);
+        record.putInt(key.bytes.length);
+        record.putInt(value == null ? -1 : value.length);
+        record.put(key.bytes);
+        if (value != null) {
+            record.put(value);
+        }
+        record.putInt(0, checksum(record.array(), 4, recordLength - 4));
+        record.flip();
+
+        Segment segment = active;
+        int offset = segment.size;
+        while (record.hasRemaining()) {
+            segment.channel.write(record, offset + record.position());
+        }
+        segment.size += recordLength;
+        totalBytes += recordLength;
+        if (value == null) {
+            return null;
+        }
+        segment.liveBytes += recordLength;
+        return new Location(segment, offset + HEADER_BYTES + key.bytes.length, value.length, recordLength);
+    }
+
+    /**
+     * Seals the active segment and starts a new one.
+     */
+    private void roll() throws IOException {
+        long id = active == null ? 0 : active.id + 1;
+        active = Segment.open(directory.resolve(SEGMENT_PREFIX + String.format("%016d", id) + SEGMENT_SUFFIX), id, segmentBytes);
+        segments.addLast(active);
+    }
+
+    /**
+     * Deletes the oldest segments, with the entries still in them, until the disk usage fits.
+     */
+    private void evictSegments() throws IOException {
+        while (totalBytes > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.removeFirst();
+            unindex(oldest);
+            delete(oldest);
+        }
+    }
+
+    /**
+     * Removes the index entries still pointing into a segment, looking up only the keys of its records rather than
+     * scanning the whole index.
+     */
+    private void unindex(Segment segment) {
+        ByteBuffer buffer = segment.slice(0, segment.size);
+        int position = 0;
+        while (position < segment.size && segment.liveBytes > 0) {
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            if (valueLength >= 0) {
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(position + HEADER_BYTES, keyBytes);
+                Key key = new Key(keyBytes);
+                Location location = index.get(key);
+                if (location != null && location.segment == segment) {
+                    index.remove(key);
+                    segment.liveBytes -= location.recordLength;
+                }
+            }
+            position += HEADER_BYTES + keyLength + Math.max(valueLength, 0);
+        }
+    }
+
+    /**
+     * Copies the live entries of a segment to the active segment and deletes it. Removal records are kept if older
+     * segments may still hold a value for their key.
+     */
+    private void rewrite(Segment segment) throws IOException {
+        if (!segments.contains(segment)) {
+            // Deleted by eviction while an earlier candidate was rewritten
+            return;
+        }
+        boolean oldest = segment == segments.peekFirst();
+        ByteBuffer buffer = segment.slice(0, segment.size);
+        int position = 0;
+        while (position < segment.size) {
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + HEADER_BYTES, keyBytes);
+            Key key = new Key(keyBytes);
+            int valueOffset = position + HEADER_BYTES + keyLength;
+            if (valueLength >= 0) {
+                Location location = index.get(key);
+                if (location != null && location.segment == segment && location.valueOffset == valueOffset) {
+                    byte[] value = new byte[valueLength];
+                    buffer.get(valueOffset, value);
+                    append(key, value);
+                }
+            } else if (!oldest && !index.containsKey(key)) {
+                append(key, null);
+            }
+            position = valueOffset + Math.max(valueLength, 0);
+        }
+        if (segments.remove(segment)) {
+            delete(segment);
+        }
+    }
+
+    private void delete(Segment segment) throws IOException {
+        totalBytes -= segment.size;
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+    }
+
+    /**
+     * Rebuilds the index from the segment files, truncating each at its first invalid record.
+     */
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(file, id, Math.max(segmentBytes, (int) Math.min(Files.size(file), Integer.MAX_VALUE)));
+            segments.addLast(segment);
+            active = segment;
+            scan(segment, (int) Math.min(Files.size(file), segment.mapping.capacity()));
+        }
+        if (active == null || active.size + HEADER_BYTES >= segmentBytes) {
+            roll();
+        }
+        evictSegments();
+    }
+
+    /**
+     * Replays the records of a segment into the index.
+     */
+    private void scan(Segment segment, int fileLength) throws IOException {
+        ByteBuffer buffer = segment.slice(0, fileLength);
+        int position = 0;
+        while (position + HEADER_BYTES <= fileLength) {
+            int checksum = buffer.getInt(position);
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            if (keyLength < 0 || valueLength < -1 || (long) position + HEADER_BYTES + keyLength + Math.max(valueLength, 0) > fileLength) {
+                break;
+            }
+            int recordLength = HEADER_BYTES + keyLength + Math.max(valueLength, 0);
+            byte[] content = new byte[recordLength - 4];
+            buffer.get(position + 4, content);
+            if (checksum(content, 0, content.length) != checksum || (keyLength == 0 && valueLength == 0 && checksum == 0)) {
+                break;
+            }
+
+            Key key = new Key(Arrays.copyOfRange(content, 8, 8 + keyLength));
+            Location previous = valueLength < 0
+                    ? index.remove(key)
+                    : index.put(key, new Location(segment, position + HEADER_BYTES + keyLength, valueLength, recordLength));
+            if (previous != null) {
+                previous.segment.liveBytes -= previous.recordLength;
+            }
+            if (valueLength >= 0) {
+                segment.liveBytes += recordLength;
+            }
+            position += recordLength;
+        }
+        segment.size = position;
+        totalBytes += position;
+        if (position < fileLength) {
+            // Drop the torn or zero-filled tail, so that appends continue right after the last valid record
+            segment.channel.truncate(position);
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A segment file, mapped once at its full size.
+     */
+    private static final class Segment {
+        final Path path;
+        final long id;
+        final FileChannel channel;
+        final MappedByteBuffer mapping;
+        int size;
+        long liveBytes;
+
+        private Segment(Path path, long id, FileChannel channel, MappedByteBuffer mapping) {
+            this.path = path;
+            this.id = id;
+            this.channel = channel;
+            this.mapping = mapping;
+        }
+
+        static Segment open(Path path, long id, int mappedBytes) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new Segment(path, id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedBytes));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        ByteBuffer slice(int offset, int length) {
+            return mapping.slice(offset, length).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Location of the latest value of a key.
+     */
+    private static final class Location {
+        final Segment segment;
+        final int valueOffset;
+        final int valueLength;
+        final int recordLength;
+
+        Location(Segment segment, int valueOffset, int valueLength, int recordLength) {
+            this.segment = segment;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordLength = recordLength;
+        }
+    }
+
+    /**
+     * Byte array key with value-based equality.
+     */
+    private static final class Key {
+        final byte[] bytes;
+        final int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.cache;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java compressor producing the LZ4 block format.
+ * <p>
+ * Compression is greedy with a single hash table of recent 4-byte sequences, which favours speed over ratio,
+ * like LZ4's fast mode. The block format does not record the uncompressed length; callers store it themselves.
+ */
+final class Lz4Compressor {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 12;
+
+    private Lz4Compressor() {
+    }
+
+    /**
+     * Returns the largest compressed size of an input of the given length.
+     *
+     * @param length the uncompressed length
+     * @return the worst-case compressed length
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses the source into an LZ4 block.
+     *
+     * @param src the bytes to compress
+     * @return the compressed block
+     */
+    static byte[] compress(byte[] src) {
+        byte[] dst = new byte[maxCompressedLength(src.length)];
+        int[] table = new int[1 << HASH_BITS];
+        int anchor = 0;
+        int ip = 0;
+        int op = 0;
+        int matchStartLimit = src.length - MATCH_FIND_LIMIT;
+        int matchEndLimit = src.length - LAST_LITERALS;
+
+        while (ip < matchStartLimit) {
+            int sequence = readInt(src, ip);
+            int slot = (sequence * -1640531535) >>> (32 - HASH_BITS);
+            // Table entries hold position + 1 so that 0 means empty
+            int ref = table[slot] - 1;
+            table[slot] = ip + 1;
+            if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                ip++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < matchEndLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                matchLength++;
+            }
+
+            op = writeSequence(src, anchor, ip - anchor, dst, op, matchLength);
+            dst[op++] = (byte) (ip - ref);
+            dst[op++] = (byte) ((ip - ref) >>> 8);
+            op = writeLength(dst, op, matchLength - MIN_MATCH);
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        // The block always ends with a literal-only sequence
+        op = writeSequence(src, anchor, src.length - anchor, dst, op, MIN_MATCH);
+        return Arrays.copyOf(dst, op);
+    }
+
+    /**
+     * Decompresses an LZ4 block.
+     *
+     * @param src    the compressed bytes
+     * @param offset the offset of the block in {@code src}
+     * @param length the length of the block
+     * @param originalLength the uncompressed length
+     * @return the uncompressed bytes
+     * @throws IllegalArgumentException if the block is malformed
+     */
+    static byte[] decompress(byte[] src, int offset, int length, int originalLength) {
+        byte[] dst = new byte[originalLength];
+        int ip = offset;
+        int end = offset + length;
+        int op = 0;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xFF;
+
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip >= end) {
+                    break;
+                }
+
+                int matchOffset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = op - matchOffset;
+                if (matchOffset == 0 || ref < 0) {
+                    throw new IllegalArgumentException("Malformed LZ4 block: bad offset at " + (ip - offset));
+                }
+                if (matchOffset >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // Overlapping copy repeats the last matchOffset bytes
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed LZ4 block", e);
+        }
+        if (op != originalLength) {
+            throw new IllegalArgumentException("Malformed LZ4 block: expected " + originalLength + " bytes, got " + op);
+        }
+        return dst;
+    }
+
+    /**
+     * Writes the token, literal length and literals of a sequence.
+     *
+     * @return the new output position
+     */
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, byte[] dst, int op, int matchLength) {
+        int tokenPosition = op++;
+        int literalNibble = Math.min(literalLength, 15);
+        int matchNibble = Math.min(matchLength - MIN_MATCH, 15);
+        dst[tokenPosition] = (byte) (literalNibble << 4 | matchNibble);
+        if (literalNibble == 15) {
+            op = writeLength(dst, op, literalLength);
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    /**
+     * Writes the extra length bytes of a literal or match length whose nibble was saturated at 15.
+     *
+     * @return the new output position
+     */
+    private static int writeLength(byte[] dst, int op, int length) {
+        if (length < 15) {
+            return op;
+        }
+        int remaining = length - 15;
+        while (remaining >= 255) {
+            dst[op++] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readInt(byte[] bytes, int i) {
+        return (bytes[i] & 0xFF) | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 3] & 0xFF) << 24;
+    }
+}
@@ -2,11 +2,20 @@ package org.cache;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
-public class MRUCache<K, V> implements CacheService<K, V> {
+public class MRUCache<K, V> implements ResizableCache<K, V> {
 
-    private final int capacity;
+    private int capacity;
+    private long evictionCount;
     private final Map<K, Node<K, V>> cache;
+
+    /**
+     * Creates nodes without a value for {@link HashMap#computeIfAbsent}; the value is set once the node is known to be
+     * new. Kept in a field so that no lambda capturing the value is allocated per call.
+     */
+    private final Function<K, Node<K, V>> nodeFactory;
     private final DoublyLinkedList<K, V> accessOrderList;
 
     /**
@@ -17,43 +26,289 @@ public class MRUCache<K, V> implements CacheService<K, V> {
     public MRUCache(int capacity) {
         this.capacity = capacity;
         this.cache = new HashMap<>(capacity);
+        this.nodeFactory = key -> new Node<>(key, null);
         this.accessOrderList = new DoublyLinkedList<>();
     }
 
     @Override
     public void put(K id, V value) {
-        if (cache.containsKey(id)) {
-            Node<K, V> node = cache.get(id);
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        if (capacity <= 0) return;
+
+        Node<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.prev == null) {
             node.value = value;
-            accessOrderList.moveToFront(node);
+            linkNew(node);
         } else {
-            if (cache.size() == capacity) {
-                Node<K, V> nodeToEvict = accessOrderList.head.next;
-                accessOrderList.remove(nodeToEvict);
-                cache.remove(nodeToEvict.key);
-            }
-            Node<K, V> newNode = new Node<>(id, value);
-            accessOrderList.addFirst(newNode);
-            cache.put(id, newNode);
+            node.value = value;
+            accessOrderList.moveToFront(node);
         }
     }
 
     @Override
     public V get(K id) {
-        if (!cache.containsKey(id)) return null;
-
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
         Node<K, V> node = cache.get(id);
+        if (node == null) return null;
+
         accessOrderList.moveToFront(node);
         return node.value;
     }
 
     @Override
     public void evict(K id) {
-        if (!cache.containsKey(id)) return;
+        Node<K, V> node = cache.remove(id);
+        if (node == null) return;
 
-        Node<K, V> node = cache.get(id);
         accessOrderList.remove(node);
-        cache.remove(id);
+    }
+
+    /**
+     * Inserts the specified value unless the key already has one, with a single lookup.
+     * An existing entry is marked as most recently used.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.computeIfAbsent(id, nodeFactory);
+        if (node.prev == null) {
+            node.value = value;
+            linkNew(node);
+            return null;
+        }
+        accessOrderList.moveToFront(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none, with a single lookup.
+     * The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.computeIfAbsent(id, key -> {
+            V value = mappingFunction.apply(key);
+            return value == null ? null : new Node<>(key, value);
+        });
+        if (node == null) {
+            return null;
+        }
+        if (node.prev == null) {
+            linkNew(node);
+        } else {
+            accessOrderList.moveToFront(node);
+        }
+        return node.value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value with a single lookup.
+     * A {@code null} result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.compute(id, (key, current) ->
+                update(key, current, remappingFunction.apply(key, current == null ? null : current.value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, with a single lookup.
+     * A {@code null} combination removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.compute(id, (key, current) ->
+                update(key, current, current == null ? value : remappingFunction.apply(current.value, value)));
+        return linkIfNew(node);
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, with a single lookup.
+     * The entry is marked as most recently used.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        if (cache.size() > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        Node<K, V> node = cache.get(id);
+        if (node == null) {
+            return null;
+        }
+        V previous = node.value;
+        node.value = value;
+        accessOrderList.moveToFront(node);
+        return previous;
+    }
+
+    /**
+     * Tells whether the key has a mapping, without counting as an access.
+     *
+     * @param id the key to look up
+     * @return {@code true} if the cache contains a mapping for the key
+     */
+    boolean containsKey(K id) {
+        return cache.containsKey(id);
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, the most recently used entries beyond the
+     * capacity are evicted a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts most recently used entries while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        while (evicted < maxEvictions && cache.size() > Math.max(capacity, 0)) {
+            removeMostRecentlyUsed();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Applies the result of a computation inside {@link HashMap#compute}, without touching the map: returns a new
+     * unlinked node, the updated node marked as most recently used, or {@code null} after unlinking the node to
+     * remove it.
+     *
+     * @param id    the key
+     * @param node  the node of the key, or {@code null} if it has none
+     * @param value the new value, or {@code null} to remove the key
+     * @return the node to keep in the map, or {@code null} if the key has none
+     */
+    private Node<K, V> update(K id, Node<K, V> node, V value) {
+        if (node == null) {
+            return value == null ? null : new Node<>(id, value);
+        }
+        if (value == null) {
+            accessOrderList.remove(node);
+            return null;
+        }
+        node.value = value;
+        accessOrderList.moveToFront(node);
+        return node;
+    }
+
+    /**
+     * Links the node left in the map by a computation if it was just created, and returns its value.
+     *
+     * @param node the node of the key, or {@code null} if it has none
+     * @return the value of the node, or {@code null} if there is none
+     */
+    private V linkIfNew(Node<K, V> node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.prev == null) {
+            linkNew(node);
+        }
+        return node.value;
+    }
+
+    /**
+     * Links a node just added to the map at the front of the list, evicting the most recently used entry first if
+     * the cache went over its capacity. The node is dropped if the capacity is zero.
+     *
+     * @param node the new node, not linked yet
+     */
+    private void linkNew(Node<K, V> node) {
+        if (capacity <= 0) {
+            cache.remove(node.key);
+            return;
+        }
+        if (cache.size() > capacity) {
+            removeMostRecentlyUsed();
+        }
+        accessOrderList.addFirst(node);
+    }
+
+    /**
+     * Removes the entry at the front of the access order list.
+     */
+    private void removeMostRecentlyUsed() {
+        Node<K, V> nodeToEvict = accessOrderList.head.next;
+        accessOrderList.remove(nodeToEvict);
+        cache.remove(nodeToEvict.key);
+        evictionCount++;
     }
 
     /**
@@ -0,0 +1,337 @@
+package org.cache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache wrapper that takes eviction off the write path.
+ * <p>
+ * The wrapped cache is given its capacity plus a slack, so a {@code put} is admitted without evicting while the
+ * cache is less than the slack above its capacity. Once the size exceeds the capacity, a maintenance task is
+ * submitted to the executor. It evicts the excess in batches according to the wrapped cache's policy and releases
+ * the lock between batches, so writers wait for at most one batch. If writers outpace maintenance and use up the
+ * whole slack, the wrapped cache falls back to evicting inline, which bounds the size at capacity plus slack.
+ * <p>
+ * All operations synchronize on the wrapped cache, so the wrapper is thread-safe whatever cache it wraps.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class MaintainedCache<K, V> implements ResizableCache<K, V> {
+
+    private final ResizableCache<K, V> cache;
+    private final int slack;
+    private final int batchSize;
+    private final Executor executor;
+    private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+    private final Runnable maintenance = this::maintain;
+    private volatile int capacity;
+
+    /**
+     * Constructs a maintained cache evicting in batches of 64 on the common fork-join pool.
+     *
+     * @param cache the cache to maintain; its current capacity becomes the capacity of this cache
+     * @param slack the number of entries the cache may temporarily hold above its capacity
+     */
+    public MaintainedCache(ResizableCache<K, V> cache, int slack) {
+        this(cache, slack, 64, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a maintained cache.
+     *
+     * @param cache     the cache to maintain; its current capacity becomes the capacity of this cache
+     * @param slack     the number of entries the cache may temporarily hold above its capacity
+     * @param batchSize the number of entries evicted while holding the lock
+     * @param executor  runs the maintenance task, for example a dedicated thread or a shared pool
+     */
+    public MaintainedCache(ResizableCache<K, V> cache, int slack, int batchSize, Executor executor) {
+        if (slack < 0) {
+            throw new IllegalArgumentException("slack must not be negative: " + slack);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.cache = cache;
+        this.slack = slack;
+        this.batchSize = batchSize;
+        this.executor = executor;
+        synchronized (cache) {
+            this.capacity = cache.getCapacity();
+            cache.setCapacity(capacity + slack);
+        }
+    }
+
+    /**
+     * Inserts the specified key-value pair and schedules maintenance if the cache went over its capacity.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        int size;
+        synchronized (cache) {
+            cache.put(id, value);
+            size = cache.size();
+        }
+        if (size > capacity) {
+            scheduleMaintenance();
+        }
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        synchronized (cache) {
+            return cache.get(id);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        synchronized (cache) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value unless the key already has one, and schedules maintenance if the
+     * cache went over its capacity.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        V result;
+        int size;
+        synchronized (cache) {
+            result = cache.putIfAbsent(id, value);
+            size = cache.size();
+        }
+        if (size > capacity) {
+            scheduleMaintenance();
+        }
+        return result;
+    }
+
+    /**
+     * Atomically inserts a prefetched value unless the key already has one, and schedules maintenance if the cache
+     * went over its capacity.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        int size;
+        synchronized (cache) {
+            cache.prefetch(id, value);
+            size = cache.size();
+        }
+        if (size > capacity) {
+            scheduleMaintenance();
+        }
+    }
+
+    /**
+     * Atomically returns the value of the key, computing and inserting it if there is none, and schedules
+     * maintenance if the cache went over its capacity.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        V result;
+        int size;
+        synchronized (cache) {
+            result = cache.computeIfAbsent(id, mappingFunction);
+            size = cache.size();
+        }
+        if (size > capacity) {
+            scheduleMaintenance();
+        }
+        return result;
+    }
+
+    /**
+     * Atomically computes a new value from the key and its current value, and schedules maintenance if the cache
+     * went over its capacity. A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V result;
+        int size;
+        synchronized (cache) {
+            result = cache.compute(id, remappingFunction);
+            size = cache.size();
+        }
+        if (size > capacity) {
+            scheduleMaintenance();
+        }
+        return result;
+    }
+
+    /**
+     * Atomically inserts the specified value if the key has none, or else combines it with the current value, and
+     * schedules maintenance if the cache went over its capacity. A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V result;
+        int size;
+        synchronized (cache) {
+            result = cache.merge(id, value, remappingFunction);
+            size = cache.size();
+        }
+        if (size > capacity) {
+            scheduleMaintenance();
+        }
+        return result;
+    }
+
+    /**
+     * Atomically replaces the value of the key only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        synchronized (cache) {
+            return cache.replace(id, value);
+        }
+    }
+
+    /**
+     * Returns the number of entries currently held, which may exceed the capacity by up to the slack.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns the number of entries the cache holds once maintenance has caught up.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. The excess is evicted by the maintenance task.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        synchronized (cache) {
+            this.capacity = capacity;
+            cache.setCapacity(capacity + slack);
+        }
+        scheduleMaintenance();
+    }
+
+    /**
+     * Evicts entries beyond the capacity on the calling thread.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        synchronized (cache) {
+            return evictBatch(maxEvictions);
+        }
+    }
+
+    /**
+     * Returns the number of entries evicted by the wrapped cache, inline or by maintenance.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        synchronized (cache) {
+            return cache.getEvictionCount();
+        }
+    }
+
+    private void scheduleMaintenance() {
+        if (maintenanceScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(maintenance);
+            } catch (RejectedExecutionException e) {
+                // The executor was shut down; writers keep evicting inline once the slack is used up
+                maintenanceScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Evicts the excess batch by batch, then reschedules itself if writers went over the capacity in the meantime.
+     */
+    private void maintain() {
+        try {
+            while (true) {
+                synchronized (cache) {
+                    if (evictBatch(batchSize) < batchSize) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            maintenanceScheduled.set(false);
+        }
+        if (size() > capacity) {
+            scheduleMaintenance();
+        }
+    }
+
+    /**
+     * Lowers the wrapped cache to the real capacity, evicts up to the given number of excess entries and restores the slack.
+     * The caller holds the lock.
+     */
+    private int evictBatch(int maxEvictions) {
+        int capacity = this.capacity;
+        cache.setCapacity(capacity);
+        int evicted = cache.evictExcess(maxEvictions);
+        cache.setCapacity(capacity + slack);
+        return evicted;
+    }
+}
@@ -0,0 +1,233 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Blocking client for the memcached text protocol subset served by {@link MemcachedServer}.
+ * <p>
+ * Multi-key reads are sent as one {@code gets} command, and {@link #setAll(Map)} pipelines all its
+ * {@code set} commands before reading the replies. A client holds one connection and is not thread-safe.
+ */
+public class MemcachedClient implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the server address
+     * @throws IOException if the connection cannot be established
+     */
+    public MemcachedClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        in.flip();
+    }
+
+    /**
+     * Returns the value stored under the key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the server has no value for the key
+     * @throws IOException on a connection or protocol error
+     */
+    public byte[] get(String key) throws IOException {
+        writeAscii("get " + key + "\r\n");
+        flush();
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        readValues(values);
+        return values.get(key);
+    }
+
+    /**
+     * Returns the values stored under the keys, fetched with a single command.
+     *
+     * @param keys the keys
+     * @return the found values by key; missing keys are absent from the map
+     * @throws IOException on a connection or protocol error
+     */
+    public Map<String, byte[]> getAll(Collection<String> keys) throws IOException {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        StringBuilder command = new StringBuilder("gets");
+        for (String key : keys) {
+            command.append(' ').append(key);
+        }
+        writeAscii(command.append("\r\n").toString());
+        flush();
+        readValues(values);
+        return values;
+    }
+
+    /**
+     * Stores a value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @throws IOException on a connection or protocol error
+     */
+    public void set(String key, byte[] value) throws IOException {
+        writeSet(key, value);
+        flush();
+        expectLine("STORED");
+    }
+
+    /**
+     * Stores several values, sending every command before reading the replies.
+     *
+     * @param values the values by key
+     * @throws IOException on a connection or protocol error
+     */
+    public void setAll(Map<String, byte[]> values) throws IOException {
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            writeSet(entry.getKey(), entry.getValue());
+        }
+        flush();
+        for (int i = 0; i < values.size(); i++) {
+            expectLine("STORED");
+        }
+    }
+
+    /**
+     * Deletes a key.
+     *
+     * @param key the key
+     * @return whether the key was present
+     * @throws IOException on a connection or protocol error
+     */
+    public boolean delete(String key) throws IOException {
+        writeAscii("delete " + key + "\r\n");
+        flush();
+        String reply = readLine();
+        if ("DELETED".equals(reply)) {
+            return true;
+        }
+        if ("NOT_FOUND".equals(reply)) {
+            return false;
+        }
+        throw new IOException("Unexpected reply: " + reply);
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeSet(String key, byte[] value) throws IOException {
+        writeAscii("set " + key + " 0 0 " + value.length + "\r\n");
+        write(value);
+        write(new byte[]{'\r', '\n'});
+    }
+
+    private void readValues(Map<String, byte[]> values) throws IOException {
+        while (true) {
+            String line = readLine();
+            if ("END".equals(line)) {
+                return;
+            }
+            String[] tokens = line.split(" ");
+            if (tokens.length < 4 || !"VALUE".equals(tokens[0])) {
+                throw new IOException("Unexpected reply: " + line);
+            }
+            byte[] value = new byte[Integer.parseInt(tokens[3])];
+            readFully(value);
+            if (!readLine().isEmpty()) {
+                throw new IOException("Missing data terminator for " + tokens[1]);
+            }
+            values.put(tokens[1], value);
+        }
+    }
+
+    private void expectLine(String expected) throws IOException {
+        String line = readLine();
+        if (!expected.equals(line)) {
+            throw new IOException("Unexpected reply: " + line);
+        }
+    }
+
+    private String readLine() throws IOException {
+        while (true) {
+            for (int i = in.position(), limit = in.limit() - 1; i < limit; i++) {
+                if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+                    byte[] line = new byte[i - in.position()];
+                    in.get(line);
+                    in.position(in.position() + 2);
+                    return new String(line, StandardCharsets.UTF_8);
+                }
+            }
+            fill();
+        }
+    }
+
+    private void readFully(byte[] target) throws IOException {
+        int offset = 0;
+        while (offset < target.length) {
+            if (!in.hasRemaining()) {
+                fill();
+            }
+            int count = Math.min(in.remaining(), target.length - offset);
+            in.get(target, offset, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Reads more bytes from the socket into the input buffer, which stays in read mode.
+     */
+    private void fill() throws IOException {
+        if (in.position() == 0 && in.limit() == in.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(in.capacity() * 2);
+            larger.put(in);
+            larger.flip();
+            in = larger;
+        }
+        in.compact();
+        int read = channel.read(in);
+        in.flip();
+        if (read < 0) {
+            throw new EOFException("Connection closed by server");
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (out.remaining() < bytes.length) {
+            flush();
+            if (out.capacity() < bytes.length) {
+                out = ByteBuffer.allocateDirect(bytes.length);
+            }
+        }
+        out.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,448 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Embeddable server exposing a {@link CacheService} over TCP with a subset of the memcached text protocol.
+ * <p>
+ * Supported commands:
+ * <ul>
+ *     <li>{@code get <key>*} and {@code gets <key>*}, returning every cached key followed by {@code END}</li>
+ *     <li>{@code set <key> <flags> <exptime> <bytes> [noreply]} followed by the data block</li>
+ *     <li>{@code delete <key> [noreply]}</li>
+ *     <li>{@code quit}</li>
+ * </ul>
+ * Flags and expiration times are accepted but not stored, values are returned with flags {@code 0}, and the
+ * {@code gets} cas unique is always {@code 0}.
+ * <p>
+ * All connections are served by one thread running a non-blocking {@link Selector} loop. Every command
+ * already received on a connection is executed before the responses are flushed, so pipelined requests
+ * are answered with a single write. Reads and writes go through direct buffers. Since only the server
+ * thread touches the cache, any implementation can be used; a cache also used by other threads must be
+ * thread-safe, for example a {@link ShardedCache}.
+ */
+public class MemcachedServer implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 2048;
+    private static final int MAX_KEY_LENGTH = 250;
+    private static final int MAX_VALUE_LENGTH = 1024 * 1024;
+
+    /**
+     * Once this many response bytes are pending on a connection, it is neither read nor parsed until the client catches
+     * up.
+     */
+    private static final int MAX_PENDING_OUTPUT = 4 * 1024 * 1024;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] VALUE = "VALUE ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "END\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STORED = "STORED\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DELETED = "DELETED\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOT_FOUND = "NOT_FOUND\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR = "ERROR\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BAD_FORMAT = "CLIENT_ERROR bad command line format\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BAD_CHUNK = "CLIENT_ERROR bad data chunk\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOO_LARGE = "SERVER_ERROR object too large for cache\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final CacheService<String, byte[]> cache;
+    private final InetSocketAddress address;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a server for the given cache. The server does not listen until {@link #start()} is called.
+     *
+     * @param cache   the cache to expose
+     * @param address the address to bind to; port {@code 0} picks a free port
+     */
+    public MemcachedServer(CacheService<String, byte[]> cache, InetSocketAddress address) {
+        this.cache = cache;
+        this.address = address;
+    }
+
+    /**
+     * Binds the server socket and starts the selector thread.
+     *
+     * @throws IOException if the socket cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this::run, "memcached-server-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the bound port
+     * @throws IOException if the port cannot be determined
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Stops the selector thread and closes every connection, the server socket and the selector, also after the
+     * selector thread has stopped on an error.
+     *
+     * @throws IOException if closing a socket fails; the other resources are closed anyway
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (selector == null || !selector.isOpen()) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        IOException failure = null;
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        selector.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Selector loop of the server thread.
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isWritable()) {
+                                connection.flush();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Only the failing connection is closed, for example when the cache throws on its command
+                        closeQuietly(key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // The key is cancelled, so the selector no longer serves the channel
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * State of one client connection: buffered input, pending output and a partially received {@code set}.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /**
+         * Key of the {@code set} whose data block has not fully arrived yet, or {@code null}.
+         */
+        private String pendingKey;
+        private int pendingLength;
+        private boolean pendingNoReply;
+
+        /**
+         * Bytes of a rejected data block still to be discarded.
+         */
+        private long skipRemaining;
+        private boolean closeAfterFlush;
+
+        /**
+         * Whether commands were left in the input buffer because too much output was pending.
+         */
+        private boolean paused;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            int read = channel.read(in);
+            if (read < 0) {
+                throw new IOException("Connection closed by client");
+            }
+            in.flip();
+            process();
+            in.compact();
+            flush();
+        }
+
+        /**
+         * Executes the complete commands in the input buffer, which is in read mode, until {@link #MAX_PENDING_OUTPUT}
+         * bytes of output are pending; the remaining commands are executed once the client has read enough of it.
+         */
+        private void process() {
+            while (!closeAfterFlush) {
+                if (out.position() >= MAX_PENDING_OUTPUT) {
+                    paused = true;
+                    return;
+                }
+                if (skipRemaining > 0) {
+                    int skipped = (int) Math.min(in.remaining(), skipRemaining);
+                    in.position(in.position() + skipped);
+                    skipRemaining -= skipped;
+                    if (skipRemaining > 0) {
+                        return;
+                    }
+                    continue;
+                }
+                if (pendingKey != null) {
+                    if (!readDataBlock()) {
+                        return;
+                    }
+                    continue;
+                }
+                int lineEnd = indexOfLineEnd();
+                if (lineEnd < 0) {
+                    if (in.remaining() > MAX_LINE_LENGTH) {
+                        write(BAD_FORMAT);
+                        closeAfterFlush = true;
+                    }
+                    return;
+                }
+                byte[] line = new byte[lineEnd - in.position()];
+                in.get(line);
+                in.position(in.position() + CRLF.length);
+                execute(new String(line, StandardCharsets.UTF_8));
+            }
+        }
+
+        private int indexOfLineEnd() {
+            for (int i = in.position(), limit = in.limit() - 1; i < limit; i++) {
+                if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void execute(String line) {
+            String[] tokens = line.trim().split(" +");
+            switch (tokens[0]) {
+                case "get":
+                case "gets":
+                    executeGet(tokens, tokens[0].length() == 4);
+                    break;
+                case "set":
+                    executeSet(tokens);
+                    break;
+                case "delete":
+                    executeDelete(tokens);
+                    break;
+                case "quit":
+                    closeAfterFlush = true;
+                    break;
+                default:
+                    write(ERROR);
+            }
+        }
+
+        private void executeGet(String[] tokens, boolean withCas) {
+            if (tokens.length < 2) {
+                write(ERROR);
+                return;
+            }
+            for (int i = 1; i < tokens.length; i++) {
+                byte[] value = cache.get(tokens[i]);
+                if (value != null) {
+                    write(VALUE);
+                    write(tokens[i].getBytes(StandardCharsets.UTF_8));
+                    write((" 0 " + value.length + (withCas ? " 0" : "")).getBytes(StandardCharsets.US_ASCII));
+                    write(CRLF);
+                    write(value);
+                    write(CRLF);
+                }
+            }
+            write(END);
+        }
+
+        private void executeSet(String[] tokens) {
+            int length;
+            try {
+                if (tokens.length < 5 || tokens.length > 6) {
+                    throw new NumberFormatException();
+                }
+                Integer.parseInt(tokens[2]);
+                Long.parseLong(tokens[3]);
+                length = Integer.parseInt(tokens[4]);
+            } catch (NumberFormatException e) {
+                write(BAD_FORMAT);
+                return;
+            }
+            if (length < 0 || tokens[1].length() > MAX_KEY_LENGTH) {
+                write(BAD_FORMAT);
+                return;
+            }
+            if (length > MAX_VALUE_LENGTH) {
+                write(TOO_LARGE);
+                skipRemaining = (long) length + CRLF.length;
+                return;
+            }
+            pendingKey = tokens[1];
+            pendingLength = length;
+            pendingNoReply = tokens.length == 6 && "noreply".equals(tokens[5]);
+        }
+
+        /**
+         * Consumes the data block of the pending {@code set} if it has fully arrived.
+         *
+         * @return whether the block was consumed
+         */
+        private boolean readDataBlock() {
+            int needed = pendingLength + CRLF.length;
+            if (in.remaining() < needed) {
+                if (in.capacity() < needed) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+                    larger.put(in);
+                    larger.flip();
+                    in = larger;
+                }
+                return false;
+            }
+            byte[] value = new byte[pendingLength];
+            in.get(value);
+            if (in.get() != '\r' || in.get() != '\n') {
+                write(BAD_CHUNK);
+            } else {
+                cache.put(pendingKey, value);
+                if (!pendingNoReply) {
+                    write(STORED);
+                }
+            }
+            pendingKey = null;
+            return true;
+        }
+
+        private void executeDelete(String[] tokens) {
+            if (tokens.length < 2 || tokens.length > 3) {
+                write(ERROR);
+                return;
+            }
+            // A single atomic removal that also reports whether the key had a value
+            boolean[] found = new boolean[1];
+            cache.compute(tokens[1], (key, value) -> {
+                found[0] = value != null;
+                return null;
+            });
+            if (tokens.length == 2 || !"noreply".equals(tokens[2])) {
+                write(found[0] ? DELETED : NOT_FOUND);
+            }
+        }
+
+        private void write(byte[] bytes) {
+            if (out.remaining() < bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + bytes.length));
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            out.put(bytes);
+        }
+
+        /**
+         * Writes as much pending output as the socket accepts, resumes the commands left in the input buffer once the
+         * output is below {@link #MAX_PENDING_OUTPUT}, and updates the selector interest.
+         */
+        void flush() throws IOException {
+            writeOut();
+            if (paused && out.position() < MAX_PENDING_OUTPUT) {
+                paused = false;
+                in.flip();
+                process();
+                in.compact();
+                writeOut();
+            }
+            boolean pending = out.position() > 0;
+            if (!pending && closeAfterFlush) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            int interest = pending ? SelectionKey.OP_WRITE : 0;
+            if (!paused && !closeAfterFlush) {
+                interest |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interest);
+        }
+
+        private void writeOut() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.cache;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts the capacity of a {@link ResizableCache} to the heap occupancy measured after garbage collection.
+ * <p>
+ * The largest capacity is the one the cache has when the controller is created. The controller registers a
+ * collection usage threshold at the soft limit on every heap pool that supports one, typically the old
+ * generation, and reacts to the resulting notifications right away; a periodic check covers the rest.
+ * Occupancy is the used share of those pools after their last collection, so it only changes when they are
+ * collected, and the capacity is adjusted at most once per collection.
+ * <ul>
+ *     <li>At or above the hard limit the capacity is halved.</li>
+ *     <li>At or above the soft limit the capacity shrinks by a tenth. Later collections keep shrinking it step
+ *     by step until occupancy drops below the soft limit, so eviction is spread over several collections.</li>
+ *     <li>Below four fifths of the soft limit the capacity grows back by a tenth of the largest capacity.</li>
+ * </ul>
+ * The capacity never drops below the given minimum. After shrinking, the controller's thread evicts the excess
+ * entries in batches of {@value #EVICTION_BATCH} until the cache is back within its capacity, so memory is freed
+ * even if the cache is idle. Capacity changes and evictions run while holding the cache's monitor, which is
+ * released between batches, so the cache must either be thread-safe, like {@link ShardedCache}, or be accessed
+ * only while synchronized on it.
+ * <p>
+ * Collection usage thresholds are global to the JVM. The thresholds the pools had before are restored when the
+ * controller is closed.
+ */
+public class MemoryPressureController implements Closeable {
+
+    /**
+     * Share of the soft limit below which the capacity grows again. The gap avoids oscillating around the limit.
+     */
+    static final double GROW_THRESHOLD = 0.8;
+
+    /**
+     * The number of excess entries evicted per task after the capacity was reduced.
+     */
+    static final int EVICTION_BATCH = 256;
+
+    private final ResizableCache<?, ?> cache;
+    private final double softLimit;
+    private final double hardLimit;
+    private final int minCapacity;
+    private final int maxCapacity;
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final List<Long> previousThresholds = new ArrayList<>();
+    private final List<GarbageCollectorMXBean> collectors = new ArrayList<>();
+    private final NotificationEmitter emitter;
+    private final NotificationListener listener;
+    private final ScheduledThreadPoolExecutor checker;
+
+    /**
+     * The number of collections of the watched pools at the last adjustment, only accessed by the controller's thread.
+     */
+    private long collectionCount = -1;
+
+    /**
+     * Whether an eviction task is scheduled, guarded by the cache's monitor.
+     */
+    private boolean evicting;
+
+    /**
+     * Constructs a controller and starts watching the heap.
+     *
+     * @param cache               the cache whose capacity is adjusted
+     * @param softLimit           the heap occupancy, between 0 and 1, above which the cache shrinks gradually
+     * @param hardLimit           the heap occupancy, between 0 and 1, above which the cache is halved
+     * @param minCapacity         the smallest capacity the cache is shrunk to
+     * @param checkIntervalMillis the time between periodic checks
+     */
+    public MemoryPressureController(ResizableCache<?, ?> cache, double softLimit, double hardLimit, int minCapacity, long checkIntervalMillis) {
+        if (!(softLimit > 0 && softLimit <= hardLimit && hardLimit <= 1)) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < softLimit <= hardLimit <= 1: " + softLimit + ", " + hardLimit);
+        }
+        this.cache = cache;
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+        this.maxCapacity = cache.getCapacity();
+        this.minCapacity = Math.min(minCapacity, maxCapacity);
+
+        this.checker = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-memory-pressure");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && pool.getUsage().getMax() > 0) {
+                pools.add(pool);
+                previousThresholds.add(pool.getCollectionUsageThreshold());
+                pool.setCollectionUsageThreshold((long) (pool.getUsage().getMax() * softLimit));
+            }
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            for (String poolName : collector.getMemoryPoolNames()) {
+                if (pools.stream().anyMatch(pool -> pool.getName().equals(poolName))) {
+                    collectors.add(collector);
+                    break;
+                }
+            }
+        }
+        this.emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        this.listener = this::onNotification;
+        emitter.addNotificationListener(listener, null, null);
+        checker.scheduleWithFixedDelay(this::check, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the used share of the watched heap pools after their last collection.
+     *
+     * @return the heap occupancy between 0 and 1, or {@code 0} if no collection has happened yet
+     */
+    public double getHeapOccupancy() {
+        long used = 0;
+        long max = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0) {
+                used += usage.getUsed();
+                max += usage.getMax();
+            }
+        }
+        return max == 0 ? 0 : (double) used / max;
+    }
+
+    /**
+     * Adjusts the capacity of the cache to the given heap occupancy. Entries beyond a reduced capacity are evicted
+     * on the controller's thread.
+     *
+     * @param heapOccupancy the heap occupancy between 0 and 1
+     * @return the new capacity
+     */
+    public int adjust(double heapOccupancy) {
+        synchronized (cache) {
+            int capacity = cache.getCapacity();
+            int target = capacity;
+            if (heapOccupancy >= hardLimit) {
+                target = capacity / 2;
+            } else if (heapOccupancy >= softLimit) {
+                target = capacity - Math.max(1, capacity / 10);
+            } else if (heapOccupancy < softLimit * GROW_THRESHOLD) {
+                target = capacity + Math.max(1, maxCapacity / 10);
+            }
+            target = Math.max(minCapacity, Math.min(maxCapacity, target));
+            if (target != capacity) {
+                cache.setCapacity(target);
+            }
+            if (cache.size() > target && !evicting) {
+                evicting = true;
+                scheduleEviction();
+            }
+            return target;
+        }
+    }
+
+    /**
+     * Stops watching the heap and restores the thresholds the pools had before. The cache keeps its current capacity.
+     */
+    @Override
+    public void close() {
+        checker.shutdownNow();
+        try {
+            emitter.removeNotificationListener(listener);
+        } catch (ListenerNotFoundException ignored) {
+            // Already removed
+        }
+        for (int i = 0; i < pools.size(); i++) {
+            pools.get(i).setCollectionUsageThreshold(previousThresholds.get(i));
+        }
+    }
+
+    /**
+     * Adjusts the capacity if the watched pools were collected since the last adjustment. The occupancy measured
+     * by the last collection would otherwise be acted on again, shrinking the cache repeatedly between collections.
+     */
+    private void check() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        if (count == collectionCount) {
+            return;
+        }
+        collectionCount = count;
+        adjust(getHeapOccupancy());
+    }
+
+    /**
+     * Evicts one batch of excess entries, and schedules the next batch while the cache is still above its capacity.
+     */
+    private void evictExcess() {
+        synchronized (cache) {
+            cache.evictExcess(EVICTION_BATCH);
+            if (cache.size() > Math.max(cache.getCapacity(), 0)) {
+                scheduleEviction();
+            } else {
+                evicting = false;
+            }
+        }
+    }
+
+    private void scheduleEviction() {
+        try {
+            checker.execute(this::evictExcess);
+        } catch (RejectedExecutionException e) {
+            // Closed; the cache's own operations evict the rest
+            evicting = false;
+        }
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            // Notifications arrive on a JMX thread; adjust on the controller's own thread instead
+            try {
+                checker.execute(this::check);
+            } catch (RejectedExecutionException ignored) {
+                // Closed
+            }
+        }
+    }
+}
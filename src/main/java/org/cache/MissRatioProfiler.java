@@ -0,0 +1,243 @@
+package org.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Online estimate of the miss-ratio curve of a cache policy, using spatially sampled miniature simulations (SHARDS).
+ * <p>
+ * For each capacity of interest, a miniature cache of the same policy simulates the full-size one on a sample of the
+ * keys. A key is sampled when its hash falls below a threshold, so every access to a sampled key is simulated and
+ * reuse patterns are preserved. A capacity {@code c} is simulated at the rate {@code min(1, m / c)} by a cache of
+ * {@code min(c, m)} entries, {@code m} being the number of sampled entries per simulation. The miss ratio of the
+ * miniature cache estimates that of the full-size cache, and memory stays bounded by {@code m} keys per capacity
+ * whatever the size of the real cache and of the key space.
+ * <p>
+ * With skewed traffic, the sample may hold more or fewer of the hottest keys than its rate suggests, so it sees more
+ * or fewer reads than expected, nearly all of them hits. As in SHARDS_adj, misses are therefore divided by the
+ * expected number of sampled reads rather than by the actual one, which attributes the difference to hits.
+ * <p>
+ * Simulated caches are filled on demand: a read that misses inserts the key, as a look-aside cache does after
+ * loading. Invalidations remove the key. Accesses to keys sampled by no simulation cost one hash; the others lock only
+ * the simulations sampling them.
+ *
+ * @param <K> the type of keys
+ */
+public class MissRatioProfiler<K> {
+
+    /**
+     * Hashes are reduced to 24 bits, so rates down to 1/16,777,216 can be represented.
+     */
+    private static final int HASH_BITS = 24;
+    private static final int DEFAULT_SAMPLED_ENTRIES = 1024;
+
+    private final Simulation<K>[] simulations;
+    private final int maxThreshold;
+    private final LongAdder reads = new LongAdder();
+
+    /**
+     * Constructs a profiler simulating each capacity with 1024 sampled entries.
+     *
+     * @param policy     creates a cache of the profiled policy with the given capacity
+     * @param capacities the capacities whose miss ratio is estimated
+     */
+    public MissRatioProfiler(IntFunction<? extends CacheService<K, Boolean>> policy, int[] capacities) {
+        this(policy, capacities, DEFAULT_SAMPLED_ENTRIES);
+    }
+
+    /**
+     * Constructs a profiler.
+     *
+     * @param policy         creates a cache of the profiled policy with the given capacity
+     * @param capacities     the capacities whose miss ratio is estimated
+     * @param sampledEntries the capacity of each miniature cache; more entries give a more accurate curve
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MissRatioProfiler(IntFunction<? extends CacheService<K, Boolean>> policy, int[] capacities, int sampledEntries) {
+        if (sampledEntries <= 0) {
+            throw new IllegalArgumentException("sampledEntries must be positive: " + sampledEntries);
+        }
+        if (capacities.length == 0) {
+            throw new IllegalArgumentException("at least one capacity is required");
+        }
+        int[] sorted = capacities.clone();
+        Arrays.sort(sorted);
+        this.simulations = new Simulation[sorted.length];
+        int max = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            int capacity = sorted[i];
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            }
+            int miniCapacity = Math.min(capacity, sampledEntries);
+            int threshold = (int) Math.max(1, (long) miniCapacity * (1 << HASH_BITS) / capacity);
+            simulations[i] = new Simulation<>(capacity, threshold, policy.apply(miniCapacity));
+            max = Math.max(max, threshold);
+        }
+        this.maxThreshold = max;
+    }
+
+    /**
+     * Records a read of a key, simulating a hit or a miss in every simulation sampling it.
+     *
+     * @param key the read key
+     */
+    public void recordRead(K key) {
+        reads.increment();
+        int hash = hash(key);
+        if (hash >= maxThreshold) {
+            return;
+        }
+        for (Simulation<K> simulation : simulations) {
+            if (hash < simulation.threshold) {
+                simulation.read(key);
+            }
+        }
+    }
+
+    /**
+     * Records the invalidation of a key, removing it from every simulation sampling it.
+     *
+     * @param key the invalidated key
+     */
+    public void recordInvalidation(K key) {
+        int hash = hash(key);
+        if (hash >= maxThreshold) {
+            return;
+        }
+        for (Simulation<K> simulation : simulations) {
+            if (hash < simulation.threshold) {
+                simulation.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated miss ratio of each profiled capacity, in ascending order of capacity.
+     * Capacities without sampled reads yet are omitted.
+     *
+     * @return the miss-ratio curve
+     */
+    public SortedMap<Integer, Double> getMissRatioCurve() {
+        SortedMap<Integer, Double> curve = new TreeMap<>();
+        long total = reads.sum();
+        for (Simulation<K> simulation : simulations) {
+            double missRatio = simulation.getMissRatio(total);
+            if (!Double.isNaN(missRatio)) {
+                curve.put(simulation.capacity, missRatio);
+            }
+        }
+        return Collections.unmodifiableSortedMap(curve);
+    }
+
+    /**
+     * Returns the estimated miss ratio of a capacity, interpolated linearly between the profiled capacities and
+     * extrapolated flat beyond them.
+     *
+     * @param capacity the capacity
+     * @return the estimated miss ratio, or {@code NaN} if no read has been sampled yet
+     */
+    public double estimateMissRatio(int capacity) {
+        SortedMap<Integer, Double> curve = getMissRatioCurve();
+        if (curve.isEmpty()) {
+            return Double.NaN;
+        }
+        SortedMap<Integer, Double> below = curve.headMap(capacity + 1);
+        SortedMap<Integer, Double> above = curve.tailMap(capacity);
+        if (below.isEmpty()) {
+            return curve.get(curve.firstKey());
+        }
+        if (above.isEmpty()) {
+            return curve.get(curve.lastKey());
+        }
+        int low = below.lastKey();
+        int high = above.firstKey();
+        if (low == high) {
+            return curve.get(low);
+        }
+        double fraction = (double) (capacity - low) / (high - low);
+        return curve.get(low) + fraction * (curve.get(high) - curve.get(low));
+    }
+
+    /**
+     * Returns the number of reads simulated at the smallest sampling rate, which bounds the accuracy of the curve.
+     *
+     * @return the smallest sampled read count
+     */
+    public long getSampledReadCount() {
+        long count = Long.MAX_VALUE;
+        for (Simulation<K> simulation : simulations) {
+            count = Math.min(count, simulation.getReadCount());
+        }
+        return count;
+    }
+
+    /**
+     * Clears the hit and miss counts, so that the curve reflects the traffic from now on. The simulated contents are
+     * kept, so the new counts do not start with cold caches.
+     */
+    public void resetCounts() {
+        reads.reset();
+        for (Simulation<K> simulation : simulations) {
+            simulation.resetCounts();
+        }
+    }
+
+    private static int hash(Object key) {
+        // The high bits, independent of the low bits ShardedCache selects shards with
+        return ShardedCache.spread(key.hashCode()) >>> (Integer.SIZE - HASH_BITS);
+    }
+
+    /**
+     * Miniature cache simulating one capacity on the keys whose hash is below its threshold.
+     */
+    private static final class Simulation<K> {
+        final int capacity;
+        final int threshold;
+        private final CacheService<K, Boolean> cache;
+        private long reads;
+        private long misses;
+
+        Simulation(int capacity, int threshold, CacheService<K, Boolean> cache) {
+            this.capacity = capacity;
+            this.threshold = threshold;
+            this.cache = cache;
+        }
+
+        synchronized void read(K key) {
+            reads++;
+            if (cache.get(key) == null) {
+                misses++;
+                cache.put(key, Boolean.TRUE);
+            }
+        }
+
+        synchronized void invalidate(K key) {
+            cache.evict(key);
+        }
+
+        /**
+         * Returns the misses divided by the expected number of sampled reads out of the given total.
+         */
+        synchronized double getMissRatio(long totalReads) {
+            double expectedReads = (double) totalReads * threshold / (1 << HASH_BITS);
+            if (reads == 0 || expectedReads == 0) {
+                return Double.NaN;
+            }
+            return Math.min(1, misses / expectedReads);
+        }
+
+        synchronized long getReadCount() {
+            return reads;
+        }
+
+        synchronized void resetCounts() {
+            reads = 0;
+            misses = 0;
+        }
+    }
+}
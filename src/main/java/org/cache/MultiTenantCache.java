@@ -0,0 +1,483 @@
+package org.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache shared by many tenants under one global capacity.
+ * <p>
+ * Every tenant gets its own key space, a {@link Tenant} view obtained from {@link #tenant(Object)}, kept in LRU
+ * order. Memory is not partitioned up front: an idle tenant's unused share is available to busy ones. A tenant can
+ * be given a quota:
+ * <ul>
+ *     <li>a minimum reservation, entries that are never evicted to make room for other tenants, and</li>
+ *     <li>a maximum share, beyond which the tenant evicts its own entries.</li>
+ * </ul>
+ * When the cache is full, the victim is the least recently used entry of the tenant furthest above its fair share.
+ * The fair share is the tenant's reservation plus an equal part of the unreserved capacity among the tenants holding
+ * entries, capped at the maximum share. Finding the victim scans the tenants, so eviction takes time linear in their
+ * number.
+ * <p>
+ * All operations synchronize on this cache, so the tenant views are thread-safe.
+ *
+ * @param <T> the type of tenant identifiers
+ * @param <K> the type of keys maintained by each tenant
+ * @param <V> the type of mapped values
+ */
+public class MultiTenantCache<T, K, V> {
+
+    private final Map<T, Tenant> tenants = new HashMap<>();
+    private int capacity;
+    private int size;
+    private long reserved;
+    private long evictionCount;
+
+    /**
+     * Constructs a cache shared by all tenants.
+     *
+     * @param capacity the maximum number of entries of all tenants together
+     */
+    public MultiTenantCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the view of a tenant, creating it without a reservation and with the whole capacity as its maximum share.
+     *
+     * @param id the tenant identifier
+     * @return the tenant's cache
+     */
+    public synchronized Tenant tenant(T id) {
+        return tenants.computeIfAbsent(id, Tenant::new);
+    }
+
+    /**
+     * Sets the quota of a tenant. Lowering the maximum share below the tenant's size evicts the tenant's excess
+     * entries over its following operations.
+     *
+     * @param id          the tenant identifier
+     * @param minReserved the number of entries never evicted on behalf of other tenants
+     * @param maxShare    the largest number of entries the tenant may hold
+     * @throws IllegalArgumentException if the reservation is negative or above the maximum share, or if the
+     *                                  reservations of all tenants would exceed the capacity
+     */
+    public synchronized void setQuota(T id, int minReserved, int maxShare) {
+        if (minReserved < 0 || minReserved > maxShare) {
+            throw new IllegalArgumentException("Invalid quota: minReserved=" + minReserved + ", maxShare=" + maxShare);
+        }
+        Tenant tenant = tenant(id);
+        long newReserved = reserved - tenant.minReserved + minReserved;
+        if (newReserved > capacity) {
+            throw new IllegalArgumentException("Reservations of " + newReserved + " entries exceed the capacity of " + capacity);
+        }
+        reserved = newReserved;
+        tenant.minReserved = minReserved;
+        tenant.maxShare = maxShare;
+    }
+
+    /**
+     * Removes a tenant and all its entries.
+     *
+     * @param id the tenant identifier
+     */
+    public synchronized void removeTenant(T id) {
+        Tenant tenant = tenants.remove(id);
+        if (tenant != null) {
+            size -= tenant.entries.size();
+            reserved -= tenant.minReserved;
+            tenant.entries.clear();
+        }
+    }
+
+    /**
+     * Returns the identifiers of the current tenants.
+     *
+     * @return a snapshot of the tenant identifiers
+     */
+    public synchronized List<T> getTenants() {
+        return new ArrayList<>(tenants.keySet());
+    }
+
+    /**
+     * Returns the number of entries of all tenants together.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of entries of all tenants together.
+     *
+     * @return the capacity
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. As with {@link ResizableCache#setCapacity(int)}, shrinking evicts the excess over the
+     * following operations.
+     *
+     * @param capacity the new maximum number of entries
+     * @throws IllegalArgumentException if the capacity is below the sum of the reservations
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < reserved) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is below the reservations of " + reserved + " entries");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the number of entries evicted from all tenants.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Evicts up to the given number of entries while the cache is over its capacity.
+     */
+    private void evictExcess(int maxEvictions) {
+        for (int i = 0; i < maxEvictions && size > capacity; i++) {
+            Tenant victim = selectVictim();
+            if (victim == null) {
+                return;
+            }
+            victim.evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Returns the tenant furthest above its fair share among those above their reservation, or {@code null} if none is.
+     */
+    private Tenant selectVictim() {
+        int active = 0;
+        for (Tenant tenant : tenants.values()) {
+            if (!tenant.entries.isEmpty()) {
+                active++;
+            }
+        }
+        long unreservedPerTenant = active == 0 ? 0 : Math.max(0, capacity - reserved) / active;
+        Tenant victim = null;
+        long largestExcess = Long.MIN_VALUE;
+        for (Tenant tenant : tenants.values()) {
+            int tenantSize = tenant.entries.size();
+            if (tenantSize <= tenant.minReserved) {
+                continue;
+            }
+            long fairShare = Math.min(tenant.minReserved + unreservedPerTenant, tenant.maxShare);
+            long excess = tenantSize - fairShare;
+            if (excess > largestExcess) {
+                largestExcess = excess;
+                victim = tenant;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * The cache of one tenant, with its own statistics.
+     */
+    public class Tenant implements CacheService<K, V> {
+
+        private final T id;
+        private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75F, true);
+        private int minReserved;
+        private int maxShare = Integer.MAX_VALUE;
+        private long hitCount;
+        private long missCount;
+        private long tenantEvictionCount;
+
+        private Tenant(T id) {
+            this.id = id;
+        }
+
+        /**
+         * Inserts the specified key-value pair. If the cache is full, an entry of the tenant furthest above its fair
+         * share is evicted, which may be this tenant; if this tenant is at its maximum share, its own least recently
+         * used entry is evicted.
+         *
+         * @param key   the key with which the specified value is to be associated
+         * @param value the value to be associated with the specified key
+         */
+        @Override
+        public void put(K key, V value) {
+            synchronized (MultiTenantCache.this) {
+                evictOverLimits();
+                if (entries.containsKey(key)) {
+                    entries.put(key, value);
+                    return;
+                }
+                if (maxShare <= 0 || tenants.get(id) != this) {
+                    return;
+                }
+                if (entries.size() >= maxShare) {
+                    evictLeastRecentlyUsed();
+                } else if (size >= capacity) {
+                    Tenant victim = selectVictim();
+                    if (victim == null) {
+                        // Every tenant is within its reservation, which only happens after the capacity was lowered
+                        return;
+                    }
+                    victim.evictLeastRecentlyUsed();
+                }
+                entries.put(key, value);
+                size++;
+            }
+        }
+
+        /**
+         * Returns the value to which the specified key is mapped in this tenant, or {@code null} if there is none.
+         * Accessing the key marks it as recently used.
+         *
+         * @param key the key whose associated value is to be returned
+         * @return the value to which the specified key is mapped, or {@code null} if this tenant contains no mapping for the key
+         */
+        @Override
+        public V get(K key) {
+            synchronized (MultiTenantCache.this) {
+                evictOverLimits();
+                V value = entries.get(key);
+                if (value != null) {
+                    hitCount++;
+                } else {
+                    missCount++;
+                }
+                return value;
+            }
+        }
+
+        /**
+         * Removes the mapping for a key from this tenant if it is present.
+         *
+         * @param key the key whose mapping is to be removed from the cache
+         */
+        @Override
+        public void evict(K key) {
+            synchronized (MultiTenantCache.this) {
+                if (entries.remove(key) != null) {
+                    size--;
+                }
+            }
+        }
+
+        /**
+         * Atomically inserts the specified value unless the key already has one in this tenant.
+         *
+         * @param key   the key with which the specified value is to be associated
+         * @param value the value to be associated with the specified key
+         * @return the existing value, or {@code null} if the value was inserted
+         */
+        @Override
+        public V putIfAbsent(K key, V value) {
+            synchronized (MultiTenantCache.this) {
+                return CacheService.super.putIfAbsent(key, value);
+            }
+        }
+
+        /**
+         * Atomically inserts a prefetched value unless the key already has one in this tenant, without counting a hit
+         * or a miss. The tenant keeps a single recency order, so the prefetched entry starts as most recently used.
+         *
+         * @param key   the key with which the specified value is to be associated
+         * @param value the prefetched value
+         */
+        @Override
+        public void prefetch(K key, V value) {
+            synchronized (MultiTenantCache.this) {
+                if (!entries.containsKey(key)) {
+                    put(key, value);
+                }
+            }
+        }
+
+        /**
+         * Atomically returns the value of the key in this tenant, computing and inserting it if there is none.
+         *
+         * @param key             the key whose associated value is to be returned
+         * @param mappingFunction computes the value when the key has none
+         * @return the existing or computed value, or {@code null} if the function returned {@code null}
+         */
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            synchronized (MultiTenantCache.this) {
+                return CacheService.super.computeIfAbsent(key, mappingFunction);
+            }
+        }
+
+        /**
+         * Atomically computes a new value from the key and its current value in this tenant. A {@code null} result
+         * removes the key.
+         *
+         * @param key               the key whose value is to be computed
+         * @param remappingFunction computes the new value
+         * @return the new value, or {@code null} if the key has none
+         */
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            synchronized (MultiTenantCache.this) {
+                return CacheService.super.compute(key, remappingFunction);
+            }
+        }
+
+        /**
+         * Atomically inserts the specified value if the key has none in this tenant, or else combines it with the current
+         * value. A {@code null} combination removes the key.
+         *
+         * @param key               the key whose value is to be merged
+         * @param value             the value to insert or combine
+         * @param remappingFunction combines the current value with the specified one
+         * @return the new value, or {@code null} if the key was removed
+         */
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            synchronized (MultiTenantCache.this) {
+                return CacheService.super.merge(key, value, remappingFunction);
+            }
+        }
+
+        /**
+         * Atomically replaces the value of the key in this tenant only if it has one.
+         *
+         * @param key   the key whose value is to be replaced
+         * @param value the new value
+         * @return the previous value, or {@code null} if the key had none and nothing was inserted
+         */
+        @Override
+        public V replace(K key, V value) {
+            synchronized (MultiTenantCache.this) {
+                return CacheService.super.replace(key, value);
+            }
+        }
+
+        /**
+         * Returns the tenant identifier.
+         *
+         * @return the identifier
+         */
+        public T getId() {
+            return id;
+        }
+
+        /**
+         * Returns the number of entries this tenant holds.
+         *
+         * @return the number of entries
+         */
+        public int size() {
+            synchronized (MultiTenantCache.this) {
+                return entries.size();
+            }
+        }
+
+        /**
+         * Returns the number of entries never evicted on behalf of other tenants.
+         *
+         * @return the reservation
+         */
+        public int getMinReserved() {
+            synchronized (MultiTenantCache.this) {
+                return minReserved;
+            }
+        }
+
+        /**
+         * Returns the largest number of entries this tenant may hold.
+         *
+         * @return the maximum share
+         */
+        public int getMaxShare() {
+            synchronized (MultiTenantCache.this) {
+                return maxShare;
+            }
+        }
+
+        /**
+         * Returns the share of the global capacity this tenant occupies.
+         *
+         * @return the occupancy between 0 and 1
+         */
+        public double getOccupancy() {
+            synchronized (MultiTenantCache.this) {
+                return capacity <= 0 ? 0 : (double) entries.size() / capacity;
+            }
+        }
+
+        /**
+         * Returns the number of lookups that found a value.
+         *
+         * @return the hit count
+         */
+        public long getHitCount() {
+            synchronized (MultiTenantCache.this) {
+                return hitCount;
+            }
+        }
+
+        /**
+         * Returns the number of lookups that found no value.
+         *
+         * @return the miss count
+         */
+        public long getMissCount() {
+            synchronized (MultiTenantCache.this) {
+                return missCount;
+            }
+        }
+
+        /**
+         * Returns the share of lookups that found a value.
+         *
+         * @return the hit rate, or 0 before the first lookup
+         */
+        public double getHitRate() {
+            synchronized (MultiTenantCache.this) {
+                long total = hitCount + missCount;
+                return total == 0 ? 0 : (double) hitCount / total;
+            }
+        }
+
+        /**
+         * Returns the number of entries evicted from this tenant, for its own sake or for other tenants.
+         *
+         * @return the eviction count
+         */
+        public long getEvictionCount() {
+            synchronized (MultiTenantCache.this) {
+                return tenantEvictionCount;
+            }
+        }
+
+        /**
+         * Evicts a few entries if the cache is over its capacity or this tenant over its maximum share, after they were lowered.
+         */
+        private void evictOverLimits() {
+            for (int i = 0; i < ResizableCache.EXCESS_EVICTIONS_PER_OPERATION && entries.size() > maxShare; i++) {
+                evictLeastRecentlyUsed();
+            }
+            if (size > capacity) {
+                evictExcess(ResizableCache.EXCESS_EVICTIONS_PER_OPERATION);
+            }
+        }
+
+        private void evictLeastRecentlyUsed() {
+            Iterator<K> iterator = entries.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+            size--;
+            tenantEvictionCount++;
+            evictionCount++;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.cache;
+
+/**
+ * Cache wrapper remembering keys confirmed absent from the backend, so that loaders are not called for them again.
+ * <p>
+ * When a loader returns {@code null}, the key is recorded in a counting Bloom filter. Later
+ * {@link #get(Object, CacheLoader)} calls for the key return {@code null} without calling the loader. A {@code put}
+ * removes the key's absent status. Absent keys expire by generation: the filter is split into several
+ * generations, new keys go to the newest one, and the oldest is cleared when the newest is full or older than the
+ * generation age. A key therefore stays known absent for at least one generation and at most all of them.
+ * <p>
+ * Because of false positives, about {@code falsePositiveRate} of the keys never recorded may be taken for absent
+ * and not loaded, until their generation expires or they are put. Keys whose absent status a {@code put} cannot
+ * remove exactly clear their generations instead, so a put key is never reported absent.
+ * <p>
+ * The filter is guarded by its own lock; the wrapped cache gets no extra synchronization.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class NegativeLookupCache<K, V> implements CacheService<K, V> {
+
+    private final CacheService<K, V> cache;
+    private final CountingBloomFilter[] generations;
+    private final int generationCapacity;
+    private final long generationNanos;
+    private int current;
+    private long generationStart;
+    private long skippedLoads;
+
+    /**
+     * Constructs a negative lookup cache.
+     *
+     * @param cache              the cache holding present values
+     * @param expectedAbsentKeys the number of absent keys recorded in one generation before it rotates
+     * @param falsePositiveRate  the share of other keys wrongly taken for absent, over all generations
+     * @param generationCount    the number of generations, at least 2
+     * @param generationMillis   the age after which the newest generation rotates even when not full
+     */
+    public NegativeLookupCache(CacheService<K, V> cache, int expectedAbsentKeys, double falsePositiveRate,
+                               int generationCount, long generationMillis) {
+        if (generationCount < 2) {
+            throw new IllegalArgumentException("generationCount must be at least 2: " + generationCount);
+        }
+        this.cache = cache;
+        this.generationCapacity = expectedAbsentKeys;
+        this.generationNanos = generationMillis * 1_000_000;
+        this.generations = new CountingBloomFilter[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            generations[i] = new CountingBloomFilter(expectedAbsentKeys, falsePositiveRate / generationCount);
+        }
+        this.generationStart = System.nanoTime();
+    }
+
+    /**
+     * Removes the key's absent status and inserts the specified key-value pair into the wrapped cache.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        clearAbsent(id);
+        cache.put(id, value);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped in the wrapped cache, or {@code null} if there is none.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Returns the cached value, or loads it unless the key is known to be absent.
+     * A {@code null} result of the loader marks the key absent.
+     *
+     * @param id     the key whose associated value is to be returned
+     * @param loader computes the value when the key is not cached
+     * @return the cached or loaded value, or {@code null} if the key is absent
+     */
+    @Override
+    public V get(K id, CacheLoader<? super K, ? extends V> loader) {
+        V value = cache.get(id);
+        if (value != null) {
+            return value;
+        }
+        if (isKnownAbsent(id)) {
+            synchronized (generations) {
+                skippedLoads++;
+            }
+            return null;
+        }
+        value = loader.load(id);
+        if (value == null) {
+            markAbsent(id);
+        } else {
+            put(id, value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the mapping for a key from the wrapped cache if it is present. The key is not marked absent.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        cache.evict(id);
+    }
+
+    /**
+     * Removes the key's absent status and inserts a prefetched value into the wrapped cache unless the key already
+     * has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        clearAbsent(id);
+        cache.prefetch(id, value);
+    }
+
+    /**
+     * Returns whether the key is known to be absent from the backend, subject to the false positive rate.
+     *
+     * @param id the key
+     * @return {@code true} if loading the key is skipped
+     */
+    public boolean isKnownAbsent(K id) {
+        synchronized (generations) {
+            rotateIfExpired();
+            for (CountingBloomFilter generation : generations) {
+                if (generation.mightContain(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Records that the key is absent from the backend.
+     *
+     * @param id the key
+     */
+    public void markAbsent(K id) {
+        synchronized (generations) {
+            rotateIfExpired();
+            CountingBloomFilter newest = generations[current];
+            if (newest.mightContain(id)) {
+                return;
+            }
+            if (newest.size() >= generationCapacity) {
+                rotate();
+                newest = generations[current];
+            }
+            newest.add(id);
+        }
+    }
+
+    /**
+     * Removes the key's absent status.
+     *
+     * @param id the key
+     */
+    public void clearAbsent(K id) {
+        synchronized (generations) {
+            for (CountingBloomFilter generation : generations) {
+                if (generation.mightContain(id)) {
+                    generation.remove(id);
+                    if (generation.mightContain(id)) {
+                        // A false positive or a saturated counter; only clearing the generation forgets the key
+                        generation.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of loader calls skipped because the key was known to be absent.
+     *
+     * @return the number of skipped loads
+     */
+    public long getSkippedLoadCount() {
+        synchronized (generations) {
+            return skippedLoads;
+        }
+    }
+
+    private void rotateIfExpired() {
+        if (System.nanoTime() - generationStart >= generationNanos) {
+            rotate();
+        }
+    }
+
+    /**
+     * Clears the oldest generation and makes it the newest.
+     */
+    private void rotate() {
+        current = (current + 1) % generations.length;
+        generations[current].clear();
+        generationStart = System.nanoTime();
+    }
+}
@@ -0,0 +1,497 @@
+package org.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache wrapper loading the next keys of sequential and strided read runs before they are requested.
+ * <p>
+ * A {@link KeyPattern} splits each key into a stream, such as a key prefix, and a position within it. Reads of a
+ * stream whose positions advance by the same stride twice in a row form a run, and the next {@code depth} keys of
+ * the run are loaded asynchronously with the loader. Values found are inserted with
+ * {@link CacheService#prefetch(Object, Object)}, at the lowest priority of the policy, so that wrong guesses are
+ * evicted first. A read missing a key whose prefetch is still loading waits for that load instead of starting
+ * another.
+ * <p>
+ * Prefetches draw on a token bucket refilled at {@code maxPrefetchesPerSecond}, holding at most one second of
+ * tokens. When it is empty, predicted keys are dropped rather than queued, so prefetching never exceeds its budget
+ * however many runs are detected. At most {@code maxStreams} streams are tracked, the least recently read being
+ * forgotten first.
+ * <p>
+ * Operations on the wrapped cache synchronize on it, so the wrapper is thread-safe whatever cache it wraps. The
+ * loader runs on the given executor, the common fork-join pool by default.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class PrefetchingCache<K, V> implements CacheService<K, V> {
+
+    private final CacheService<K, V> cache;
+    private final CacheLoader<K, V> loader;
+    private final KeyPattern<K> pattern;
+    private final int depth;
+    private final double maxPrefetchesPerSecond;
+    private final Executor executor;
+    private final Map<Object, Run> runs;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private double tokens;
+    private long refillNanos;
+    private long prefetchCount;
+    private long droppedPrefetchCount;
+
+    /**
+     * Constructs a prefetching cache running the loader on the common fork-join pool.
+     *
+     * @param cache                  the cache to fill
+     * @param loader                 loads predicted keys
+     * @param pattern                splits keys into streams and positions
+     * @param depth                  the number of keys loaded ahead of a run
+     * @param maxPrefetchesPerSecond the budget of prefetch loads
+     * @param maxStreams             the number of streams whose runs are tracked
+     */
+    public PrefetchingCache(CacheService<K, V> cache, CacheLoader<K, V> loader, KeyPattern<K> pattern, int depth,
+                            double maxPrefetchesPerSecond, int maxStreams) {
+        this(cache, loader, pattern, depth, maxPrefetchesPerSecond, maxStreams, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a prefetching cache.
+     *
+     * @param cache                  the cache to fill
+     * @param loader                 loads predicted keys
+     * @param pattern                splits keys into streams and positions
+     * @param depth                  the number of keys loaded ahead of a run
+     * @param maxPrefetchesPerSecond the budget of prefetch loads
+     * @param maxStreams             the number of streams whose runs are tracked
+     * @param executor               runs the loader
+     */
+    public PrefetchingCache(CacheService<K, V> cache, CacheLoader<K, V> loader, KeyPattern<K> pattern, int depth,
+                            double maxPrefetchesPerSecond, int maxStreams, Executor executor) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("depth must be positive: " + depth);
+        }
+        if (!(maxPrefetchesPerSecond > 0)) {
+            throw new IllegalArgumentException("maxPrefetchesPerSecond must be positive: " + maxPrefetchesPerSecond);
+        }
+        if (maxStreams <= 0) {
+            throw new IllegalArgumentException("maxStreams must be positive: " + maxStreams);
+        }
+        this.cache = cache;
+        this.loader = loader;
+        this.pattern = pattern;
+        this.depth = depth;
+        this.maxPrefetchesPerSecond = maxPrefetchesPerSecond;
+        this.executor = executor;
+        this.runs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Run> eldest) {
+                return size() > maxStreams;
+            }
+        };
+        this.tokens = Math.max(1, maxPrefetchesPerSecond);
+        this.refillNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the value of a key, waiting for its prefetch if one is loading, and prefetches the keys following it
+     * if it extends a run.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        V value;
+        CompletableFuture<V> prefetch;
+        synchronized (cache) {
+            // A prefetch inserts its value and leaves the loading map under the same lock, so one of them sees the key
+            value = cache.get(id);
+            prefetch = value == null ? loading.get(id) : null;
+        }
+        observe(id);
+        if (prefetch != null) {
+            value = prefetch.join();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of a key, waiting for its prefetch if one is loading or else loading it on a miss, and
+     * prefetches the keys following it if it extends a run. A loaded value is inserted before the prefetches start,
+     * so that its insertion cannot evict them.
+     *
+     * @param id     the key whose associated value is to be returned
+     * @param loader computes the value when the key is neither cached nor being prefetched
+     * @return the cached or loaded value, or {@code null} if the loader returned {@code null}
+     */
+    @Override
+    public V get(K id, CacheLoader<? super K, ? extends V> loader) {
+        V value;
+        CompletableFuture<V> prefetch;
+        synchronized (cache) {
+            value = cache.get(id);
+            prefetch = value == null ? loading.get(id) : null;
+        }
+        if (prefetch != null) {
+            observe(id);
+            value = prefetch.join();
+            if (value != null) {
+                return value;
+            }
+        }
+        if (value == null) {
+            value = loader.load(id);
+            if (value != null) {
+                put(id, value);
+            }
+        }
+        if (prefetch == null) {
+            observe(id);
+        }
+        return value;
+    }
+
+    /**
+     * Inserts the specified key-value pair into the wrapped cache. A prefetch of the key still loading is discarded.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        synchronized (cache) {
+            loading.remove(id);
+            cache.put(id, value);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from the wrapped cache if it is present. A prefetch of the key still loading is
+     * discarded, so that it cannot bring back the removed value.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        synchronized (cache) {
+            loading.remove(id);
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value into the wrapped cache unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        synchronized (cache) {
+            return cache.putIfAbsent(id, value);
+        }
+    }
+
+    /**
+     * Atomically inserts a prefetched value into the wrapped cache unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        synchronized (cache) {
+            cache.prefetch(id, value);
+        }
+    }
+
+    /**
+     * Atomically returns the value of the key in the wrapped cache, computing and inserting it if there is none.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        synchronized (cache) {
+            return cache.computeIfAbsent(id, mappingFunction);
+        }
+    }
+
+    /**
+     * Atomically computes a new value from the key and its current value in the wrapped cache.
+     * A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        synchronized (cache) {
+            loading.remove(id);
+            return cache.compute(id, remappingFunction);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value into the wrapped cache if the key has none, or else combines it with the
+     * current value. A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        synchronized (cache) {
+            loading.remove(id);
+            return cache.merge(id, value, remappingFunction);
+        }
+    }
+
+    /**
+     * Atomically replaces the value of the key in the wrapped cache only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        synchronized (cache) {
+            return cache.replace(id, value);
+        }
+    }
+
+    /**
+     * Returns the number of prefetch loads started.
+     *
+     * @return the prefetch count
+     */
+    public synchronized long getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    /**
+     * Returns the number of predicted keys not loaded because the budget was exhausted.
+     *
+     * @return the dropped prefetch count
+     */
+    public synchronized long getDroppedPrefetchCount() {
+        return droppedPrefetchCount;
+    }
+
+    /**
+     * Updates the run of the key's stream and starts the prefetches it calls for.
+     */
+    private void observe(K id) {
+        Object stream = pattern.stream(id);
+        if (stream == null) {
+            return;
+        }
+        long position = pattern.position(id);
+        long from;
+        long to;
+        long stride;
+        synchronized (this) {
+            Run run = runs.get(stream);
+            if (run == null) {
+                runs.put(stream, new Run(position));
+                return;
+            }
+            long delta = position - run.position;
+            run.position = position;
+            if (delta == 0) {
+                return;
+            }
+            if (delta != run.stride) {
+                run.stride = delta;
+                run.prefetched = position;
+                return;
+            }
+            // Resume after the keys already prefetched for this run, but not behind the current position
+            stride = delta;
+            long ahead = Math.max(0, (run.prefetched - position) / stride);
+            from = ahead + 1;
+            to = depth;
+            if (from > to) {
+                return;
+            }
+            int granted = acquire((int) (to - from + 1));
+            droppedPrefetchCount += to - from + 1 - granted;
+            to = from + granted - 1;
+            if (granted == 0) {
+                return;
+            }
+            run.prefetched = position + to * stride;
+            prefetchCount += granted;
+        }
+        for (long i = from; i <= to; i++) {
+            startPrefetch(pattern.key(stream, position + i * stride));
+        }
+    }
+
+    /**
+     * Takes up to {@code wanted} tokens from the bucket after refilling it for the time elapsed. The caller holds
+     * the lock.
+     *
+     * @return the number of tokens taken
+     */
+    private int acquire(int wanted) {
+        long now = System.nanoTime();
+        tokens = Math.min(Math.max(1, maxPrefetchesPerSecond),
+                tokens + (now - refillNanos) / 1e9 * maxPrefetchesPerSecond);
+        refillNanos = now;
+        int granted = (int) Math.min(wanted, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+
+    private void startPrefetch(K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> load(key, future));
+        } catch (RejectedExecutionException e) {
+            loading.remove(key, future);
+            future.complete(null);
+        }
+    }
+
+    private void load(K key, CompletableFuture<V> future) {
+        V value = null;
+        try {
+            value = loader.load(key);
+        } catch (RuntimeException e) {
+            // A failed guess is only a missed opportunity; the key is loaded on demand if it is read
+        }
+        synchronized (cache) {
+            // Skipped if the key was written or evicted meanwhile
+            if (loading.remove(key, future) && value != null) {
+                cache.prefetch(key, value);
+            }
+        }
+        future.complete(value);
+    }
+
+    /**
+     * Splits keys into a stream and a position, and builds the key found at a position of a stream.
+     *
+     * @param <K> the type of keys
+     */
+    public interface KeyPattern<K> {
+
+        /**
+         * Returns the stream of a key, such as its prefix.
+         *
+         * @param key the key
+         * @return the stream, or {@code null} if the key belongs to no stream and is never prefetched
+         */
+        Object stream(K key);
+
+        /**
+         * Returns the position of a key within its stream.
+         *
+         * @param key a key whose stream is not {@code null}
+         * @return the position
+         */
+        long position(K key);
+
+        /**
+         * Returns the key found at a position of a stream.
+         *
+         * @param stream   the stream
+         * @param position the position
+         * @return the key
+         */
+        K key(Object stream, long position);
+
+        /**
+         * Returns a pattern treating all {@code Long} keys as one stream positioned by their value.
+         *
+         * @return the pattern
+         */
+        static KeyPattern<Long> numeric() {
+            return new KeyPattern<>() {
+                @Override
+                public Object stream(Long key) {
+                    return Boolean.TRUE;
+                }
+
+                @Override
+                public long position(Long key) {
+                    return key;
+                }
+
+                @Override
+                public Long key(Object stream, long position) {
+                    return position;
+                }
+            };
+        }
+
+        /**
+         * Returns a pattern for string keys ending with a number after the last separator, such as
+         * {@code "report:7:page:42"}. The text up to the separator is the stream and the number the position.
+         * Keys without a numeric suffix belong to no stream.
+         *
+         * @param separator the separator preceding the position
+         * @return the pattern
+         */
+        static KeyPattern<String> suffixed(String separator) {
+            return new KeyPattern<>() {
+                @Override
+                public Object stream(String key) {
+                    int index = key.lastIndexOf(separator);
+                    int start = index + separator.length();
+                    if (index < 0 || start == key.length() || start + 18 < key.length()) {
+                        return null;
+                    }
+                    for (int i = start; i < key.length(); i++) {
+                        if (key.charAt(i) < '0' || key.charAt(i) > '9') {
+                            return null;
+                        }
+                    }
+                    return key.substring(0, start);
+                }
+
+                @Override
+                public long position(String key) {
+                    return Long.parseLong(key.substring(key.lastIndexOf(separator) + separator.length()));
+                }
+
+                @Override
+                public String key(Object stream, long position) {
+                    return stream + Long.toString(position);
+                }
+            };
+        }
+    }
+
+    /**
+     * The last position read in a stream, the stride leading to it and how far the run has been prefetched.
+     */
+    private static final class Run {
+        long position;
+        long stride;
+        long prefetched;
+
+        Run(long position) {
+            this.position = position;
+            this.prefetched = position;
+        }
+    }
+}
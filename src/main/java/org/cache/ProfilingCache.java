@@ -0,0 +1,148 @@
+package org.cache;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cache wrapper feeding reads and invalidations into a {@link MissRatioProfiler}.
+ * <p>
+ * {@code get} and {@code computeIfAbsent} count as reads, and {@code evict} as an invalidation. Writes are not
+ * recorded, since the simulated caches insert a key themselves when a read misses. The profiler is thread-safe; the
+ * wrapper adds no other synchronization, so it is as thread-safe as the wrapped cache.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class ProfilingCache<K, V> implements CacheService<K, V> {
+
+    private final CacheService<K, V> cache;
+    private final MissRatioProfiler<K> profiler;
+
+    /**
+     * Constructs a profiling cache.
+     *
+     * @param cache    the cache whose reads are profiled
+     * @param profiler the profiler recording the reads
+     */
+    public ProfilingCache(CacheService<K, V> cache, MissRatioProfiler<K> profiler) {
+        this.cache = cache;
+        this.profiler = profiler;
+    }
+
+    /**
+     * Inserts the specified key-value pair into the wrapped cache.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        cache.put(id, value);
+    }
+
+    /**
+     * Records a read of the key and returns its value in the wrapped cache, or {@code null} if there is none.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        profiler.recordRead(id);
+        return cache.get(id);
+    }
+
+    /**
+     * Records an invalidation of the key and removes its mapping from the wrapped cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        profiler.recordInvalidation(id);
+        cache.evict(id);
+    }
+
+    /**
+     * Inserts the specified value into the wrapped cache unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        return cache.putIfAbsent(id, value);
+    }
+
+    /**
+     * Inserts a prefetched value into the wrapped cache unless the key already has one. Not recorded as a read.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        cache.prefetch(id, value);
+    }
+
+    /**
+     * Records a read of the key and returns its value in the wrapped cache, computing and inserting it if there is none.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        profiler.recordRead(id);
+        return cache.computeIfAbsent(id, mappingFunction);
+    }
+
+    /**
+     * Computes the new value of the key in the wrapped cache. A {@code null} result removes the key.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return cache.compute(id, remappingFunction);
+    }
+
+    /**
+     * Inserts the specified value into the wrapped cache if the key has none, or else combines it with the current
+     * value. A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return cache.merge(id, value, remappingFunction);
+    }
+
+    /**
+     * Replaces the value of the key in the wrapped cache only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        return cache.replace(id, value);
+    }
+
+    /**
+     * Returns the profiler recording the reads.
+     *
+     * @return the profiler
+     */
+    public MissRatioProfiler<K> getProfiler() {
+        return profiler;
+    }
+}
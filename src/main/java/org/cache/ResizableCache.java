@@ -0,0 +1,56 @@
+package org.cache;
+
+/**
+ * A {@link CacheService} whose capacity can be changed while it is in use.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public interface ResizableCache<K, V> extends CacheService<K, V> {
+
+    /**
+     * The largest number of excess entries a {@code get} or {@code put} evicts while the cache is above its capacity.
+     */
+    int EXCESS_EVICTIONS_PER_OPERATION = 4;
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    int size();
+
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    int getCapacity();
+
+    /**
+     * Changes the capacity. Growing takes effect immediately. Shrinking evicts nothing by itself: every following
+     * {@code get} or {@code put} evicts up to {@link #EXCESS_EVICTIONS_PER_OPERATION} entries beyond the capacity,
+     * according to the cache's policy, so the cost is spread over many operations. A {@code put} never lets the size
+     * grow while the cache is above its capacity.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Evicts entries according to the cache's policy while the cache holds more than its capacity, for example
+     * from a background task after shrinking.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    int evictExcess(int maxEvictions);
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     * Explicit {@link #evict} calls are not counted.
+     *
+     * @return the eviction count
+     */
+    long getEvictionCount();
+}
@@ -0,0 +1,588 @@
+package org.cache;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Approximate LRU cache evicting by sampling, in the manner of Redis.
+ * <p>
+ * Entries live in an open-addressing table of three parallel arrays: keys, values and an {@code int} access stamp.
+ * There are no nodes and no linked list, so an entry costs two references and four bytes besides the key and
+ * value themselves, and a hit writes a single {@code int}. Stamps come from a logical clock advanced by every
+ * access; idle times are computed by subtraction, which stays correct when the clock wraps around.
+ * <p>
+ * To evict, a few entries are sampled at random and offered to a small pool of the idlest candidates seen so far,
+ * sorted by idle time. The idlest pool entry that has not been accessed since it was sampled is evicted. Candidates
+ * left in the pool carry over to later evictions, which brings the hit rate close to that of exact LRU.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class SampledLRUCache<K, V> implements ResizableCache<K, V> {
+
+    private static final int DEFAULT_SAMPLES = 5;
+    private static final int POOL_SIZE = 16;
+
+    /**
+     * How long ago prefetched entries appear to have been accessed: older than any entry read since, short of the
+     * wrap-around of the clock.
+     */
+    private static final int PREFETCH_AGE = 1 << 30;
+
+    private final int samples;
+    private int capacity;
+    private int size;
+    private long evictionCount;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] stamps;
+    private int mask;
+    private int clock;
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    /**
+     * Eviction candidates with the stamps they had when sampled, idlest last.
+     */
+    private final Object[] poolKeys = new Object[POOL_SIZE];
+    private final int[] poolStamps = new int[POOL_SIZE];
+    private int poolCount;
+
+    /**
+     * Constructs a cache sampling 5 entries per eviction.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public SampledLRUCache(int capacity) {
+        this(capacity, DEFAULT_SAMPLES);
+    }
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity the maximum number of entries
+     * @param samples  the number of entries sampled per eviction; more samples evict closer to exact LRU
+     */
+    public SampledLRUCache(int capacity, int samples) {
+        if (samples <= 0) {
+            throw new IllegalArgumentException("samples must be positive: " + samples);
+        }
+        this.capacity = capacity;
+        this.samples = samples;
+        allocate(tableSize(capacity));
+    }
+
+    /**
+     * Inserts the specified key-value pair into the cache.
+     * If the cache previously contained a mapping for the key, the old value is replaced.
+     * If the cache is full, an entry chosen by sampling is evicted first.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        if (capacity <= 0) return;
+
+        int hash = spread(id);
+        int slot = probe(id, hash);
+        if (slot >= 0) {
+            values[slot] = value;
+            stamps[slot] = ++clock;
+            return;
+        }
+        insert(id, hash, ~slot, value, ++clock);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     * Accessing the key refreshes its stamp.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K id) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int slot = find(id);
+        if (slot < 0) {
+            return null;
+        }
+        stamps[slot] = ++clock;
+        return (V) values[slot];
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        int slot = find(id);
+        if (slot >= 0) {
+            delete(slot);
+        }
+    }
+
+    /**
+     * Inserts the specified value unless the key already has one, with a single lookup.
+     * An existing entry's stamp is refreshed.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int hash = spread(id);
+        int slot = probe(id, hash);
+        if (slot >= 0) {
+            stamps[slot] = ++clock;
+            return (V) values[slot];
+        }
+        insert(id, hash, ~slot, value, ++clock);
+        return null;
+    }
+
+    /**
+     * Returns the value of the key, computing and inserting it if there is none, with a single lookup.
+     * The function must not modify this cache.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int hash = spread(id);
+        int slot = probe(id, hash);
+        if (slot >= 0) {
+            stamps[slot] = ++clock;
+            return (V) values[slot];
+        }
+        V value = mappingFunction.apply(id);
+        if (value != null) {
+            insert(id, hash, ~slot, value, ++clock);
+        }
+        return value;
+    }
+
+    /**
+     * Computes a new value from the key and its current value with a single lookup.
+     * A {@code null} result removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int hash = spread(id);
+        int slot = probe(id, hash);
+        V value = remappingFunction.apply(id, slot >= 0 ? (V) values[slot] : null);
+        update(id, hash, slot, value);
+        return value;
+    }
+
+    /**
+     * Inserts the specified value if the key has none, or else combines it with the current value, with a single lookup.
+     * A {@code null} combination removes the key. The function must not modify this cache.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int hash = spread(id);
+        int slot = probe(id, hash);
+        V merged = slot >= 0 ? remappingFunction.apply((V) values[slot], value) : value;
+        update(id, hash, slot, merged);
+        return merged;
+    }
+
+    /**
+     * Replaces the value of the key only if it has one, with a single lookup, and refreshes its stamp.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        int slot = find(id);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        values[slot] = value;
+        stamps[slot] = ++clock;
+        return previous;
+    }
+
+    /**
+     * Inserts a prefetched value unless the key already has one. Its stamp is set far in the past, so that sampling
+     * picks it before any entry that has been read. When the cache is full, the idlest sampled unread prefetch is
+     * evicted; if the samples find only entries that have been read, the prefetch is dropped, so wrong guesses do not
+     * evict the working set. An existing entry is left untouched.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        if (size > capacity) {
+            evictExcess(EXCESS_EVICTIONS_PER_OPERATION);
+        }
+        if (capacity <= 0) return;
+
+        int hash = spread(id);
+        int slot = probe(id, hash);
+        if (slot >= 0) return;
+
+        slot = ~slot;
+        if (size >= capacity) {
+            if (!evictUnreadPrefetch()) return;
+            slot = emptySlot(hash);
+        }
+        insert(id, hash, slot, value, clock - PREFETCH_AGE);
+    }
+
+    /**
+     * Returns the number of entries currently held.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of entries the cache holds.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity. Growing takes effect immediately; after shrinking, entries beyond the capacity are evicted
+     * a few at a time by the following operations, or by {@link #evictExcess(int)}.
+     *
+     * @param capacity the new maximum number of entries
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Evicts entries chosen by sampling while the cache holds more than its capacity.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        while (evicted < maxEvictions && size > Math.max(capacity, 0)) {
+            evictOne();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the capacity since the cache was created.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Stores the result of a computation for the slot found by the caller: updates it, inserts a new entry or removes it.
+     *
+     * @param id    the key
+     * @param hash  the spread hash of the key
+     * @param slot  the slot of the key, or the complement of the empty slot ending its probe run if it has none
+     * @param value the new value, or {@code null} to remove the key
+     */
+    private void update(K id, int hash, int slot, V value) {
+        if (slot < 0) {
+            if (value != null) {
+                insert(id, hash, ~slot, value, ++clock);
+            }
+        } else if (value == null) {
+            delete(slot);
+        } else {
+            values[slot] = value;
+            stamps[slot] = ++clock;
+        }
+    }
+
+    /**
+     * Inserts an entry for a key the cache does not hold into the empty slot ending its probe run, evicting an entry
+     * chosen by sampling if the cache is full. An eviction or a rehash may move entries, so the slot is found again
+     * after one, from the hash alone.
+     *
+     * @param id    the key
+     * @param hash  the spread hash of the key
+     * @param slot  the empty slot ending the probe run of the key
+     * @param value the value
+     * @param stamp the access stamp of the entry
+     */
+    private void insert(K id, int hash, int slot, V value, int stamp) {
+        if (capacity <= 0) return;
+
+        if (size >= capacity) {
+            evictOne();
+            slot = emptySlot(hash);
+        }
+        if (size + 1 > maxLoad(keys.length)) {
+            rehash(keys.length * 2);
+            slot = emptySlot(hash);
+        }
+        keys[slot] = id;
+        values[slot] = value;
+        stamps[slot] = stamp;
+        size++;
+    }
+
+    /**
+     * Refills the pool with fresh samples and evicts its idlest candidate that was not accessed since it was sampled.
+     */
+    private void evictOne() {
+        while (true) {
+            for (int i = 0; i < samples; i++) {
+                int slot = randomOccupiedSlot();
+                offer(keys[slot], stamps[slot]);
+            }
+            while (poolCount > 0) {
+                poolCount--;
+                Object key = poolKeys[poolCount];
+                int stamp = poolStamps[poolCount];
+                poolKeys[poolCount] = null;
+                int slot = find(key);
+                if (slot >= 0 && stamps[slot] == stamp) {
+                    delete(slot);
+                    evictionCount++;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the idlest of up to {@code samples} sampled unread prefetches, sparing entries that have been read.
+     *
+     * @return whether an entry was evicted, {@code false} if the samples found only entries that have been read
+     */
+    private boolean evictUnreadPrefetch() {
+        int victim = -1;
+        int found = 0;
+        for (int draw = 0; draw < samples * 4 && found < samples; draw++) {
+            int slot = randomOccupiedSlot();
+            int idle = clock - stamps[slot];
+            if (idle >= PREFETCH_AGE) {
+                found++;
+                if (victim < 0 || idle > clock - stamps[victim]) {
+                    victim = slot;
+                }
+            }
+        }
+        if (victim < 0) {
+            return false;
+        }
+        delete(victim);
+        evictionCount++;
+        return true;
+    }
+
+    /**
+     * Adds a candidate to the pool, kept sorted by idle time, unless the pool is full of idler candidates.
+     */
+    private void offer(Object key, int stamp) {
+        int idle = clock - stamp;
+        for (int i = 0; i < poolCount; i++) {
+            if (poolKeys[i].equals(key)) {
+                if (poolStamps[i] == stamp) {
+                    return;
+                }
+                // Accessed since it was sampled; drop the outdated candidate
+                System.arraycopy(poolKeys, i + 1, poolKeys, i, poolCount - i - 1);
+                System.arraycopy(poolStamps, i + 1, poolStamps, i, poolCount - i - 1);
+                poolKeys[--poolCount] = null;
+                break;
+            }
+        }
+        int position = 0;
+        while (position < poolCount && clock - poolStamps[position] < idle) {
+            position++;
+        }
+        if (poolCount == POOL_SIZE) {
+            if (position == 0) {
+                return;
+            }
+            // Drop the least idle candidate to make room
+            position--;
+            System.arraycopy(poolKeys, 1, poolKeys, 0, position);
+            System.arraycopy(poolStamps, 1, poolStamps, 0, position);
+        } else {
+            System.arraycopy(poolKeys, position, poolKeys, position + 1, poolCount - position);
+            System.arraycopy(poolStamps, position, poolStamps, position + 1, poolCount - position);
+            poolCount++;
+        }
+        poolKeys[position] = key;
+        poolStamps[position] = stamp;
+    }
+
+    /**
+     * Returns the first occupied slot at or after a random one. The cache must not be empty.
+     */
+    private int randomOccupiedSlot() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        int slot = (int) seed & mask;
+        while (keys[slot] == null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int find(Object key) {
+        int slot = probe(key, spread(key));
+        return slot >= 0 ? slot : -1;
+    }
+
+    /**
+     * Returns the slot holding the key, or the complement of the empty slot ending its probe run if it is absent.
+     */
+    private int probe(Object key, int hash) {
+        int slot = hash & mask;
+        Object candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    /**
+     * Returns the first empty slot of the probe run starting at the home slot of a hash.
+     */
+    private int emptySlot(int hash) {
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot and shifts back the following entries of its probe run, so that no tombstones are needed.
+     */
+    private void delete(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            Object key = keys[next];
+            if (key == null) {
+                break;
+            }
+            int home = spread(key) & mask;
+            // The entry may fill the hole unless its home slot lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[next];
+                stamps[hole] = stamps[next];
+                hole = next;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+    }
+
+    private void rehash(int tableSize) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldStamps = stamps;
+        allocate(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int slot = emptySlot(spread(key));
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+                stamps[slot] = oldStamps[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new Object[tableSize];
+        values = new Object[tableSize];
+        stamps = new int[tableSize];
+        mask = tableSize - 1;
+        Arrays.fill(poolKeys, null);
+        poolCount = 0;
+    }
+
+    /**
+     * Returns the smallest power-of-two table keeping the load factor at most 3/4 for the given number of entries.
+     */
+    private static int tableSize(int entries) {
+        int size = 16;
+        while (maxLoad(size) < entries && size < (1 << 30)) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static int maxLoad(int tableSize) {
+        return tableSize - (tableSize >>> 2);
+    }
+
+    private static int spread(Object key) {
+        return ShardedCache.spread(key.hashCode());
+    }
+}
@@ -0,0 +1,319 @@
+package org.cache;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Thread-safe cache that partitions keys across independent shards.
+ * <p>
+ * Each shard wraps its own {@link ResizableCache} instance, created by the supplied factory with the shard's
+ * share of the total capacity, and is guarded by its own lock, so threads working on different shards never
+ * contend. Shard capacities add up exactly to the requested total. Keys are assigned to shards by a mixed
+ * hash code, so keys whose hash codes differ only in their high bits are still spread over all shards.
+ * <p>
+ * The total capacity can be changed at runtime and is redistributed over the shards, one shard lock at a time.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class ShardedCache<K, V> implements ResizableCache<K, V> {
+
+    private final ResizableCache<K, V>[] shards;
+    private final int mask;
+    private volatile int capacity;
+
+    /**
+     * Constructs a sharded cache with one shard per available processor.
+     *
+     * @param capacity the maximum number of elements the whole cache can hold
+     * @param factory  creates the cache of one shard for a given shard capacity, for example {@code LRUDoublyLinkedListCache::new}
+     */
+    public ShardedCache(int capacity, IntFunction<? extends ResizableCache<K, V>> factory) {
+        this(capacity, Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    /**
+     * Constructs a sharded cache.
+     * The shard count is rounded up to a power of two, but never exceeds the capacity.
+     *
+     * @param capacity   the maximum number of elements the whole cache can hold
+     * @param shardCount the requested number of shards
+     * @param factory    creates the cache of one shard for a given shard capacity, for example {@code LRUDoublyLinkedListCache::new}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedCache(int capacity, int shardCount, IntFunction<? extends ResizableCache<K, V>> factory) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(shardCount, capacity)));
+        if (count < shardCount && count * 2 <= capacity) {
+            count *= 2;
+        }
+        this.shards = new ResizableCache[count];
+        this.mask = count - 1;
+        this.capacity = capacity;
+        for (int i = 0; i < count; i++) {
+            shards[i] = factory.apply(shardCapacity(capacity, i));
+        }
+    }
+
+    /**
+     * Inserts the specified key-value pair into the shard owning the key.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            shard.put(id, value);
+        }
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if this cache contains no mapping for the key
+     */
+    @Override
+    public V get(K id) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            return shard.get(id);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            shard.evict(id);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the existing value, or {@code null} if the value was inserted
+     */
+    @Override
+    public V putIfAbsent(K id, V value) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            return shard.putIfAbsent(id, value);
+        }
+    }
+
+    /**
+     * Atomically returns the value of the key, computing and inserting it if there is none.
+     * Other keys of the same shard wait while the function runs.
+     *
+     * @param id              the key whose associated value is to be returned
+     * @param mappingFunction computes the value when the key has none
+     * @return the existing or computed value, or {@code null} if the function returned {@code null}
+     */
+    @Override
+    public V computeIfAbsent(K id, Function<? super K, ? extends V> mappingFunction) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            return shard.computeIfAbsent(id, mappingFunction);
+        }
+    }
+
+    /**
+     * Atomically computes a new value from the key and its current value. A {@code null} result removes the key.
+     * Other keys of the same shard wait while the function runs.
+     *
+     * @param id                the key whose value is to be computed
+     * @param remappingFunction computes the new value
+     * @return the new value, or {@code null} if the key has none
+     */
+    @Override
+    public V compute(K id, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            return shard.compute(id, remappingFunction);
+        }
+    }
+
+    /**
+     * Atomically inserts the specified value if the key has none, or else combines it with the current value.
+     * A {@code null} combination removes the key.
+     *
+     * @param id                the key whose value is to be merged
+     * @param value             the value to insert or combine
+     * @param remappingFunction combines the current value with the specified one
+     * @return the new value, or {@code null} if the key was removed
+     */
+    @Override
+    public V merge(K id, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            return shard.merge(id, value, remappingFunction);
+        }
+    }
+
+    /**
+     * Atomically replaces the value of the key only if it has one.
+     *
+     * @param id    the key whose value is to be replaced
+     * @param value the new value
+     * @return the previous value, or {@code null} if the key had none and nothing was inserted
+     */
+    @Override
+    public V replace(K id, V value) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            return shard.replace(id, value);
+        }
+    }
+
+    /**
+     * Atomically inserts a prefetched value with the shard's lowest priority unless the key already has one.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the prefetched value
+     */
+    @Override
+    public void prefetch(K id, V value) {
+        ResizableCache<K, V> shard = shardFor(id);
+        synchronized (shard) {
+            shard.prefetch(id, value);
+        }
+    }
+
+    /**
+     * Returns the number of entries held by all shards together. Shards are counted one after another, so
+     * under concurrent updates the result is only an estimate.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (ResizableCache<K, V> shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of elements the whole cache can hold.
+     *
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the total capacity and redistributes it over the shards. Shards that shrink evict their excess
+     * entries gradually, according to their own policy.
+     *
+     * @param capacity the new maximum number of elements the whole cache can hold
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        for (int i = 0; i < shards.length; i++) {
+            ResizableCache<K, V> shard = shards[i];
+            synchronized (shard) {
+                shard.setCapacity(shardCapacity(capacity, i));
+            }
+        }
+    }
+
+    /**
+     * Evicts excess entries shard by shard, holding one shard lock at a time.
+     *
+     * @param maxEvictions the largest number of entries to evict
+     * @return the number of evicted entries
+     */
+    @Override
+    public int evictExcess(int maxEvictions) {
+        int evicted = 0;
+        for (ResizableCache<K, V> shard : shards) {
+            if (evicted >= maxEvictions) {
+                break;
+            }
+            synchronized (shard) {
+                evicted += shard.evictExcess(maxEvictions - evicted);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted by all shards together.
+     *
+     * @return the eviction count
+     */
+    @Override
+    public long getEvictionCount() {
+        long count = 0;
+        for (ResizableCache<K, V> shard : shards) {
+            synchronized (shard) {
+                count += shard.getEvictionCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the capacity of one shard. The remainder is spread so that the shard capacities add up to the total.
+     *
+     * @param capacity the total capacity
+     * @param index    the shard index
+     * @return the capacity of the shard
+     */
+    private int shardCapacity(int capacity, int index) {
+        return capacity / shards.length + (index < capacity % shards.length ? 1 : 0);
+    }
+
+    /**
+     * Returns the shard owning the given key.
+     *
+     * @param id the key
+     * @return the shard cache, which also serves as the shard's lock
+     */
+    private ResizableCache<K, V> shardFor(K id) {
+        return shards[spread(id == null ? 0 : id.hashCode()) & mask];
+    }
+
+    /**
+     * Mixes all bits of a hash code into the low bits (the MurmurHash3 finalizer).
+     *
+     * @param h the hash code
+     * @return the mixed hash
+     */
+    static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
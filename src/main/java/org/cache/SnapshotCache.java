@@ -0,0 +1,265 @@
+package org.cache;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-mostly cache publishing immutable snapshots, for reference data read far more often than it changes.
+ * <p>
+ * Reads look a key up in the current snapshot, an open-addressing table holding keys and values side by side in
+ * one array, published through a volatile reference. They take no lock and write nothing, since there is no
+ * eviction policy to update; the table is kept at most half full, so most lookups end at the first slot.
+ * <p>
+ * Writes are collected in a pending batch and become visible together when the next snapshot is published, at most
+ * {@code publishDelayMillis} after the first of them, or at once after {@link #flush()}. Snapshots are built by copying
+ * the current one with the batch applied, on a background thread. Nothing is evicted; new keys beyond
+ * {@code maxSize} are rejected when the snapshot is built. The conditional operations of {@link CacheService} read
+ * the published snapshot and write to the batch, so they are not atomic.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class SnapshotCache<K, V> implements CacheService<K, V>, Closeable {
+
+    /**
+     * Pending value marking a key evicted by the batch.
+     */
+    private static final Object REMOVED = new Object();
+
+    private final int maxSize;
+    private final long publishDelayMillis;
+    private final ScheduledThreadPoolExecutor builder;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private Map<K, Object> pending = new HashMap<>();
+    private boolean publishScheduled;
+    private long snapshotCount;
+    private long rejectedCount;
+
+    /**
+     * Constructs an empty snapshot cache.
+     *
+     * @param maxSize            the maximum number of entries
+     * @param publishDelayMillis how long writes are collected before a snapshot including them is published
+     */
+    public SnapshotCache(int maxSize, long publishDelayMillis) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        if (publishDelayMillis < 0) {
+            throw new IllegalArgumentException("publishDelayMillis must not be negative: " + publishDelayMillis);
+        }
+        this.maxSize = maxSize;
+        this.publishDelayMillis = publishDelayMillis;
+        this.builder = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-snapshot-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        builder.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Returns the value of a key in the published snapshot, without locking.
+     *
+     * @param id the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if the snapshot contains no mapping for the key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K id) {
+        Snapshot current = snapshot;
+        Object[] table = current.table;
+        int mask = current.mask;
+        int slot = spread(id) & mask;
+        Object key;
+        while ((key = table[slot << 1]) != null) {
+            if (key.equals(id)) {
+                return (V) table[(slot << 1) + 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the key-value pair to the pending batch. It becomes visible when the next snapshot is published.
+     *
+     * @param id    the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K id, V value) {
+        write(id, value);
+    }
+
+    /**
+     * Adds the removal of a key to the pending batch. It takes effect when the next snapshot is published.
+     *
+     * @param id the key whose mapping is to be removed from the cache
+     */
+    @Override
+    public void evict(K id) {
+        write(id, REMOVED);
+    }
+
+    /**
+     * Adds all entries to the pending batch, so that they are published in the same snapshot.
+     *
+     * @param entries the key-value pairs to be inserted
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        synchronized (this) {
+            pending.putAll(entries);
+        }
+        schedulePublish();
+    }
+
+    /**
+     * Publishes a snapshot including every write made before the call, and returns once it is visible to reads.
+     */
+    public void flush() {
+        publish();
+    }
+
+    /**
+     * Returns the number of entries in the published snapshot.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * Returns the number of snapshots published.
+     *
+     * @return the snapshot count
+     */
+    public synchronized long getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Returns the number of new keys rejected because the cache held {@code maxSize} entries.
+     *
+     * @return the rejected count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Stops the background builder and publishes the pending batch. Later writes are published by the writing thread.
+     */
+    @Override
+    public void close() {
+        builder.shutdownNow();
+        publish();
+    }
+
+    private void write(K id, Object value) {
+        synchronized (this) {
+            pending.put(id, value);
+        }
+        schedulePublish();
+    }
+
+    private void schedulePublish() {
+        synchronized (this) {
+            if (publishScheduled) {
+                return;
+            }
+            publishScheduled = true;
+        }
+        try {
+            builder.schedule(this::publish, publishDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed; the batch is published right away
+            publish();
+        }
+    }
+
+    /**
+     * Builds a snapshot from the current one and the pending batch, and publishes it. Builds are serialized by the
+     * builder lock, so that each one starts from the snapshot published by the previous one.
+     */
+    private void publish() {
+        synchronized (builder) {
+            Map<K, Object> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new HashMap<>();
+                publishScheduled = false;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            Snapshot current = snapshot;
+            Map<Object, Object> entries = new HashMap<>(current.size + batch.size());
+            Object[] table = current.table;
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != null) {
+                    entries.put(table[i], table[i + 1]);
+                }
+            }
+            long rejected = 0;
+            for (Map.Entry<K, Object> entry : batch.entrySet()) {
+                if (entry.getValue() == REMOVED) {
+                    entries.remove(entry.getKey());
+                } else if (entries.size() < maxSize || entries.containsKey(entry.getKey())) {
+                    entries.put(entry.getKey(), entry.getValue());
+                } else {
+                    rejected++;
+                }
+            }
+            snapshot = Snapshot.of(entries);
+            synchronized (this) {
+                snapshotCount++;
+                rejectedCount += rejected;
+            }
+        }
+    }
+
+    private static int spread(Object key) {
+        return ShardedCache.spread(key.hashCode());
+    }
+
+    /**
+     * Immutable open-addressing table with the key of slot {@code i} at index {@code 2i} and its value at {@code 2i + 1}.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new Object[2], 0, 0);
+
+        final Object[] table;
+        final int mask;
+        final int size;
+
+        private Snapshot(Object[] table, int mask, int size) {
+            this.table = table;
+            this.mask = mask;
+            this.size = size;
+        }
+
+        /**
+         * Builds a table at most half full holding the given entries.
+         */
+        static Snapshot of(Map<Object, Object> entries) {
+            int slots = Integer.highestOneBit(Math.max(1, entries.size())) << 2;
+            int mask = slots - 1;
+            Object[] table = new Object[slots << 1];
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                int slot = spread(entry.getKey()) & mask;
+                while (table[slot << 1] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot << 1] = entry.getKey();
+                table[(slot << 1) + 1] = entry.getValue();
+            }
+            return new Snapshot(table, mask, entries.size());
+        }
+    }
+}
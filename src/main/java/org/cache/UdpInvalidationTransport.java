@@ -0,0 +1,182 @@
+package org.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport sending batches of string keys as UDP datagrams, typically between JVMs on the same host.
+ * <p>
+ * Each instance binds one datagram socket and sends every batch to all registered peers. A batch larger than
+ * one datagram is split. A datagram holds the sender id, the key count and each key as a length-prefixed UTF-8
+ * string. Delivery is best effort, as with any UDP transport: a lost datagram leaves peers serving stale
+ * values until their entries are evicted.
+ */
+public class UdpInvalidationTransport implements InvalidationTransport<String> {
+
+    /**
+     * Payload limit keeping datagrams below the usual 64 KiB loopback limit.
+     */
+    private static final int MAX_DATAGRAM_SIZE = 60 * 1024;
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final long senderId = ThreadLocalRandom.current().nextLong();
+    private final DatagramChannel channel;
+    private final List<SocketAddress> peers = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Collection<String>>> listeners = new CopyOnWriteArrayList<>();
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final Thread receiver;
+
+    /**
+     * Binds the transport and starts its receiver thread.
+     *
+     * @param bindAddress the local address to receive on; port {@code 0} picks a free port
+     * @throws IOException if the socket cannot be bound
+     */
+    public UdpInvalidationTransport(InetSocketAddress bindAddress) throws IOException {
+        this.channel = DatagramChannel.open();
+        channel.bind(bindAddress);
+        this.receiver = new Thread(this::receive, "udp-invalidation-" + getLocalAddress().getPort());
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Returns the address the transport receives on.
+     *
+     * @return the bound address
+     * @throws IOException if the address cannot be determined
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    /**
+     * Adds a peer that receives every published batch.
+     *
+     * @param peer the address a peer transport is bound to
+     */
+    public void addPeer(InetSocketAddress peer) {
+        peers.add(peer);
+    }
+
+    /**
+     * Sends the keys in as few datagrams as possible. A key too long for one datagram is skipped and reported once the
+     * other keys have been sent.
+     *
+     * @param keys the keys whose cached values are stale
+     * @throws java.io.UncheckedIOException if sending a datagram fails
+     * @throws IllegalArgumentException     if a key does not fit in a datagram
+     */
+    @Override
+    public synchronized void publish(Collection<String> keys) {
+        try {
+            int count = 0;
+            String tooLong = null;
+            startDatagram();
+            for (String key : keys) {
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_DATAGRAM_SIZE - HEADER_SIZE - Short.BYTES) {
+                    tooLong = key;
+                    continue;
+                }
+                if (sendBuffer.remaining() < Short.BYTES + bytes.length) {
+                    sendDatagram(count);
+                    startDatagram();
+                    count = 0;
+                }
+                sendBuffer.putShort((short) bytes.length);
+                sendBuffer.put(bytes);
+                count++;
+            }
+            if (count > 0) {
+                sendDatagram(count);
+            }
+            if (tooLong != null) {
+                throw new IllegalArgumentException("Key too long to invalidate: " + tooLong.length() + " characters");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Collection<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Closes the socket and stops the receiver thread.
+     *
+     * @throws IOException if closing the socket fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        try {
+            receiver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startDatagram() {
+        sendBuffer.clear();
+        sendBuffer.putLong(senderId);
+        sendBuffer.putInt(0);
+    }
+
+    private void sendDatagram(int count) throws IOException {
+        sendBuffer.putInt(Long.BYTES, count);
+        sendBuffer.flip();
+        for (SocketAddress peer : peers) {
+            channel.send(sendBuffer, peer);
+            sendBuffer.rewind();
+        }
+    }
+
+    /**
+     * Receiver loop decoding datagrams and passing their keys to the listeners.
+     */
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                if (buffer.remaining() < HEADER_SIZE || buffer.getLong() == senderId) {
+                    continue;
+                }
+                int count = buffer.getInt();
+                List<String> keys = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+                    buffer.get(bytes);
+                    keys.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                for (Consumer<Collection<String>> listener : listeners) {
+                    listener.accept(keys);
+                }
+            } catch (AsynchronousCloseException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // A malformed datagram or a failing listener must not stop the receiver
+                if (!channel.isOpen()) {
+                    return;
+                }
+            }
+        }
+    }
+}
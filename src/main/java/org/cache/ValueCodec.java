@@ -0,0 +1,86 @@
+package org.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts cached values to and from their serialized form, see {@link CodecCache}.
+ *
+ * @param <V> the type of values
+ */
+public interface ValueCodec<V> {
+
+    /**
+     * Serializes a value.
+     *
+     * @param value the value, never {@code null}
+     * @return the serialized form
+     */
+    byte[] encode(V value);
+
+    /**
+     * Deserializes a value.
+     *
+     * @param bytes the serialized form produced by {@link #encode(Object)}
+     * @return the value
+     */
+    V decode(byte[] bytes);
+
+    /**
+     * Returns a codec storing strings as UTF-8.
+     *
+     * @return the codec
+     */
+    static ValueCodec<String> utf8() {
+        return new ValueCodec<String>() {
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Returns a codec using Java serialization, which works for any {@link Serializable} object graph.
+     *
+     * @param <V> the type of values
+     * @return the codec
+     */
+    static <V extends Serializable> ValueCodec<V> serializable() {
+        return new ValueCodec<V>() {
+            @Override
+            public byte[] encode(V value) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V decode(byte[] bytes) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (V) in.readObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+import org.cache.AdaptiveCache;
+import org.cache.AdaptiveCache.Policy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveCacheTest {
+
+    @Test
+    public void testBehavesLikeCache() {
+        AdaptiveCache<Integer, String> cache = new AdaptiveCache<>(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+
+        assertEquals("one", cache.get(1));
+        cache.put(4, "four"); // LRU evicts key 2
+
+        assertNull(cache.get(2));
+        assertEquals("three", cache.get(3));
+
+        cache.evict(3);
+        assertNull(cache.get(3));
+    }
+
+    @Test
+    public void testSwitchesToWinningPolicy() {
+        AdaptiveCache<Integer, Integer> cache = new AdaptiveCache<>(20, Policy.LRU, 200, 0.05, 2);
+
+        // Looping over more keys than fit in the cache: LRU never hits, MRU keeps most of the loop
+        for (int i = 0; i < 5_000; i++) {
+            readThrough(cache, i % 25);
+        }
+
+        assertEquals(Policy.MRU, cache.getPolicy());
+        assertTrue(cache.getGhostHitRate(Policy.MRU) > cache.getGhostHitRate(Policy.LRU));
+    }
+
+    @Test
+    public void testSampledGhostsPickWinningPolicyForLargeCapacity() {
+        AdaptiveCache<Integer, Integer> cache = new AdaptiveCache<>(100_000, Policy.LRU, 20_000, 0.05, 2);
+
+        // Ghosts track a hash-selected share of the loop at a matching share of the capacity
+        for (int i = 0; i < 500_000; i++) {
+            readThrough(cache, i % 125_000);
+        }
+
+        assertEquals(Policy.MRU, cache.getPolicy());
+        assertTrue(cache.getGhostHitRate(Policy.MRU) > cache.getGhostHitRate(Policy.LRU));
+    }
+
+    @Test
+    public void testEntriesSurviveSwitch() {
+        AdaptiveCache<Integer, Integer> cache = new AdaptiveCache<>(20, Policy.LRU, 200, 0.05, 2);
+
+        int i = 0;
+        while (cache.getPolicy() == Policy.LRU && i < 5_000) {
+            readThrough(cache, i++ % 25);
+        }
+        assertEquals(Policy.MRU, cache.getPolicy());
+
+        // The key loaded right before the switch lives in the previous cache and is still served
+        int lastLoaded = (i - 2) % 25;
+        assertEquals(lastLoaded, cache.get(lastLoaded));
+    }
+
+    @Test
+    public void testConditionalOperationsSeePreviousCache() {
+        AdaptiveCache<Integer, Integer> cache = new AdaptiveCache<>(20, Policy.LRU, 200, 0.05, 2);
+
+        int i = 0;
+        while (cache.getPolicy() == Policy.LRU && i < 5_000) {
+            readThrough(cache, i++ % 25);
+        }
+        assertEquals(Policy.MRU, cache.getPolicy());
+
+        int merged = (i - 2) % 25;
+        int replaced = (i - 3) % 25;
+        assertEquals(merged + 1, cache.merge(merged, 1, Integer::sum));
+        assertEquals(replaced, cache.replace(replaced, -1));
+        assertEquals(-1, cache.get(replaced));
+    }
+
+    @Test
+    public void testWritesDoNotCountAsReads() {
+        AdaptiveCache<Integer, Integer> cache = new AdaptiveCache<>(10, Policy.LRU, 1, 0.05, 1);
+        cache.get(1);
+
+        cache.putIfAbsent(1, 0);
+        cache.merge(1, 1, Integer::sum);
+        cache.compute(1, (key, value) -> value + 1);
+        cache.computeIfAbsent(1, key -> 0);
+        cache.replace(1, 5);
+
+        // Every call above would have closed a window with a ghost hit had it been replayed as a read
+        assertEquals(0, cache.getGhostHitRate(Policy.LRU), 0.0);
+        assertEquals(5, cache.get(1));
+    }
+
+    @Test
+    public void testNoSwitchWhileDraining() {
+        AdaptiveCache<Integer, Integer> cache = new AdaptiveCache<>(50, Policy.LRU, 1, 0.5, 1);
+        Random random = new Random(42);
+        Policy policy = cache.getPolicy();
+        int lastSwitch = -1;
+        int switches = 0;
+        for (int i = 0; i < 5_000; i++) {
+            readThrough(cache, random.nextInt(70));
+            if (cache.getPolicy() != policy) {
+                policy = cache.getPolicy();
+                if (lastSwitch >= 0) {
+                    assertTrue(i - lastSwitch >= 50, "switched again after " + (i - lastSwitch) + " reads");
+                }
+                lastSwitch = i;
+                switches++;
+            }
+        }
+        assertTrue(switches >= 2, "switches: " + switches);
+    }
+
+    private static void readThrough(AdaptiveCache<Integer, Integer> cache, int key) {
+        if (cache.get(key) == null) {
+            cache.put(key, key);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import org.cache.BatchingLoader;
+import org.cache.LRUDoublyLinkedListCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingLoaderTest {
+
+    private static Map<Integer, String> lookup(Set<Integer> keys) {
+        Map<Integer, String> values = new HashMap<>();
+        for (Integer key : keys) {
+            if (key >= 0) {
+                values.put(key, "v" + key);
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void testFullBatchIsDispatchedImmediately() {
+        List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+        LRUDoublyLinkedListCache<Integer, String> cache = new LRUDoublyLinkedListCache<>(100);
+        try (BatchingLoader<Integer, String> loader = new BatchingLoader<>(cache, keys -> {
+            batches.add(new HashSet<>(keys));
+            return lookup(keys);
+        }, 3, 60_000, Runnable::run)) {
+            CompletableFuture<String> first = loader.getAsync(1);
+            CompletableFuture<String> second = loader.getAsync(2);
+            assertFalse(first.isDone());
+            assertSame(first, loader.getAsync(1));
+            CompletableFuture<String> third = loader.getAsync(-3);
+            assertEquals("v1", first.join());
+            assertEquals("v2", second.join());
+            assertNull(third.join());
+            assertEquals(List.of(Set.of(1, 2, -3)), batches);
+            assertEquals("v1", cache.get(1));
+            assertNull(cache.get(-3));
+
+            // Hits do not reach the loader
+            assertEquals("v2", loader.get(2));
+            assertEquals(1, loader.getBatchCount());
+            assertEquals(3, loader.getLoadedKeyCount());
+        }
+    }
+
+    @Test
+    public void testWindowDispatchesPartialBatch() {
+        List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+        try (BatchingLoader<Integer, String> loader = new BatchingLoader<>(new LRUDoublyLinkedListCache<>(100), keys -> {
+            batches.add(new HashSet<>(keys));
+            return lookup(keys);
+        }, 100, 20)) {
+            CompletableFuture<String> first = loader.getAsync(1);
+            CompletableFuture<String> second = loader.getAsync(2);
+            assertEquals("v1", first.join());
+            assertEquals("v2", second.join());
+            assertEquals(List.of(Set.of(1, 2)), batches);
+        }
+    }
+
+    @Test
+    public void testConcurrentMissesAreCoalesced() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try (BatchingLoader<Integer, String> loader = new BatchingLoader<>(new LRUDoublyLinkedListCache<>(1_000), keys -> {
+            batchSizes.add(keys.size());
+            return lookup(keys);
+        }, 50, 5)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                int key = i % 200;
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return loader.get(key);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < 400; i++) {
+                assertEquals("v" + (i % 200), results.get(i).get());
+            }
+        } finally {
+            callers.shutdown();
+        }
+        assertEquals(200, batchSizes.stream().mapToInt(Integer::intValue).sum(), "every key is loaded once");
+        assertTrue(batchSizes.size() < 40, "batches: " + batchSizes);
+    }
+
+    @Test
+    public void testLoaderFailureCompletesAllWaiters() {
+        try (BatchingLoader<Integer, String> loader = new BatchingLoader<>(new LRUDoublyLinkedListCache<>(10), keys -> {
+            throw new IllegalStateException("backend down");
+        }, 2, 60_000, Runnable::run)) {
+            CompletableFuture<String> first = loader.getAsync(1);
+            CompletableFuture<String> second = loader.getAsync(2);
+            assertTrue(first.isCompletedExceptionally());
+            assertTrue(second.isCompletedExceptionally());
+            CompletionException e = assertThrows(CompletionException.class, first::join);
+            assertTrue(e.getCause() instanceof IllegalStateException);
+
+            // Failed keys can be requested again
+            assertNotSame(first, loader.getAsync(1));
+        }
+    }
+
+    @Test
+    public void testNullResultAndFailedPutCompleteAllWaiters() {
+        try (BatchingLoader<Integer, String> loader = new BatchingLoader<>(new LRUDoublyLinkedListCache<>(10),
+                keys -> null, 2, 60_000, Runnable::run)) {
+            CompletableFuture<String> first = loader.getAsync(1);
+            CompletableFuture<String> second = loader.getAsync(2);
+            assertTrue(first.isCompletedExceptionally());
+            assertTrue(second.isCompletedExceptionally());
+            assertNotSame(first, loader.getAsync(1));
+        }
+
+        LRUDoublyLinkedListCache<Integer, String> failing = new LRUDoublyLinkedListCache<Integer, String>(10) {
+            @Override
+            public void put(Integer id, String value) {
+                throw new IllegalStateException("cache down");
+            }
+        };
+        try (BatchingLoader<Integer, String> loader = new BatchingLoader<>(failing, BatchingLoaderTest::lookup, 2,
+                60_000, Runnable::run)) {
+            CompletableFuture<String> first = loader.getAsync(1);
+            CompletableFuture<String> second = loader.getAsync(2);
+            CompletionException e = assertThrows(CompletionException.class, first::join);
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertTrue(second.isCompletedExceptionally());
+            assertNotSame(first, loader.getAsync(1));
+        }
+    }
+
+    @Test
+    public void testFlushAndClose() {
+        BatchingLoader<Integer, String> loader = new BatchingLoader<>(new LRUDoublyLinkedListCache<>(10),
+                BatchingLoaderTest::lookup, 100, 60_000, Runnable::run);
+        CompletableFuture<String> first = loader.getAsync(1);
+        loader.flush();
+        assertEquals("v1", first.getNow(null));
+
+        CompletableFuture<String> second = loader.getAsync(2);
+        loader.close();
+        assertEquals("v2", second.getNow(null));
+        assertEquals("v3", loader.get(3), "after close misses are loaded one by one");
+
+        loader.put(4, "x");
+        assertEquals("x", loader.get(4));
+        loader.evict(4);
+        assertEquals("v4", loader.get(4));
+    }
+}
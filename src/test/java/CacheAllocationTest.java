@@ -0,0 +1,109 @@
+import org.cache.CacheService;
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.LRUHashMapQueueCache;
+import org.cache.LRULinkedHashMapCache;
+import org.cache.MRUCache;
+import org.cache.SampledLRUCache;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Regression tests checking that cache hits, and puts of keys already present, do not allocate.
+ * <p>
+ * {@code LFUTreeMapCache} is not covered: moving a node to a new frequency level inserts a {@code TreeMap} entry.
+ */
+public class CacheAllocationTest {
+
+    private static final int CAPACITY = 64;
+    private static final int WARM_UP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 2_000;
+
+    /**
+     * Allowance for the measurement itself, far below one allocation per {@code get}.
+     */
+    private static final long ALLOWED_BYTES = 16 * 1024;
+
+    public static Stream<CacheService<Integer, String>> cacheServices() {
+        return Stream.of(
+                new LRUDoublyLinkedListCache<>(CAPACITY),
+                new LRUHashMapQueueCache<>(CAPACITY),
+                new LRULinkedHashMapCache<>(CAPACITY),
+                new MRUCache<>(CAPACITY),
+                new LFUDoublyLinkedListCache<>(CAPACITY),
+                new SampledLRUCache<>(CAPACITY)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheServices")
+    public void testGetDoesNotAllocate(CacheService<Integer, String> cache) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Integer[] keys = new Integer[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            keys[i] = i;
+            cache.put(keys[i], "value" + i);
+        }
+
+        readAll(cache, keys, WARM_UP_ROUNDS);
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        readAll(cache, keys, MEASURED_ROUNDS);
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertTrue(allocated < ALLOWED_BYTES,
+                cache.getClass().getSimpleName() + " allocated " + allocated + " bytes for "
+                        + (long) MEASURED_ROUNDS * CAPACITY + " hits");
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheServices")
+    public void testPutOfExistingKeyDoesNotAllocate(CacheService<Integer, String> cache) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Integer[] keys = new Integer[CAPACITY];
+        String[] values = new String[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            keys[i] = i;
+            values[i] = "value" + i;
+            cache.put(keys[i], values[i]);
+        }
+
+        writeAll(cache, keys, values, WARM_UP_ROUNDS);
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        writeAll(cache, keys, values, MEASURED_ROUNDS);
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertTrue(allocated < ALLOWED_BYTES,
+                cache.getClass().getSimpleName() + " allocated " + allocated + " bytes for "
+                        + (long) MEASURED_ROUNDS * CAPACITY + " updates");
+    }
+
+    private static void readAll(CacheService<Integer, String> cache, Integer[] keys, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (Integer key : keys) {
+                if (cache.get(key) == null) {
+                    throw new AssertionError("Missing key " + key);
+                }
+            }
+        }
+    }
+
+    private static void writeAll(CacheService<Integer, String> cache, Integer[] keys, String[] values, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < keys.length; i++) {
+                cache.put(keys[i], values[i]);
+            }
+        }
+    }
+}
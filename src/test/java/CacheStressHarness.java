@@ -0,0 +1,508 @@
+import org.cache.CacheService;
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MaintainedCache;
+import org.cache.ResizableCache;
+import org.cache.ShardedCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Multi-threaded load and correctness harness for thread-safe {@link CacheService} implementations.
+ * <p>
+ * {@link #run} drives a cache from a number of platform or virtual threads with a key stream and a read/write mix,
+ * and reports throughput, latency percentiles and hit rate. A read that misses puts the key, as a cache-aside
+ * client would. {@link #scale} repeats a run for 1, 2, 4, ... threads to give a scaling curve.
+ * {@link #checkInvariants} and {@link #checkNoLostUpdates} look for concurrency bugs instead of measuring.
+ * <p>
+ * Virtual threads are created through reflection, so the harness also runs on Java 17, where it falls back to
+ * platform threads. Run with optional arguments {@code <maxThreads> <operationsPerThread>} to print scaling curves
+ * for the sharded and maintained caches.
+ */
+public class CacheStressHarness {
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int capacity = 100_000;
+        long keySpace = 1_000_000;
+
+        Map<String, IntFunction<CacheService<Long, Long>>> caches = new LinkedHashMap<>();
+        caches.put("sharded LRU", threads -> new ShardedCache<>(capacity, LRUDoublyLinkedListCache::new));
+        caches.put("sharded LFU", threads -> new ShardedCache<>(capacity, LFUDoublyLinkedListCache::new));
+        caches.put("maintained LRU", threads -> new MaintainedCache<>(new LRUDoublyLinkedListCache<>(capacity), capacity / 100));
+        Map<String, KeyGenerator> distributions = new LinkedHashMap<>();
+        distributions.put("zipfian", new ScrambledZipfianGenerator(keySpace));
+        distributions.put("uniform", new UniformGenerator(keySpace));
+        distributions.put("hotspot", new HotspotGenerator(keySpace, 0.01, 0.9));
+
+        System.out.println("virtual threads " + (virtualThreadsAvailable() ? "available" : "unavailable, using platform threads"));
+        for (Map.Entry<String, IntFunction<CacheService<Long, Long>>> cache : caches.entrySet()) {
+            for (Map.Entry<String, KeyGenerator> distribution : distributions.entrySet()) {
+                Workload workload = new Workload(distribution.getValue(), 0.9, operations);
+                for (boolean virtual : new boolean[]{false, true}) {
+                    if (virtual && !virtualThreadsAvailable()) {
+                        continue;
+                    }
+                    System.out.printf("%s, %s keys, %s threads%n", cache.getKey(), distribution.getKey(), virtual ? "virtual" : "platform");
+                    for (Result result : scale(cache.getValue(), workload, maxThreads, virtual)) {
+                        System.out.println("  " + result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the workload against a new cache for 1, 2, 4, ... threads up to {@code maxThreads}, which is always included.
+     *
+     * @param factory    creates a cache for a thread count
+     * @param workload   the workload of each thread
+     * @param maxThreads the largest thread count
+     * @param virtual    whether to use virtual threads when available
+     * @return one result per thread count
+     */
+    static List<Result> scale(IntFunction<? extends CacheService<Long, Long>> factory, Workload workload, int maxThreads,
+                              boolean virtual) throws InterruptedException {
+        List<Result> results = new ArrayList<>();
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            results.add(run(factory.apply(threads), workload, threads, virtual));
+            if (threads == maxThreads) {
+                return results;
+            }
+        }
+    }
+
+    /**
+     * Runs the workload on the given number of threads, all starting together, and times every operation.
+     *
+     * @param cache    the cache, which must be thread-safe
+     * @param workload the workload of each thread
+     * @param threads  the number of threads
+     * @param virtual  whether to use virtual threads when available
+     * @return throughput, latency percentiles and hit rate
+     */
+    static Result run(CacheService<Long, Long> cache, Workload workload, int threads, boolean virtual) throws InterruptedException {
+        long[][] latencies = new long[threads][workload.operationsPerThread];
+        long[] hits = new long[threads];
+        long[] reads = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> workers = new ArrayList<>();
+        ThreadFactory factory = threadFactory(virtual);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(factory.newThread(() -> {
+                SplittableRandom random = new SplittableRandom(worker * 0x9E3779B97F4A7C15L + 1);
+                long[] times = latencies[worker];
+                // Counted locally so that workers do not share cache lines
+                long workerHits = 0;
+                long workerReads = 0;
+                try {
+                    start.await();
+                    for (int i = 0; i < times.length; i++) {
+                        Long key = workload.keys.next(random);
+                        long begin = System.nanoTime();
+                        if (random.nextDouble() < workload.readRatio) {
+                            workerReads++;
+                            if (cache.get(key) != null) {
+                                workerHits++;
+                            } else {
+                                cache.put(key, key);
+                            }
+                        } else {
+                            cache.put(key, key);
+                        }
+                        times[i] = System.nanoTime() - begin;
+                    }
+                    hits[worker] = workerHits;
+                    reads[worker] = workerReads;
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError("Worker failed");
+            failures.forEach(error::addSuppressed);
+            throw error;
+        }
+
+        long[] all = new long[threads * workload.operationsPerThread];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * workload.operationsPerThread, workload.operationsPerThread);
+        }
+        Arrays.sort(all);
+        long totalReads = Arrays.stream(reads).sum();
+        double hitRate = totalReads == 0 ? 0 : (double) Arrays.stream(hits).sum() / totalReads;
+        return new Result(threads, virtual && virtualThreadsAvailable(), all.length, elapsed,
+                percentile(all, 0.5), percentile(all, 0.99), percentile(all, 0.999), hitRate);
+    }
+
+    /**
+     * Hammers the cache with reads and writes and checks that:
+     * <ul>
+     *     <li>a {@link ResizableCache} never holds more than {@code maxSize} entries, sampled by a monitor thread,</li>
+     *     <li>a value read for a key was written for that key, and</li>
+     *     <li>a thread reading a key only it writes sees its latest write or nothing, never an older one.</li>
+     * </ul>
+     *
+     * @param cache               the cache, which must be thread-safe
+     * @param maxSize             the largest size allowed, for example the capacity plus a slack
+     * @param threads             the number of threads
+     * @param virtual             whether to use virtual threads when available
+     * @param operationsPerThread the number of operations of each thread
+     * @param keySpace            the number of distinct keys, at most {@code 2^31}
+     * @throws AssertionError listing the first violations found
+     */
+    static void checkInvariants(CacheService<Long, Long> cache, int maxSize, int threads, boolean virtual,
+                                int operationsPerThread, int keySpace) throws InterruptedException {
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger largestSize = new AtomicInteger();
+        Thread monitor = null;
+        if (cache instanceof ResizableCache) {
+            ResizableCache<Long, Long> resizable = (ResizableCache<Long, Long>) cache;
+            monitor = new Thread(() -> {
+                while (running.get()) {
+                    largestSize.accumulateAndGet(resizable.size(), Math::max);
+                    Thread.onSpinWait();
+                }
+            }, "cache-stress-monitor");
+            monitor.setDaemon(true);
+            monitor.start();
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        ThreadFactory factory = threadFactory(virtual);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(factory.newThread(() -> {
+                SplittableRandom random = new SplittableRandom(worker + 31L);
+                // Keys congruent to the worker modulo the thread count are written by this worker only
+                int[] versions = new int[(keySpace + threads - 1) / threads];
+                try {
+                    start.await();
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        int slot = random.nextInt(versions.length);
+                        long ownKey = (long) slot * threads + worker;
+                        int operation = random.nextInt(4);
+                        if (ownKey >= keySpace) {
+                            continue;
+                        }
+                        if (operation < 2) {
+                            cache.put(ownKey, encode(ownKey, ++versions[slot]));
+                        } else if (operation == 2) {
+                            Long value = cache.get(ownKey);
+                            if (value != null && (key(value) != ownKey || version(value) != versions[slot])) {
+                                violations.add("worker " + worker + " wrote version " + versions[slot] + " of key " + ownKey
+                                        + " but read " + describe(value));
+                            }
+                        } else {
+                            long key = random.nextInt(keySpace);
+                            Long value = cache.get(key);
+                            if (value != null && key(value) != key) {
+                                violations.add("read " + describe(value) + " for key " + key);
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    violations.add("worker " + worker + " failed: " + e);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        running.set(false);
+        if (monitor != null) {
+            monitor.join();
+            // Short runs may end before the monitor took its first sample
+            largestSize.accumulateAndGet(((ResizableCache<Long, Long>) cache).size(), Math::max);
+            if (largestSize.get() > maxSize) {
+                violations.add("size reached " + largestSize.get() + ", above " + maxSize);
+            }
+        }
+        if (!violations.isEmpty()) {
+            throw new AssertionError(violations.size() + " violations, first: " + violations.stream().limit(5).toList());
+        }
+    }
+
+    /**
+     * Increments counters with {@link CacheService#merge} from many threads and checks that no increment was lost.
+     * The cache must be large enough to hold the counters.
+     *
+     * @param cache                the cache, which must be thread-safe
+     * @param threads              the number of threads
+     * @param virtual              whether to use virtual threads when available
+     * @param incrementsPerThread  the number of increments of each thread
+     * @param counters             the number of counters
+     * @throws AssertionError if the counters do not add up to the number of increments
+     */
+    static void checkNoLostUpdates(CacheService<Long, Long> cache, int threads, boolean virtual, int incrementsPerThread,
+                                   int counters) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        ThreadFactory factory = threadFactory(virtual);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(factory.newThread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    cache.merge((long) (i + worker) % counters, 1L, Long::sum);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long total = 0;
+        for (long key = 0; key < counters; key++) {
+            Long count = cache.get(key);
+            total += count == null ? 0 : count;
+        }
+        long expected = (long) threads * incrementsPerThread;
+        if (total != expected) {
+            throw new AssertionError("counters add up to " + total + ", expected " + expected);
+        }
+    }
+
+    /**
+     * Returns whether this JVM supports virtual threads.
+     *
+     * @return {@code true} on Java 21 and later
+     */
+    static boolean virtualThreadsAvailable() {
+        return virtualThreadFactory() != null;
+    }
+
+    /**
+     * Returns a factory of virtual threads if requested and available, or else of platform threads.
+     */
+    static ThreadFactory threadFactory(boolean virtual) {
+        ThreadFactory factory = virtual ? virtualThreadFactory() : null;
+        return factory != null ? factory : Thread::new;
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static long encode(long key, int version) {
+        return key << 32 | version & 0xFFFFFFFFL;
+    }
+
+    private static long key(long value) {
+        return value >>> 32;
+    }
+
+    private static int version(long value) {
+        return (int) value;
+    }
+
+    private static String describe(long value) {
+        return "version " + version(value) + " of key " + key(value);
+    }
+
+    /**
+     * Key stream of a workload. Implementations are immutable and shared by all threads.
+     */
+    interface KeyGenerator {
+
+        /**
+         * Returns the next key.
+         *
+         * @param random the random source of the calling thread
+         * @return a key between 0 and the key space
+         */
+        long next(SplittableRandom random);
+    }
+
+    /**
+     * Keys drawn uniformly.
+     */
+    static final class UniformGenerator implements KeyGenerator {
+        private final long keySpace;
+
+        UniformGenerator(long keySpace) {
+            this.keySpace = keySpace;
+        }
+
+        @Override
+        public long next(SplittableRandom random) {
+            return random.nextLong(keySpace);
+        }
+    }
+
+    /**
+     * A fraction of the keys receives a fraction of the operations, for example 1% of the keys 90% of them.
+     * Hot keys are the lowest ones.
+     */
+    static final class HotspotGenerator implements KeyGenerator {
+        private final long keySpace;
+        private final long hotKeys;
+        private final double hotOperationFraction;
+
+        HotspotGenerator(long keySpace, double hotKeyFraction, double hotOperationFraction) {
+            this.keySpace = keySpace;
+            this.hotKeys = Math.max(1, Math.min(keySpace - 1, (long) (keySpace * hotKeyFraction)));
+            this.hotOperationFraction = hotOperationFraction;
+        }
+
+        @Override
+        public long next(SplittableRandom random) {
+            if (random.nextDouble() < hotOperationFraction) {
+                return random.nextLong(hotKeys);
+            }
+            return hotKeys + random.nextLong(keySpace - hotKeys);
+        }
+    }
+
+    /**
+     * Zipfian key popularity (exponent 0.99, as in YCSB) with ranks hashed over the key space, so that popular keys
+     * are not clustered at the low end and spread over all shards.
+     */
+    static final class ScrambledZipfianGenerator implements KeyGenerator {
+        private static final double THETA = 0.99;
+
+        private final long keySpace;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        ScrambledZipfianGenerator(long keySpace) {
+            this.keySpace = keySpace;
+            double zeta = 0;
+            for (long i = 1; i <= keySpace; i++) {
+                zeta += 1 / Math.pow(i, THETA);
+            }
+            double zeta2 = 1 + 1 / Math.pow(2, THETA);
+            this.zetaN = zeta;
+            this.alpha = 1 / (1 - THETA);
+            this.eta = (1 - Math.pow(2.0 / keySpace, 1 - THETA)) / (1 - zeta2 / zeta);
+        }
+
+        @Override
+        public long next(SplittableRandom random) {
+            return Math.floorMod(fnv1a(rank(random.nextDouble())), keySpace);
+        }
+
+        /**
+         * Returns the popularity rank of a uniform sample, 0 being the most popular.
+         */
+        long rank(double u) {
+            double uz = u * zetaN;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < 1 + Math.pow(0.5, THETA)) {
+                return 1;
+            }
+            return Math.min(keySpace - 1, (long) (keySpace * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static long fnv1a(long value) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < 8; i++) {
+                hash ^= value & 0xFF;
+                hash *= 0x100000001B3L;
+                value >>>= 8;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Per-thread workload: key stream, share of reads and number of operations.
+     */
+    static final class Workload {
+        final KeyGenerator keys;
+        final double readRatio;
+        final int operationsPerThread;
+
+        Workload(KeyGenerator keys, double readRatio, int operationsPerThread) {
+            this.keys = keys;
+            this.readRatio = readRatio;
+            this.operationsPerThread = operationsPerThread;
+        }
+    }
+
+    /**
+     * Outcome of one run. Latencies are in nanoseconds.
+     */
+    static final class Result {
+        final int threads;
+        final boolean virtual;
+        final long operations;
+        final long elapsedNanos;
+        final long p50;
+        final long p99;
+        final long p999;
+        final double hitRate;
+
+        Result(int threads, boolean virtual, long operations, long elapsedNanos, long p50, long p99, long p999, double hitRate) {
+            this.threads = threads;
+            this.virtual = virtual;
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.hitRate = hitRate;
+        }
+
+        double throughput() {
+            return operations * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("threads=%3d %s: %,12.0f ops/s  p50=%,7d ns  p99=%,9d ns  p99.9=%,10d ns  hit rate %.3f",
+                    threads, virtual ? "virtual " : "platform", throughput(), p50, p99, p999, hitRate);
+        }
+    }
+}
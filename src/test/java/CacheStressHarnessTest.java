@@ -0,0 +1,128 @@
+import org.cache.CacheService;
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MaintainedCache;
+import org.cache.MultiTenantCache;
+import org.cache.ResizableCache;
+import org.cache.ShardedCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheStressHarnessTest {
+
+    @Test
+    public void testScrambledZipfianIsSkewedAndSpread() {
+        CacheStressHarness.ScrambledZipfianGenerator keys = new CacheStressHarness.ScrambledZipfianGenerator(10_000);
+        SplittableRandom random = new SplittableRandom(1);
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = keys.next(random);
+            assertTrue(key >= 0 && key < 10_000);
+            counts.merge(key, 1, Integer::sum);
+        }
+        List<Integer> sorted = counts.values().stream().sorted((a, b) -> b - a).toList();
+        int top100 = sorted.stream().limit(100).mapToInt(Integer::intValue).sum();
+        assertTrue(top100 > 40_000, "the top 1% of keys get " + top100 + " operations");
+        long hottest = counts.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey();
+        assertTrue(hottest != 0, "popular keys are scrambled");
+        assertEquals(0, keys.rank(0.0));
+    }
+
+    @Test
+    public void testHotspotAndUniform() {
+        CacheStressHarness.HotspotGenerator hotspot = new CacheStressHarness.HotspotGenerator(1_000, 0.1, 0.8);
+        CacheStressHarness.UniformGenerator uniform = new CacheStressHarness.UniformGenerator(1_000);
+        SplittableRandom random = new SplittableRandom(2);
+        int hot = 0;
+        int low = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (hotspot.next(random) < 100) {
+                hot++;
+            }
+            long key = uniform.next(random);
+            assertTrue(key >= 0 && key < 1_000);
+            if (key < 100) {
+                low++;
+            }
+        }
+        assertEquals(0.8, hot / 100_000.0, 0.01);
+        assertEquals(0.1, low / 100_000.0, 0.01);
+    }
+
+    @Test
+    public void testRunReportsThroughputLatencyAndHitRate() throws Exception {
+        CacheStressHarness.Workload workload = new CacheStressHarness.Workload(
+                new CacheStressHarness.ScrambledZipfianGenerator(10_000), 0.9, 20_000);
+        CacheStressHarness.Result result = CacheStressHarness.run(
+                new ShardedCache<>(1_000, 4, LRUDoublyLinkedListCache::new), workload, 4, false);
+        assertEquals(80_000, result.operations);
+        assertTrue(result.throughput() > 0);
+        assertTrue(result.p50 <= result.p99 && result.p99 <= result.p999);
+        assertTrue(result.hitRate > 0.3 && result.hitRate < 1, "hit rate " + result.hitRate);
+        assertFalse(result.toString().isEmpty());
+    }
+
+    @Test
+    public void testScaleCoversThreadCounts() throws Exception {
+        CacheStressHarness.Workload workload = new CacheStressHarness.Workload(
+                new CacheStressHarness.UniformGenerator(1_000), 0.5, 2_000);
+        List<CacheStressHarness.Result> curve = CacheStressHarness.scale(
+                threads -> new ShardedCache<>(500, LRUDoublyLinkedListCache::new), workload, 6, true);
+        assertEquals(List.of(1, 2, 4, 6), curve.stream().map(result -> result.threads).toList());
+        for (CacheStressHarness.Result result : curve) {
+            assertEquals(CacheStressHarness.virtualThreadsAvailable(), result.virtual);
+        }
+    }
+
+    @Test
+    public void testThreadSafeCachesKeepInvariants() throws Exception {
+        CacheStressHarness.checkInvariants(new ShardedCache<>(256, 8, LRUDoublyLinkedListCache::new), 256, 8, false, 20_000, 1_000);
+        CacheStressHarness.checkInvariants(new ShardedCache<>(256, 8, LFUDoublyLinkedListCache::new), 256, 8, true, 20_000, 1_000);
+        CacheStressHarness.checkInvariants(new MaintainedCache<>(new LRUDoublyLinkedListCache<>(256), 32), 256 + 32, 8, false, 20_000, 1_000);
+        CacheStressHarness.checkInvariants(new MultiTenantCache<String, Long, Long>(256).tenant("t"), 256, 8, false, 20_000, 1_000);
+
+        CacheStressHarness.checkNoLostUpdates(new ShardedCache<>(256, 8, LRUDoublyLinkedListCache::new), 8, false, 10_000, 64);
+        CacheStressHarness.checkNoLostUpdates(new MaintainedCache<>(new LFUDoublyLinkedListCache<>(256), 32), 8, true, 10_000, 64);
+    }
+
+    @Test
+    public void testCheckerDetectsOversizedCache() {
+        // Reports a capacity it does not enforce
+        ResizableCache<Long, Long> unbounded = new LRUDoublyLinkedListCache<>(Integer.MAX_VALUE);
+        ResizableCache<Long, Long> cache = new ShardedCache<>(64, 1, capacity -> unbounded);
+        assertThrows(AssertionError.class,
+                () -> CacheStressHarness.checkInvariants(cache, 64, 2, false, 5_000, 1_000));
+    }
+
+    @Test
+    public void testCheckerDetectsStaleReads() {
+        // Keeps the first value written for each key
+        CacheService<Long, Long> stale = new CacheService<>() {
+            private final Map<Long, Long> map = new ConcurrentHashMap<>();
+
+            @Override
+            public void put(Long id, Long value) {
+                map.putIfAbsent(id, value);
+            }
+
+            @Override
+            public Long get(Long id) {
+                return map.get(id);
+            }
+
+            @Override
+            public void evict(Long id) {
+                map.remove(id);
+            }
+        };
+        assertThrows(AssertionError.class,
+                () -> CacheStressHarness.checkInvariants(stale, Integer.MAX_VALUE, 2, false, 5_000, 100));
+    }
+}
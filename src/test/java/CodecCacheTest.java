@@ -0,0 +1,115 @@
+import org.cache.CacheService;
+import org.cache.CodecCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.ValueCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CodecCacheTest {
+
+    private static final ValueCodec<byte[]> IDENTITY = new ValueCodec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    @Test
+    public void testPutGetEvict() {
+        CacheService<Integer, String> cache = new CodecCache<>(new LRUDoublyLinkedListCache<>(3), ValueCodec.utf8(), true, 2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        assertEquals("one", cache.get(1));
+        assertEquals("two", cache.get(2));
+
+        cache.evict(1);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testEvictionFollowsUnderlyingPolicy() {
+        CacheService<Integer, String> cache = new CodecCache<>(new LRUDoublyLinkedListCache<>(2), ValueCodec.utf8(), false, 10);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three"); // the store evicts key 1
+
+        // The decoded copy of key 1 must not outlive its serialized form
+        assertNull(cache.get(1));
+        assertEquals("three", cache.get(3));
+    }
+
+    @Test
+    public void testPrefetchReplacesStaleDecodedCopy() {
+        LRUDoublyLinkedListCache<Integer, byte[]> store = new LRUDoublyLinkedListCache<>(10);
+        CacheService<Integer, String> cache = new CodecCache<>(store, ValueCodec.utf8(), false, 10);
+        cache.put(1, "one");
+        assertEquals("one", cache.get(1)); // decoded and kept
+        store.evict(1); // evicted by the store's own policy
+
+        cache.prefetch(1, "uno");
+
+        assertEquals("uno", cache.get(1));
+    }
+
+    @Test
+    public void testRepetitiveValuesAreCompressed() {
+        CacheService<Integer, byte[]> store = new LRUDoublyLinkedListCache<>(10);
+        CacheService<Integer, String> cache = new CodecCache<>(store, ValueCodec.utf8(), true, 0);
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"customer\",\"active\":true},");
+        }
+        String value = json.append("]").toString();
+        cache.put(1, value);
+
+        assertEquals(value, cache.get(1));
+        assertTrue(store.get(1).length * 4 < value.length(), "stored " + store.get(1).length + " of " + value.length() + " bytes");
+    }
+
+    @Test
+    public void testCompressionRoundTrip() {
+        CacheService<Integer, byte[]> cache = new CodecCache<>(new LRUDoublyLinkedListCache<>(1_000), IDENTITY, true, 0);
+        Random random = new Random(42);
+        int key = 0;
+        for (int length : new int[]{0, 1, 12, 13, 63, 64, 65, 300, 4_096, 70_000, 200_000}) {
+            for (int alphabet : new int[]{1, 4, 256}) {
+                byte[] value = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    // Mix random runs and repeated blocks to exercise literals, matches and overlapping copies
+                    value[i] = i > 100 && random.nextInt(3) == 0 ? value[i - 1 - random.nextInt(100)] : (byte) random.nextInt(alphabet);
+                }
+                cache.put(key, value);
+                assertArrayEquals(value, cache.get(key), "length " + length + ", alphabet " + alphabet);
+                key++;
+            }
+        }
+    }
+
+    @Test
+    public void testSerializableCodec() {
+        CacheService<String, HashMap<String, ArrayList<Integer>>> cache =
+                new CodecCache<>(new LRUDoublyLinkedListCache<>(10), ValueCodec.serializable(), true, 0);
+        HashMap<String, ArrayList<Integer>> graph = new HashMap<>();
+        ArrayList<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            numbers.add(i % 7);
+        }
+        graph.put("numbers", numbers);
+        cache.put("graph", graph);
+
+        assertEquals(graph, cache.get("graph"));
+        assertNotSame(graph, cache.get("graph"));
+    }
+}
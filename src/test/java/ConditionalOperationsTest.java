@@ -0,0 +1,274 @@
+import org.cache.CacheService;
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LFUTreeMapCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.LRUHashMapQueueCache;
+import org.cache.LRULinkedHashMapCache;
+import org.cache.MRUCache;
+import org.cache.MaintainedCache;
+import org.cache.MultiTenantCache;
+import org.cache.ResizableCache;
+import org.cache.SampledLRUCache;
+import org.cache.ShardedCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConditionalOperationsTest {
+
+    static Stream<IntFunction<ResizableCache<Integer, Integer>>> cacheProvider() {
+        return Stream.of(
+                LRULinkedHashMapCache::new,
+                LRUDoublyLinkedListCache::new,
+                LRUHashMapQueueCache::new,
+                LFUDoublyLinkedListCache::new,
+                LFUTreeMapCache::new,
+                MRUCache::new,
+                capacity -> new ShardedCache<>(capacity, 2, LRUDoublyLinkedListCache::new),
+                capacity -> new MaintainedCache<>(new LRUDoublyLinkedListCache<>(capacity), 0, 16, Runnable::run)
+        );
+    }
+
+    static Stream<IntFunction<ResizableCache<Integer, Integer>>> lruProvider() {
+        return Stream.of(
+                LRULinkedHashMapCache::new,
+                LRUDoublyLinkedListCache::new,
+                LRUHashMapQueueCache::new
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testPutIfAbsent(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(10);
+        assertNull(cache.putIfAbsent(1, 10));
+        assertEquals(10, cache.putIfAbsent(1, 20));
+        assertEquals(10, cache.get(1));
+        assertEquals(1, cache.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testComputeIfAbsent(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(10);
+        assertEquals(2, cache.computeIfAbsent(1, key -> key * 2));
+        assertEquals(2, cache.computeIfAbsent(1, key -> {
+            throw new AssertionError("an existing value is not recomputed");
+        }));
+        assertNull(cache.computeIfAbsent(2, key -> null));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testCompute(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(10);
+        assertEquals(1, cache.compute(1, (key, value) -> value == null ? 1 : value + 1));
+        assertEquals(2, cache.compute(1, (key, value) -> value == null ? 1 : value + 1));
+        assertEquals(2, cache.get(1));
+        assertNull(cache.compute(1, (key, value) -> null));
+        assertNull(cache.get(1));
+        assertNull(cache.compute(2, (key, value) -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testMerge(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(10);
+        assertEquals(5, cache.merge(1, 5, Integer::sum));
+        assertEquals(12, cache.merge(1, 7, Integer::sum));
+        assertEquals(12, cache.get(1));
+        assertNull(cache.merge(1, 1, (current, value) -> null));
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testReplace(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(10);
+        assertNull(cache.replace(1, 10));
+        assertNull(cache.get(1));
+        cache.put(1, 10);
+        assertEquals(10, cache.replace(1, 20));
+        assertEquals(20, cache.get(1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testCapacityIsRespected(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(16);
+        Map<Integer, Integer> written = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(64);
+            Integer value;
+            switch (random.nextInt(5)) {
+                case 0 -> value = cache.putIfAbsent(key, i) == null ? Integer.valueOf(i) : null;
+                case 1 -> value = cache.computeIfAbsent(key, k -> -k);
+                case 2 -> value = cache.compute(key, (k, v) -> random.nextInt(8) == 0 ? null : (v == null ? 0 : v + 1));
+                case 3 -> value = cache.merge(key, 1, Integer::sum);
+                default -> value = cache.replace(key, 7) == null ? null : Integer.valueOf(7);
+            }
+            if (value != null) {
+                written.put(key, value);
+            }
+            assertTrue(cache.size() <= 16);
+            Integer cached = cache.get(key);
+            assertTrue(cached == null || cached.equals(written.get(key)));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("lruProvider")
+    public void testConditionalOperationsUpdateRecency(IntFunction<ResizableCache<Integer, Integer>> factory) {
+        ResizableCache<Integer, Integer> cache = factory.apply(3);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        cache.putIfAbsent(1, 0);
+        cache.merge(2, 1, Integer::sum);
+        cache.computeIfAbsent(4, key -> key);
+        assertNull(cache.get(3));
+        assertEquals(3, cache.get(2));
+        assertEquals(1, cache.get(1));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    static Stream<IntFunction<CacheService<HashCounter, Integer>>> singleLookupProvider() {
+        return Stream.of(
+                LRUDoublyLinkedListCache::new,
+                LFUDoublyLinkedListCache::new,
+                LFUTreeMapCache::new,
+                MRUCache::new,
+                SampledLRUCache::new);
+    }
+
+    @ParameterizedTest
+    @MethodSource("singleLookupProvider")
+    public void testMissesHashTheKeyOnce(IntFunction<CacheService<HashCounter, Integer>> factory) {
+        CacheService<HashCounter, Integer> cache = factory.apply(2);
+        cache.put(new HashCounter(1), 1);
+        cache.put(new HashCounter(2), 2);
+
+        HashCounter key = new HashCounter(3);
+        assertNull(cache.putIfAbsent(key, 3));
+        assertEquals(1, key.hashes);
+        key = new HashCounter(4);
+        assertEquals(4, cache.computeIfAbsent(key, k -> 4));
+        assertEquals(1, key.hashes);
+        key = new HashCounter(5);
+        assertEquals(5, cache.compute(key, (k, value) -> 5));
+        assertEquals(1, key.hashes);
+        key = new HashCounter(6);
+        assertEquals(6, cache.merge(key, 6, Integer::sum));
+        assertEquals(1, key.hashes);
+        key = new HashCounter(7);
+        cache.put(key, 7);
+        assertEquals(1, key.hashes);
+    }
+
+    /**
+     * Key counting how often it is hashed.
+     */
+    static final class HashCounter {
+        final int id;
+        int hashes;
+
+        HashCounter(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            hashes++;
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof HashCounter && ((HashCounter) other).id == id;
+        }
+    }
+
+    @Test
+    public void testLfuCountsConditionalOperationsAsUses() {
+        LFUDoublyLinkedListCache<Integer, Integer> cache = new LFUDoublyLinkedListCache<>(2);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.compute(1, (key, value) -> value + 1);
+        cache.putIfAbsent(3, 3);
+        assertNull(cache.get(2));
+        assertEquals(2, cache.get(1));
+    }
+
+    @Test
+    public void testZeroCapacityStoresNothing() {
+        for (IntFunction<ResizableCache<Integer, Integer>> factory : cacheProvider().toList().subList(0, 6)) {
+            ResizableCache<Integer, Integer> cache = factory.apply(0);
+            assertNull(cache.putIfAbsent(1, 1));
+            assertEquals(2, cache.merge(2, 2, Integer::sum));
+            assertEquals(3, cache.computeIfAbsent(3, key -> key));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testTenantOperations() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(10);
+        CacheService<Integer, Integer> tenant = cache.tenant("a");
+        assertEquals(1, tenant.merge(1, 1, Integer::sum));
+        assertEquals(2, tenant.merge(1, 1, Integer::sum));
+        assertNull(cache.tenant("b").get(1));
+        assertEquals(2, tenant.replace(1, 5));
+        assertEquals(5, tenant.putIfAbsent(1, 9));
+    }
+
+    @Test
+    public void testConcurrentMergeLosesNoUpdates() throws Exception {
+        List<CacheService<Integer, Integer>> caches = List.of(
+                new ShardedCache<>(64, 8, LRUDoublyLinkedListCache::new),
+                new MaintainedCache<>(new LFUDoublyLinkedListCache<>(64), 8),
+                new MultiTenantCache<String, Integer, Integer>(64).tenant("t"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (CacheService<Integer, Integer> cache : caches) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 10_000; i++) {
+                            cache.merge(i % 16, 1, Integer::sum);
+                            cache.compute(100, (key, value) -> value == null ? 1 : value + 1);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                int total = 0;
+                for (int key = 0; key < 16; key++) {
+                    total += cache.get(key);
+                }
+                assertEquals(80_000, total);
+                assertEquals(80_000, cache.get(100));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
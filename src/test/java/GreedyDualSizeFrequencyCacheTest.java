@@ -0,0 +1,199 @@
+import org.cache.GreedyDualSizeFrequencyCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreedyDualSizeFrequencyCacheTest {
+
+    @Test
+    public void testBasicOperations() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(3));
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+        cache.evict(1);
+        assertNull(cache.get(1));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCheapEntriesAreEvictedFirst() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(3);
+        cache.put(1, "expensive", 100);
+        cache.put(2, "cheap", 1);
+        cache.put(3, "medium", 10);
+        cache.put(4, "new", 5);
+        assertNull(cache.get(2));
+        assertEquals("expensive", cache.get(1));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getInflation(), 0);
+    }
+
+    @Test
+    public void testFrequencyRaisesPriority() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(2);
+        cache.put(1, "a", 10);
+        cache.put(2, "b", 10);
+        cache.get(1);
+        cache.put(3, "c", 10);
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testInflationAgesIdleEntries() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(2);
+        cache.put(0, "once expensive", 5);
+        // A stream of cheap entries raises the clock until the idle expensive entry is the cheapest
+        for (int i = 1; i < 20; i++) {
+            cache.put(i, "v" + i, 1);
+            cache.get(i);
+        }
+        assertNull(cache.get(0));
+        assertTrue(cache.getInflation() >= 5);
+    }
+
+    @Test
+    public void testWeightBound() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(10, String::length);
+        cache.put(1, "aaaa", 1);
+        cache.put(2, "bbbb", 1);
+        cache.put(3, "cccc", 1);
+        assertEquals(2, cache.size());
+        assertTrue(cache.getWeight() <= 10);
+
+        // Heavier than the whole cache: not inserted
+        cache.put(4, "dddddddddddd", 1000);
+        assertNull(cache.get(4));
+
+        // Small entries win at equal cost
+        cache.put(5, "e", 1);
+        cache.put(6, "ffffffff", 1);
+        assertEquals("e", cache.get(5));
+        assertTrue(cache.getWeight() <= 10);
+    }
+
+    @Test
+    public void testGrowingExistingEntryEvictsOthers() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(10, String::length);
+        cache.put(1, "aaa", 1);
+        cache.put(2, "bbb", 1);
+        cache.put(3, "ccc", 1);
+        cache.put(1, "aaaaaaaaa", 1);
+        assertEquals("aaaaaaaaa", cache.get(1));
+        assertEquals(1, cache.size());
+        assertEquals(9, cache.getWeight());
+    }
+
+    @Test
+    public void testOversizedUpdateRemovesEntry() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(10, String::length);
+        cache.put(1, "aaa", 1);
+        cache.put(2, "bbb", 1);
+        cache.put(1, "aaaaaaaaaaaa", 1);
+        assertNull(cache.get(1));
+        assertEquals("bbb", cache.get(2));
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getWeight());
+    }
+
+    @Test
+    public void testLoweredCostMovesEntryUp() {
+        GreedyDualSizeFrequencyCache<String, String> cache = new GreedyDualSizeFrequencyCache<>(4);
+        cache.put("A", "a", 100);
+        cache.put("B", "b", 50);
+        cache.put("C", "c", 60);
+        cache.put("D", "d", 70);
+        cache.put("A", "a", 0.001);
+        cache.put("E", "e", 80);
+        assertNull(cache.get("A"));
+        assertEquals("b", cache.get("B"));
+        assertEquals("c", cache.get("C"));
+        assertEquals("d", cache.get("D"));
+        assertEquals("e", cache.get("E"));
+    }
+
+    @Test
+    public void testComputeCountsOneAccess() {
+        GreedyDualSizeFrequencyCache<String, String> cache = new GreedyDualSizeFrequencyCache<>(2);
+        cache.put("A", "a", 1);
+        assertEquals("aa", cache.compute("A", (key, value) -> value + "a"));
+        // A now has frequency 2 and priority 2; counting the access twice would have raised it above C
+        cache.put("C", "c", 2.5);
+        cache.put("D", "d", 10);
+        assertNull(cache.get("A"));
+        assertEquals("c", cache.get("C"));
+
+        assertNull(cache.putIfAbsent("E", "e"));
+        assertEquals("e", cache.putIfAbsent("E", "ignored"));
+        assertEquals("e!", cache.merge("E", "!", String::concat));
+        assertEquals("e!", cache.replace("E", "f"));
+        assertNull(cache.compute("E", (key, value) -> null));
+        assertNull(cache.get("E"));
+    }
+
+    @Test
+    public void testLoaderTimeBecomesCost() {
+        GreedyDualSizeFrequencyCache<Integer, String> cache = new GreedyDualSizeFrequencyCache<>(2);
+        assertEquals("slow", cache.get(1, key -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }));
+        cache.get(2, key -> "fast");
+        cache.get(3, key -> "fast");
+        assertEquals("slow", cache.get(1));
+        assertNull(cache.get(2));
+        assertNull(cache.get(4, key -> null));
+    }
+
+    @Test
+    public void testLowerMissCostThanLru() {
+        GreedyDualSizeFrequencyCache<Integer, Integer> gdsf = new GreedyDualSizeFrequencyCache<>(100);
+        LRUDoublyLinkedListCache<Integer, Integer> lru = new LRUDoublyLinkedListCache<>(100);
+        Random random = new Random(42);
+        double gdsfCost = 0;
+        double lruCost = 0;
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(1_000);
+            double cost = key % 10 == 0 ? 100 : 1;
+            if (gdsf.get(key) == null) {
+                gdsfCost += cost;
+                gdsf.put(key, key, cost);
+            }
+            if (lru.get(key) == null) {
+                lruCost += cost;
+                lru.put(key, key);
+            }
+        }
+        assertTrue(gdsfCost < lruCost / 2, "GDSF " + gdsfCost + " vs LRU " + lruCost);
+    }
+
+    @Test
+    public void testHeapStaysConsistent() {
+        GreedyDualSizeFrequencyCache<Integer, Integer> cache = new GreedyDualSizeFrequencyCache<>(50);
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(200);
+            switch (random.nextInt(3)) {
+                case 0 -> cache.put(key, key, 1 + random.nextInt(20));
+                case 1 -> {
+                    Integer value = cache.get(key);
+                    assertTrue(value == null || value == key);
+                }
+                default -> cache.evict(key);
+            }
+            assertTrue(cache.size() <= 50);
+            assertEquals(cache.size(), cache.getWeight());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import org.cache.HotKeySketch;
+import org.cache.HotKeyTrackingCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotKeySketchTest {
+
+    @Test
+    public void testExactWhileKeysFit() {
+        HotKeySketch<String> sketch = new HotKeySketch<>(10, 1);
+        for (int i = 0; i < 5; i++) {
+            sketch.record("a");
+        }
+        sketch.record("b");
+        sketch.record("b");
+        sketch.record("c");
+
+        List<HotKeySketch.HotKey<String>> top = sketch.getTopKeys(2);
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).getKey());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals("b", top.get(1).getKey());
+        assertEquals(2, top.get(1).getCount());
+        assertEquals(8, sketch.getTotalCount());
+    }
+
+    @Test
+    public void testFindsHeavyHittersInLongTail() {
+        HotKeySketch<Integer> sketch = new HotKeySketch<>(50, 4);
+        Random random = new Random(42);
+        int[] hot = {-1, -2, -3};
+        for (int i = 0; i < 200_000; i++) {
+            int r = random.nextInt(100);
+            // The three hot keys take 30% of the traffic, the rest is spread over 100,000 keys
+            sketch.record(r < 30 ? hot[r % 3] : random.nextInt(100_000));
+        }
+
+        List<Integer> topKeys = new ArrayList<>();
+        for (HotKeySketch.HotKey<Integer> key : sketch.getTopKeys(3)) {
+            topKeys.add(key.getKey());
+            // Estimates never fall below the true count, about 20,000
+            assertTrue(key.getCount() >= 19_000, key.toString());
+            assertTrue(key.getCount() - key.getError() <= 21_000, key.toString());
+        }
+        assertTrue(topKeys.contains(-1) && topKeys.contains(-2) && topKeys.contains(-3), topKeys.toString());
+    }
+
+    @Test
+    public void testConcurrentRecordingKeepsTotals() throws InterruptedException {
+        HotKeySketch<Integer> sketch = new HotKeySketch<>(100, 4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sketch.record(i % 10);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80_000, sketch.getTotalCount());
+        for (HotKeySketch.HotKey<Integer> key : sketch.getTopKeys(10)) {
+            assertEquals(8_000, key.getCount());
+        }
+    }
+
+    @Test
+    public void testTrackingCacheRecordsGetsAndPuts() {
+        HotKeyTrackingCache<String, String> cache = new HotKeyTrackingCache<>(new LRUDoublyLinkedListCache<>(10), new HotKeySketch<>(10));
+        cache.put("k", "v");
+        assertEquals("v", cache.get("k"));
+        cache.get("missing");
+
+        assertEquals("k", cache.getSketch().getTopKeys(1).get(0).getKey());
+        assertEquals(2, cache.getSketch().getTopKeys(1).get(0).getCount());
+    }
+
+    @Test
+    public void testReset() {
+        HotKeySketch<String> sketch = new HotKeySketch<>(4);
+        sketch.record("a");
+        sketch.reset();
+        assertTrue(sketch.getTopKeys(5).isEmpty());
+        assertEquals(0, sketch.getTotalCount());
+    }
+}
@@ -0,0 +1,120 @@
+import org.cache.CodecCache;
+import org.cache.InstrumentedCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.ValueCodec;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentedCacheTest {
+
+    @Test
+    public void testCountsHitsMissesAndLoads() {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<>("counts", new LRUDoublyLinkedListCache<>(10));
+        cache.put(1, "one");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("two", cache.get(2, key -> "two"));
+        assertEquals("two", cache.get(2));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(2, cache.getSize());
+        assertEquals(10, cache.getCapacity());
+    }
+
+    @Test
+    public void testUnknownSizeForNonResizableCache() {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<>("codec", new CodecCache<>(new LRUDoublyLinkedListCache<>(10), ValueCodec.utf8(), false, 0));
+        assertEquals(-1, cache.getSize());
+        assertEquals(-1, cache.getEvictionCount());
+        assertThrows(UnsupportedOperationException.class, () -> cache.setCapacity(5));
+    }
+
+    @Test
+    public void testReadingEvictionRateChangesNothing() throws InterruptedException {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<>("rate", new LRUDoublyLinkedListCache<>(10));
+        for (int i = 0; i < 20; i++) {
+            cache.put(i, "v" + i);
+        }
+        Thread.sleep(5);
+        double rate = cache.getEvictionRate();
+        assertTrue(rate > 0);
+        assertTrue(cache.getEvictionRate() > 0, "a second read sees the same evictions");
+
+        cache.resetStats();
+        Thread.sleep(5);
+        assertEquals(0, cache.getEvictionRate(), 1e-9);
+    }
+
+    @Test
+    public void testMBeanExposesStatsAndCapacity() throws Exception {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<>("jmx", new LRUDoublyLinkedListCache<>(10));
+        for (int i = 0; i < 15; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.get(14);
+        cache.register();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.cache:type=Cache,name=\"jmx\"");
+            assertEquals(10, server.getAttribute(name, "Size"));
+            assertEquals(5L, server.getAttribute(name, "EvictionCount"));
+            assertEquals(1.0, (Double) server.getAttribute(name, "HitRate"), 1e-9);
+
+            server.setAttribute(name, new Attribute("Capacity", 4));
+            assertEquals(4, cache.getCapacity());
+            // Excess entries are evicted by the following operations
+            cache.get(0);
+            cache.get(0);
+            assertEquals(4, cache.getSize());
+            assertEquals(11L, server.getAttribute(name, "EvictionCount"));
+        } finally {
+            cache.close();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName("org.cache:type=Cache,name=\"jmx\"")));
+    }
+
+    @Test
+    public void testEmitsFlightRecorderEvents() throws Exception {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<>("jfr", new LRUDoublyLinkedListCache<>(10), 1);
+        Path file = Files.createTempFile("cache", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.cache.Load");
+            recording.enable("org.cache.Operation").withThreshold(Duration.ZERO);
+            recording.enable("org.cache.EvictionBurst");
+            recording.start();
+            cache.put(1, "one");
+            cache.get(2, key -> "two");
+            cache.setCapacity(1);
+            cache.put(3, "three");
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("org.cache.Load")
+                    && e.getString("key").equals("2") && e.getBoolean("found")));
+            assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("org.cache.Operation")
+                    && e.getString("operation").equals("put")));
+            assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("org.cache.EvictionBurst")
+                    && e.getString("operation").equals("put") && e.getLong("evicted") == 2 && e.getInt("size") == 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import org.cache.InProcessInvalidationTransport;
+import org.cache.InvalidatingCache;
+import org.cache.InvalidationTransport;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.UdpInvalidationTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvalidatingCacheTest {
+
+    @Test
+    public void testPeerDropsStaleEntry() throws IOException {
+        InProcessInvalidationTransport<Integer> hub = new InProcessInvalidationTransport<>();
+        try (InvalidatingCache<Integer, String> first = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), hub.endpoint(), 100, 1_000);
+             InvalidatingCache<Integer, String> second = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), hub.endpoint(), 100, 1_000)) {
+            second.put(1, "old");
+            second.flush();
+
+            first.put(1, "new");
+            assertEquals("old", second.get(1)); // not published yet
+            first.flush();
+
+            assertNull(second.get(1));
+            assertEquals("new", first.get(1)); // the publisher keeps its own write
+        }
+    }
+
+    @Test
+    public void testWritesAreCoalescedIntoBatches() throws IOException {
+        InProcessInvalidationTransport<Integer> hub = new InProcessInvalidationTransport<>();
+        List<Collection<Integer>> batches = new ArrayList<>();
+        InvalidationTransport<Integer> observer = hub.endpoint();
+        observer.subscribe(batches::add);
+
+        try (InvalidatingCache<Integer, String> cache = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), hub.endpoint(), 100, 60_000)) {
+            for (int i = 0; i < 1_000; i++) {
+                cache.put(i % 3, "v" + i);
+            }
+            cache.evict(7);
+            cache.flush();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of(0, 1, 2, 7), new ArrayList<>(batches.get(0)));
+    }
+
+    @Test
+    public void testFlushAfterDelay() throws Exception {
+        InProcessInvalidationTransport<Integer> hub = new InProcessInvalidationTransport<>();
+        CountDownLatch received = new CountDownLatch(1);
+        hub.endpoint().subscribe(keys -> received.countDown());
+
+        try (InvalidatingCache<Integer, String> cache = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), hub.endpoint(), 100, 10)) {
+            cache.put(1, "one");
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testFailedPublishIsRetried() throws IOException {
+        List<Collection<Integer>> batches = new ArrayList<>();
+        int[] failures = {1};
+        InvalidationTransport<Integer> flaky = new InvalidationTransport<Integer>() {
+            @Override
+            public void publish(Collection<Integer> keys) {
+                if (failures[0]-- > 0) {
+                    throw new UncheckedIOException(new IOException("network unreachable"));
+                }
+                batches.add(new ArrayList<>(keys));
+            }
+
+            @Override
+            public void subscribe(Consumer<Collection<Integer>> listener) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        try (InvalidatingCache<Integer, String> cache = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), flaky, 100, 60_000)) {
+            cache.put(1, "one");
+            assertThrows(UncheckedIOException.class, cache::flush);
+            cache.put(2, "two");
+            cache.flush();
+        }
+
+        assertEquals(List.of(List.of(1, 2)), batches);
+    }
+
+    @Test
+    public void testCloseClosesTransportWhenFlushFails() {
+        boolean[] closed = {false};
+        InvalidationTransport<Integer> down = new InvalidationTransport<Integer>() {
+            @Override
+            public void publish(Collection<Integer> keys) {
+                throw new UncheckedIOException(new IOException("network unreachable"));
+            }
+
+            @Override
+            public void subscribe(Consumer<Collection<Integer>> listener) {
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        InvalidatingCache<Integer, String> cache = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), down, 100, 60_000);
+        cache.put(1, "one");
+
+        assertThrows(UncheckedIOException.class, cache::close);
+        assertTrue(closed[0]);
+    }
+
+    @Test
+    public void testWritesAfterCloseStayLocal() throws IOException {
+        InProcessInvalidationTransport<Integer> hub = new InProcessInvalidationTransport<>();
+        InvalidatingCache<Integer, String> cache = new InvalidatingCache<>(new LRUDoublyLinkedListCache<>(10), hub.endpoint(), 1, 60_000);
+        cache.close();
+
+        cache.put(1, "one");
+        cache.evict(2);
+
+        assertEquals("one", cache.get(1));
+    }
+
+    @Test
+    public void testUdpTransportSendsKeysBesideOversizedOne() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback);
+             UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback)) {
+            sender.addPeer(receiver.getLocalAddress());
+            List<String> keys = new ArrayList<>();
+            CountDownLatch received = new CountDownLatch(1);
+            receiver.subscribe(batch -> {
+                keys.addAll(batch);
+                received.countDown();
+            });
+
+            char[] huge = new char[64 * 1024];
+            Arrays.fill(huge, 'x');
+            assertThrows(IllegalArgumentException.class, () -> sender.publish(List.of("user:1", new String(huge), "user:2")));
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("user:1", "user:2"), keys);
+        }
+    }
+
+    @Test
+    public void testUdpTransportOnLoopback() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback);
+             UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback)) {
+            sender.addPeer(receiver.getLocalAddress());
+            List<String> keys = new ArrayList<>();
+            CountDownLatch received = new CountDownLatch(1);
+            receiver.subscribe(batch -> {
+                keys.addAll(batch);
+                received.countDown();
+            });
+
+            sender.publish(List.of("user:1", "user:2", "\u043a\u043b\u044e\u0447"));
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("user:1", "user:2", "\u043a\u043b\u044e\u0447"), keys);
+        }
+    }
+}
@@ -159,4 +159,26 @@ public class LFUCacheTest {
         assertNotNull(cache.get(4)); // key 4 should be added
         assertTrue(cache.get(2) == null || cache.get(3) == null); // One of key 2 or 3 should be evicted
     }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testUnreadPrefetchIsEvictedBeforeNewEntries(CacheService<Integer, String> cache) {
+        cache.prefetch(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        cache.put(4, "four");
+
+        assertNull(cache.get(1)); // the prefetch was never read
+        assertEquals("two", cache.get(2));
+        assertEquals("three", cache.get(3));
+        assertEquals("four", cache.get(4));
+
+        // A read prefetch ranks with the entries read once
+        cache.evict(2);
+        cache.prefetch(5, "five");
+        cache.get(5);
+        cache.get(5);
+        cache.put(6, "six");
+        assertEquals("five", cache.get(5));
+    }
 }
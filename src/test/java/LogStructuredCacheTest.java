@@ -0,0 +1,232 @@
+import org.cache.LogStructuredCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStructuredCacheTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("log-cache");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPutGetEvict() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 1 << 16)) {
+            byte[] key = bytes("key");
+            cache.put(key, bytes("value"));
+            key[0] = 'X';
+            assertEquals("value", string(cache.get(bytes("key"))));
+
+            cache.put(bytes("key"), bytes("updated"));
+            assertEquals("updated", string(cache.get(bytes("key"))));
+
+            ByteBuffer buffer = cache.getBuffer(bytes("key"));
+            assertTrue(buffer.isReadOnly());
+            assertEquals(7, buffer.remaining());
+
+            cache.evict(bytes("key"));
+            assertNull(cache.get(bytes("key")));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testConditionalOperations() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 1 << 16)) {
+            assertNull(cache.putIfAbsent(bytes("a"), bytes("1")));
+            assertEquals("1", string(cache.putIfAbsent(bytes("a"), bytes("2"))));
+            assertEquals("1", string(cache.computeIfAbsent(bytes("a"), key -> bytes("3"))));
+            assertEquals("4", string(cache.computeIfAbsent(bytes("b"), key -> bytes("4"))));
+            assertNull(cache.computeIfAbsent(bytes("c"), key -> null));
+
+            assertEquals("1+", string(cache.compute(bytes("a"), (key, value) -> bytes(string(value) + "+"))));
+            assertEquals("4!", string(cache.merge(bytes("b"), bytes("!"), (current, value) -> bytes(string(current) + string(value)))));
+            assertEquals("x", string(cache.merge(bytes("c"), bytes("x"), (current, value) -> null)));
+            assertNull(cache.merge(bytes("c"), bytes("x"), (current, value) -> null));
+
+            assertNull(cache.replace(bytes("missing"), bytes("v")));
+            assertEquals("1+", string(cache.replace(bytes("a"), bytes("5"))));
+            assertNull(cache.compute(bytes("b"), (key, value) -> null));
+
+            assertEquals("5", string(cache.get(bytes("a"))));
+            assertNull(cache.get(bytes("b")));
+            assertNull(cache.get(bytes("c")));
+            assertNull(cache.get(bytes("missing")));
+            assertEquals(1, cache.size());
+        }
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 1 << 16)) {
+            assertEquals("5", string(cache.get(bytes("a"))));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void testConditionalUpdateWritesOneRecord() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 64)) {
+            cache.put(bytes("a"), bytes("1"));
+            for (int i = 0; i < 10; i++) {
+                cache.put(bytes("k" + i), bytes("v" + i));
+            }
+            // The entry is in the oldest segment, but the update itself moves it
+            long before = cache.getDiskUsage();
+            assertEquals("12", string(cache.merge(bytes("a"), bytes("2"), (current, value) -> bytes(string(current) + string(value)))));
+            assertEquals(12 + 1 + 2, cache.getDiskUsage() - before);
+
+            before = cache.getDiskUsage();
+            assertEquals("12", string(cache.putIfAbsent(bytes("a"), bytes("3"))));
+            assertEquals(before, cache.getDiskUsage());
+        }
+    }
+
+    @Test
+    public void testIndexIsRebuiltOnReopen() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 256)) {
+            for (int i = 0; i < 50; i++) {
+                cache.put(bytes("k" + i), bytes("v" + i));
+            }
+            cache.put(bytes("k1"), bytes("changed"));
+            cache.evict(bytes("k2"));
+        }
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 256)) {
+            assertEquals(49, cache.size());
+            assertEquals("changed", string(cache.get(bytes("k1"))));
+            assertNull(cache.get(bytes("k2")));
+            assertEquals("v49", string(cache.get(bytes("k49"))));
+            cache.put(bytes("k50"), bytes("v50"));
+        }
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 256)) {
+            assertEquals("v50", string(cache.get(bytes("k50"))));
+        }
+    }
+
+    @Test
+    public void testTornWriteIsTruncated() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 1 << 16)) {
+            cache.put(bytes("a"), bytes("1"));
+            cache.put(bytes("b"), bytes("2"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+        long validLength = Files.size(segment);
+        // A header announcing more bytes than were written, as left by a crash in the middle of a write
+        Files.write(segment, new byte[]{1, 2, 3, 4, 0, 0, 0, 1, 0, 0, 0, 100, 'c'}, StandardOpenOption.APPEND);
+
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 1 << 16)) {
+            assertEquals(2, cache.size());
+            assertEquals("2", string(cache.get(bytes("b"))));
+            cache.put(bytes("c"), bytes("3"));
+        }
+        assertEquals(validLength + 12 + 2, Files.size(segment));
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 1 << 16)) {
+            assertEquals("3", string(cache.get(bytes("c"))));
+        }
+    }
+
+    @Test
+    public void testOldestSegmentIsEvicted() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1000, 200)) {
+            for (int i = 0; i < 200; i++) {
+                cache.put(bytes("key" + i), bytes("value" + i));
+            }
+            assertTrue(cache.getDiskUsage() <= 1000);
+            assertNull(cache.get(bytes("key0")));
+            assertEquals("value199", string(cache.get(bytes("key199"))));
+            assertTrue(cache.size() < 200);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() <= 6);
+        }
+    }
+
+    @Test
+    public void testEvictedSegmentDropsOnlyItsEntries() throws IOException {
+        int size;
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1000, 200)) {
+            for (int i = 0; i < 200; i++) {
+                cache.put(bytes("key" + i % 40), bytes("value" + i));
+                cache.put(bytes("fixed"), bytes("v" + i));
+            }
+            assertEquals("v199", string(cache.get(bytes("fixed"))));
+            assertEquals("value199", string(cache.get(bytes("key39"))));
+            size = cache.size();
+        }
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1000, 200)) {
+            assertEquals(size, cache.size());
+        }
+    }
+
+    @Test
+    public void testReadEntriesGetSecondChance() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1000, 200)) {
+            cache.put(bytes("hot"), bytes("value"));
+            for (int i = 0; i < 200; i++) {
+                cache.put(bytes("key" + i), bytes("value" + i));
+                assertEquals("value", string(cache.get(bytes("hot"))));
+            }
+        }
+    }
+
+    @Test
+    public void testCompactionReclaimsOverwrittenRecords() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 256)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 10; i++) {
+                    cache.put(bytes("k" + i), bytes("round" + round));
+                }
+            }
+            cache.evict(bytes("k0"));
+            long before = cache.getDiskUsage();
+
+            assertTrue(cache.compact() > 0);
+            assertTrue(cache.getDiskUsage() < before / 2, cache.getDiskUsage() + " of " + before);
+            assertEquals(9, cache.size());
+            assertEquals("round9", string(cache.get(bytes("k5"))));
+        }
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 256)) {
+            assertEquals(9, cache.size());
+            assertNull(cache.get(bytes("k0")));
+            assertEquals("round9", string(cache.get(bytes("k9"))));
+        }
+    }
+
+    @Test
+    public void testEntryLargerThanSegmentIsRejected() throws IOException {
+        try (LogStructuredCache cache = new LogStructuredCache(directory, 1 << 20, 64)) {
+            assertThrows(IllegalArgumentException.class, () -> cache.put(bytes("key"), new byte[100]));
+        }
+    }
+}
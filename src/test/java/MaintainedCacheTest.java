@@ -0,0 +1,96 @@
+import org.cache.LFUTreeMapCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MaintainedCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaintainedCacheTest {
+
+    @Test
+    public void testPutsAreAdmittedWithinSlack() {
+        List<Runnable> tasks = new ArrayList<>();
+        MaintainedCache<Integer, String> cache = new MaintainedCache<>(new LRUDoublyLinkedListCache<>(10), 5, 100, tasks::add);
+        for (int i = 0; i < 15; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(15, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(1, tasks.size(), "maintenance is scheduled once");
+
+        // With the slack used up the wrapped cache evicts inline
+        cache.put(15, "v15");
+        assertEquals(15, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        tasks.get(0).run();
+        assertEquals(10, cache.size());
+        assertNull(cache.get(0));
+        assertEquals("v15", cache.get(15));
+        assertEquals(10, cache.getCapacity());
+    }
+
+    @Test
+    public void testMaintenanceEvictsInBatches() {
+        List<Runnable> tasks = new ArrayList<>();
+        MaintainedCache<Integer, String> cache = new MaintainedCache<>(new LFUTreeMapCache<>(10), 50, 3, tasks::add);
+        for (int i = 0; i < 40; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(2, cache.evictExcess(2));
+        assertEquals(38, cache.size());
+
+        tasks.get(0).run();
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testShrinkIsMaintainedInBackground() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MaintainedCache<Integer, String> cache = new MaintainedCache<>(new LRUDoublyLinkedListCache<>(1000), 100, 16, executor);
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, "v" + i);
+            }
+            cache.setCapacity(100);
+            executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            assertEquals(100, cache.size());
+            assertEquals("v999", cache.get(999));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersStayWithinSlack() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        MaintainedCache<Integer, Integer> cache = new MaintainedCache<>(new LRUDoublyLinkedListCache<>(100), 50, 8, executor);
+        AtomicInteger largestSize = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 100_000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    cache.put(offset + i, i);
+                    largestSize.accumulateAndGet(cache.size(), Math::max);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(largestSize.get() <= 150, "size reached " + largestSize.get());
+        assertEquals(100, cache.size());
+    }
+}
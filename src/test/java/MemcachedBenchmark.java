@@ -0,0 +1,71 @@
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MemcachedClient;
+import org.cache.MemcachedServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Localhost throughput benchmark for {@link MemcachedServer}.
+ * <p>
+ * Each client thread owns one connection and alternates pipelined batches of {@code set} commands with
+ * multi-key {@code gets}. Run with optional arguments {@code <clients> <seconds> <batchSize> <valueSize>}.
+ */
+public class MemcachedBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int valueSize = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int keySpace = 100_000;
+
+        try (MemcachedServer server = new MemcachedServer(new LRUDoublyLinkedListCache<>(keySpace / 2),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+
+            LongAdder operations = new LongAdder();
+            LongAdder hits = new LongAdder();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            List<Thread> threads = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                Thread thread = new Thread(() -> {
+                    byte[] value = new byte[valueSize];
+                    try (MemcachedClient client = new MemcachedClient(address)) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (System.nanoTime() < deadline) {
+                            Map<String, byte[]> batch = new LinkedHashMap<>();
+                            List<String> keys = new ArrayList<>(batchSize);
+                            for (int i = 0; i < batchSize; i++) {
+                                batch.put("key" + random.nextInt(keySpace), value);
+                                keys.add("key" + random.nextInt(keySpace));
+                            }
+                            client.setAll(batch);
+                            hits.add(client.getAll(keys).size());
+                            operations.add(batch.size() + keys.size());
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            long total = operations.sum();
+            System.out.printf("clients=%d batch=%d valueSize=%d: %,d ops in %ds = %,.0f ops/s, get hit rate %.2f%n",
+                    clients, batchSize, valueSize, total, seconds, (double) total / seconds,
+                    hits.sum() / (total / 2.0));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import org.cache.CacheService;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MemcachedClient;
+import org.cache.MemcachedServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemcachedServerTest {
+
+    private MemcachedServer server;
+    private MemcachedClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new MemcachedServer(new LRUDoublyLinkedListCache<>(100), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = new MemcachedClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testSetGetDelete() throws IOException {
+        client.set("a", bytes("alpha"));
+
+        assertArrayEquals(bytes("alpha"), client.get("a"));
+        assertNull(client.get("missing"));
+
+        assertTrue(client.delete("a"));
+        assertFalse(client.delete("a"));
+        assertNull(client.get("a"));
+    }
+
+    @Test
+    public void testMultiKeyGets() throws IOException {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            values.put("key" + i, bytes("value" + i));
+        }
+        client.setAll(values);
+
+        Map<String, byte[]> found = client.getAll(Arrays.asList("key3", "nope", "key17"));
+        assertEquals(2, found.size());
+        assertArrayEquals(bytes("value3"), found.get("key3"));
+        assertArrayEquals(bytes("value17"), found.get("key17"));
+    }
+
+    @Test
+    public void testLargeValue() throws IOException {
+        byte[] value = new byte[300_000];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+        client.set("big", value);
+
+        assertArrayEquals(value, client.get("big"));
+    }
+
+    @Test
+    public void testPipelinedRawCommands() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(bytes("set x 5 0 2\r\nhi\r\nget x\r\nbogus\r\ndelete x noreply\r\ngets x\r\n"));
+            out.flush();
+
+            String expected = "STORED\r\nVALUE x 0 2\r\nhi\r\nEND\r\nERROR\r\nEND\r\n";
+            assertEquals(expected, readExactly(socket.getInputStream(), expected.length()));
+        }
+    }
+
+    @Test
+    public void testDeleteDoesNotReadTheEntry() throws IOException {
+        AtomicInteger gets = new AtomicInteger();
+        LRUDoublyLinkedListCache<String, byte[]> counting = new LRUDoublyLinkedListCache<String, byte[]>(100) {
+            @Override
+            public byte[] get(String id) {
+                gets.incrementAndGet();
+                return super.get(id);
+            }
+        };
+        try (MemcachedServer countingServer = new MemcachedServer(counting, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            countingServer.start();
+            try (MemcachedClient other = new MemcachedClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), countingServer.getPort()))) {
+                other.set("a", bytes("alpha"));
+
+                assertTrue(other.delete("a"));
+                assertFalse(other.delete("a"));
+                assertEquals(0, gets.get());
+                assertNull(counting.get("a"));
+            }
+        }
+    }
+
+    @Test
+    public void testFailingCommandClosesOnlyItsConnection() throws IOException {
+        LRUDoublyLinkedListCache<String, byte[]> cache = new LRUDoublyLinkedListCache<>(100);
+        CacheService<String, byte[]> failing = new CacheService<String, byte[]>() {
+            @Override
+            public void put(String id, byte[] value) {
+                cache.put(id, value);
+            }
+
+            @Override
+            public byte[] get(String id) {
+                if ("boom".equals(id)) {
+                    throw new IllegalStateException("boom");
+                }
+                return cache.get(id);
+            }
+
+            @Override
+            public void evict(String id) {
+                cache.evict(id);
+            }
+        };
+        try (MemcachedServer failingServer = new MemcachedServer(failing, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            failingServer.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), failingServer.getPort());
+            try (MemcachedClient other = new MemcachedClient(address);
+                 Socket socket = new Socket(InetAddress.getLoopbackAddress(), failingServer.getPort())) {
+                socket.setSoTimeout(5000);
+                other.set("a", bytes("alpha"));
+
+                socket.getOutputStream().write(bytes("get boom\r\n"));
+                socket.getOutputStream().flush();
+                assertEquals(-1, socket.getInputStream().read());
+
+                assertArrayEquals(bytes("alpha"), other.get("a"));
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedCommandsWaitForSlowReader() throws Exception {
+        byte[] value = new byte[256 * 1024];
+        AtomicInteger gets = new AtomicInteger();
+        CacheService<String, byte[]> counting = new CacheService<String, byte[]>() {
+            @Override
+            public void put(String id, byte[] value) {
+            }
+
+            @Override
+            public byte[] get(String id) {
+                gets.incrementAndGet();
+                return value;
+            }
+
+            @Override
+            public void evict(String id) {
+            }
+        };
+        int commands = 200;
+        try (MemcachedServer slowServer = new MemcachedServer(counting, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            slowServer.start();
+            try (Socket socket = new Socket()) {
+                socket.setReceiveBufferSize(64 * 1024);
+                socket.setSoTimeout(5000);
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), slowServer.getPort()));
+                StringBuilder pipeline = new StringBuilder();
+                for (int i = 0; i < commands; i++) {
+                    pipeline.append("get big\r\n");
+                }
+                socket.getOutputStream().write(bytes(pipeline.toString()));
+                socket.getOutputStream().flush();
+                Thread.sleep(200);
+
+                assertTrue(gets.get() < commands / 2, "executed " + gets.get() + " commands ahead of the reader");
+
+                long response = ("VALUE big 0 " + value.length + "\r\n").length() + value.length + "\r\nEND\r\n".length();
+                InputStream in = socket.getInputStream();
+                byte[] buffer = new byte[64 * 1024];
+                long total = 0;
+                while (total < response * commands) {
+                    int read = in.read(buffer);
+                    if (read < 0) {
+                        break;
+                    }
+                    total += read;
+                }
+                assertEquals(response * commands, total);
+                assertEquals(commands, gets.get());
+            }
+        }
+    }
+
+    private static String readExactly(InputStream in, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) {
+                break;
+            }
+            offset += read;
+        }
+        return new String(buffer, 0, offset, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+import org.cache.CacheService;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MissRatioProfiler;
+import org.cache.ProfilingCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MissRatioProfilerTest {
+
+    private static final int[] CAPACITIES = {1_000, 4_000, 16_000, 64_000};
+
+    @Test
+    public void testCurveMatchesFullSizeSimulations() {
+        MissRatioProfiler<Long> profiler = new MissRatioProfiler<>(LRUDoublyLinkedListCache::new, CAPACITIES);
+        List<LRUDoublyLinkedListCache<Long, Boolean>> exact = new ArrayList<>();
+        for (int capacity : CAPACITIES) {
+            exact.add(new LRUDoublyLinkedListCache<>(capacity));
+        }
+        long[] misses = new long[CAPACITIES.length];
+        CacheStressHarness.ScrambledZipfianGenerator keys = new CacheStressHarness.ScrambledZipfianGenerator(1_000_000);
+        SplittableRandom random = new SplittableRandom(1);
+        int reads = 2_000_000;
+        for (int i = 0; i < reads; i++) {
+            long key = keys.next(random);
+            profiler.recordRead(key);
+            for (int j = 0; j < CAPACITIES.length; j++) {
+                if (exact.get(j).get(key) == null) {
+                    misses[j]++;
+                    exact.get(j).put(key, Boolean.TRUE);
+                }
+            }
+        }
+        SortedMap<Integer, Double> curve = profiler.getMissRatioCurve();
+        assertEquals(CAPACITIES.length, curve.size());
+        for (int j = 0; j < CAPACITIES.length; j++) {
+            double actual = (double) misses[j] / reads;
+            double estimated = curve.get(CAPACITIES[j]);
+            assertEquals(actual, estimated, 0.02, "capacity " + CAPACITIES[j]);
+        }
+        assertTrue(curve.get(1_000) > curve.get(64_000));
+    }
+
+    @Test
+    public void testUniformKeysFollowCapacityRatio() {
+        MissRatioProfiler<Integer> profiler = new MissRatioProfiler<>(LRUDoublyLinkedListCache::new, new int[]{25_000, 50_000, 75_000}, 512);
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < 2_000_000; i++) {
+            profiler.recordRead(random.nextInt(100_000));
+        }
+        profiler.resetCounts();
+        for (int i = 0; i < 2_000_000; i++) {
+            profiler.recordRead(random.nextInt(100_000));
+        }
+        // With uniform keys, an LRU cache holding a fraction f of them misses 1 - f of the reads
+        assertEquals(0.75, profiler.estimateMissRatio(25_000), 0.05);
+        assertEquals(0.50, profiler.estimateMissRatio(50_000), 0.05);
+        assertEquals(0.25, profiler.estimateMissRatio(75_000), 0.05);
+        assertEquals(0.625, profiler.estimateMissRatio(37_500), 0.05);
+        assertEquals(profiler.estimateMissRatio(25_000), profiler.estimateMissRatio(1_000), 0);
+    }
+
+    @Test
+    public void testMemoryIsBoundedBySampledEntries() {
+        List<Integer> miniCapacities = new ArrayList<>();
+        MissRatioProfiler<Integer> profiler = new MissRatioProfiler<>(capacity -> {
+            miniCapacities.add(capacity);
+            return new LRUDoublyLinkedListCache<>(capacity);
+        }, new int[]{100, 10_000, 100_000_000}, 256);
+        assertEquals(List.of(100, 256, 256), miniCapacities);
+        assertTrue(Double.isNaN(profiler.estimateMissRatio(100)));
+        assertTrue(profiler.getMissRatioCurve().isEmpty());
+    }
+
+    @Test
+    public void testProfilingCacheRecordsReadsAndInvalidations() {
+        MissRatioProfiler<Integer> profiler = new MissRatioProfiler<>(LRUDoublyLinkedListCache::new, new int[]{10});
+        CacheService<Integer, String> cache = new ProfilingCache<>(new LRUDoublyLinkedListCache<>(10), profiler);
+        assertEquals("one", cache.get(1, key -> "one"));
+        assertEquals("one", cache.get(1));
+        assertEquals(0.5, profiler.estimateMissRatio(10), 0);
+
+        cache.put(2, "two");
+        cache.evict(1);
+        assertNull(cache.get(1));
+        assertEquals(2.0 / 3, profiler.estimateMissRatio(10), 1e-9);
+        assertEquals(3, profiler.getSampledReadCount());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new MissRatioProfiler<Integer>(LRUDoublyLinkedListCache::new, new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> new MissRatioProfiler<Integer>(LRUDoublyLinkedListCache::new, new int[]{10}, 0));
+        assertThrows(IllegalArgumentException.class, () -> new MissRatioProfiler<Integer>(LRUDoublyLinkedListCache::new, new int[]{-5}));
+    }
+}
@@ -0,0 +1,169 @@
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MultiTenantCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiTenantCacheTest {
+
+    @Test
+    public void testTenantsHaveSeparateKeySpaces() {
+        MultiTenantCache<String, Integer, String> cache = new MultiTenantCache<>(10);
+        MultiTenantCache<String, Integer, String>.Tenant a = cache.tenant("a");
+        MultiTenantCache<String, Integer, String>.Tenant b = cache.tenant("b");
+        a.put(1, "a1");
+        b.put(1, "b1");
+        assertEquals("a1", a.get(1));
+        assertEquals("b1", b.get(1));
+        assertSame(a, cache.tenant("a"));
+        a.evict(1);
+        assertNull(a.get(1));
+        assertEquals(1, cache.size());
+        assertEquals(1, a.getHitCount());
+        assertEquals(1, a.getMissCount());
+        assertEquals(0.5, a.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testIdleCapacityIsShared() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(100);
+        MultiTenantCache<String, Integer, Integer>.Tenant busy = cache.tenant("busy");
+        cache.tenant("idle").put(0, 0);
+        for (int i = 0; i < 200; i++) {
+            busy.put(i, i);
+        }
+        assertEquals(99, busy.size());
+        assertEquals(100, cache.size());
+        assertEquals(0.99, busy.getOccupancy(), 1e-9);
+        assertEquals(101, busy.getEvictionCount());
+    }
+
+    @Test
+    public void testVictimIsTenantOverFairShare() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(10);
+        MultiTenantCache<String, Integer, Integer>.Tenant big = cache.tenant("big");
+        MultiTenantCache<String, Integer, Integer>.Tenant small = cache.tenant("small");
+        for (int i = 0; i < 8; i++) {
+            big.put(i, i);
+        }
+        small.put(0, 0);
+        small.put(1, 1);
+        small.put(2, 2);
+        small.put(3, 3);
+        assertEquals(6, big.size());
+        assertEquals(4, small.size());
+        assertNull(big.get(0));
+        assertNull(big.get(1));
+        assertEquals(0, small.getEvictionCount());
+    }
+
+    @Test
+    public void testReservationIsProtected() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(10);
+        cache.setQuota("vip", 4, 10);
+        MultiTenantCache<String, Integer, Integer>.Tenant vip = cache.tenant("vip");
+        MultiTenantCache<String, Integer, Integer>.Tenant other = cache.tenant("other");
+        for (int i = 0; i < 4; i++) {
+            vip.put(i, i);
+        }
+        for (int i = 0; i < 100; i++) {
+            other.put(i, i);
+        }
+        assertEquals(4, vip.size());
+        assertEquals(6, other.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, vip.get(i));
+        }
+    }
+
+    @Test
+    public void testMaxShareIsEnforced() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(100);
+        cache.setQuota("capped", 0, 5);
+        MultiTenantCache<String, Integer, Integer>.Tenant capped = cache.tenant("capped");
+        for (int i = 0; i < 20; i++) {
+            capped.put(i, i);
+        }
+        assertEquals(5, capped.size());
+        assertEquals(15, capped.get(15));
+
+        // Lowering the share evicts the excess over the following operations
+        cache.setQuota("capped", 0, 2);
+        capped.get(0);
+        assertEquals(2, capped.size());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testQuotaValidation() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(10);
+        assertThrows(IllegalArgumentException.class, () -> cache.setQuota("a", 5, 4));
+        assertThrows(IllegalArgumentException.class, () -> cache.setQuota("a", -1, 4));
+        cache.setQuota("a", 6, 10);
+        assertThrows(IllegalArgumentException.class, () -> cache.setQuota("b", 5, 10));
+        cache.setQuota("a", 5, 10);
+        cache.setQuota("b", 5, 10);
+        assertThrows(IllegalArgumentException.class, () -> cache.setCapacity(9));
+    }
+
+    @Test
+    public void testShrinkingCapacityAndRemovingTenants() {
+        MultiTenantCache<String, Integer, Integer> cache = new MultiTenantCache<>(20);
+        MultiTenantCache<String, Integer, Integer>.Tenant a = cache.tenant("a");
+        MultiTenantCache<String, Integer, Integer>.Tenant b = cache.tenant("b");
+        for (int i = 0; i < 10; i++) {
+            a.put(i, i);
+            b.put(i, i);
+        }
+        cache.setCapacity(10);
+        for (int i = 0; i < 5; i++) {
+            a.get(-1);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(5, a.size());
+        assertEquals(5, b.size());
+        assertEquals(10, cache.getEvictionCount());
+
+        cache.removeTenant("a");
+        assertEquals(5, cache.size());
+        assertEquals(1, cache.getTenants().size());
+        a.put(100, 100);
+        assertEquals(5, cache.size(), "a removed tenant's view no longer stores entries");
+    }
+
+    @Test
+    public void testHigherHitRateThanStaticPartitions() {
+        int tenantCount = 20;
+        int perTenant = 50;
+        MultiTenantCache<Integer, Integer, Integer> shared = new MultiTenantCache<>(tenantCount * perTenant);
+        List<LRUDoublyLinkedListCache<Integer, Integer>> partitions = new ArrayList<>();
+        for (int t = 0; t < tenantCount; t++) {
+            partitions.add(new LRUDoublyLinkedListCache<>(perTenant));
+        }
+        Random random = new Random(3);
+        long sharedHits = 0;
+        long staticHits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // Two busy tenants with large working sets, the others mostly idle
+            int tenant = random.nextInt(10) < 8 ? random.nextInt(2) : 2 + random.nextInt(tenantCount - 2);
+            int key = random.nextInt(tenant < 2 ? 400 : 20);
+            MultiTenantCache<Integer, Integer, Integer>.Tenant view = shared.tenant(tenant);
+            if (view.get(key) != null) {
+                sharedHits++;
+            } else {
+                view.put(key, key);
+            }
+            if (partitions.get(tenant).get(key) != null) {
+                staticHits++;
+            } else {
+                partitions.get(tenant).put(key, key);
+            }
+        }
+        assertTrue(shared.size() <= tenantCount * perTenant);
+        assertTrue(sharedHits > staticHits * 1.5, "shared " + sharedHits + " vs static " + staticHits);
+    }
+}
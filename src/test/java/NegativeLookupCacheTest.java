@@ -0,0 +1,90 @@
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.NegativeLookupCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NegativeLookupCacheTest {
+
+    @Test
+    public void testAbsentKeyIsLoadedOnce() {
+        NegativeLookupCache<Integer, String> cache = new NegativeLookupCache<>(new LRUDoublyLinkedListCache<>(10), 1000, 0.01, 2, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get(1, key -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get(1, key -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getSkippedLoadCount());
+        assertTrue(cache.isKnownAbsent(1));
+    }
+
+    @Test
+    public void testPutClearsAbsentStatus() {
+        NegativeLookupCache<Integer, String> cache = new NegativeLookupCache<>(new LRUDoublyLinkedListCache<>(10), 1000, 0.01, 2, 60_000);
+        cache.markAbsent(1);
+        cache.put(1, "one");
+        assertFalse(cache.isKnownAbsent(1));
+
+        cache.evict(1);
+        assertEquals("loaded", cache.get(1, key -> "loaded"));
+        assertEquals("loaded", cache.get(1));
+    }
+
+    @Test
+    public void testPutNeverLeavesKeyAbsent() {
+        // A tiny filter gives many false positives and saturated counters
+        NegativeLookupCache<Integer, String> cache = new NegativeLookupCache<>(new LRUDoublyLinkedListCache<>(10), 16, 0.2, 2, 60_000);
+        for (int i = 0; i < 1000; i++) {
+            cache.markAbsent(i);
+            cache.put(i + 7, "v");
+            assertFalse(cache.isKnownAbsent(i + 7));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        NegativeLookupCache<Integer, String> cache = new NegativeLookupCache<>(new LRUDoublyLinkedListCache<>(10), 10_000, 0.01, 2, 60_000);
+        for (int i = 0; i < 10_000; i++) {
+            cache.markAbsent(i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(cache.isKnownAbsent(i));
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (cache.isKnownAbsent(i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives");
+    }
+
+    @Test
+    public void testGenerationsExpire() throws InterruptedException {
+        NegativeLookupCache<Integer, String> cache = new NegativeLookupCache<>(new LRUDoublyLinkedListCache<>(10), 1000, 0.01, 2, 20);
+        cache.markAbsent(1);
+        Thread.sleep(30);
+        assertTrue(cache.isKnownAbsent(1));
+        Thread.sleep(30);
+        assertFalse(cache.isKnownAbsent(1));
+    }
+
+    @Test
+    public void testFullGenerationRotates() {
+        NegativeLookupCache<Integer, String> cache = new NegativeLookupCache<>(new LRUDoublyLinkedListCache<>(10), 100, 0.01, 2, 60_000);
+        cache.markAbsent(-1);
+        for (int i = 0; i < 250; i++) {
+            cache.markAbsent(i);
+        }
+        assertFalse(cache.isKnownAbsent(-1));
+        assertTrue(cache.isKnownAbsent(249));
+    }
+}
@@ -0,0 +1,237 @@
+import org.cache.CacheService;
+import org.cache.HotKeySketch;
+import org.cache.HotKeyTrackingCache;
+import org.cache.InstrumentedCache;
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.MaintainedCache;
+import org.cache.MissRatioProfiler;
+import org.cache.NegativeLookupCache;
+import org.cache.PrefetchingCache;
+import org.cache.PrefetchingCache.KeyPattern;
+import org.cache.ProfilingCache;
+import org.cache.SampledLRUCache;
+import org.cache.ShardedCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefetchingCacheTest {
+
+    @Test
+    public void testSequentialRunIsPrefetched() {
+        AtomicInteger loads = new AtomicInteger();
+        PrefetchingCache<Long, String> cache = new PrefetchingCache<>(new LRUDoublyLinkedListCache<>(100),
+                key -> "v" + key, KeyPattern.numeric(), 4, 1_000, 10, Runnable::run);
+        for (long key = 1; key <= 3; key++) {
+            assertEquals("v" + key, cache.get(key, id -> "v" + id));
+        }
+        assertEquals(4, cache.getPrefetchCount());
+        for (long key = 4; key <= 50; key++) {
+            assertEquals("v" + key, cache.get(key, id -> {
+                loads.incrementAndGet();
+                return "v" + id;
+            }));
+        }
+        // Only the reads before the run was detected missed
+        assertEquals(0, loads.get());
+        assertEquals(51, cache.getPrefetchCount());
+    }
+
+    @Test
+    public void testStridedRunsPerStream() {
+        List<String> prefetched = new ArrayList<>();
+        PrefetchingCache<String, String> cache = new PrefetchingCache<>(new LRUDoublyLinkedListCache<>(100), key -> {
+            prefetched.add(key);
+            return key.toUpperCase();
+        }, KeyPattern.suffixed(":"), 2, 1_000, 10, Runnable::run);
+        String[] reads = {"a:1", "b:100", "a:2", "b:90", "a:3", "b:80", "plain"};
+        for (String key : reads) {
+            cache.get(key, String::toUpperCase);
+        }
+        assertEquals(List.of("a:4", "a:5", "b:70", "b:60"), prefetched);
+        // Continuing the run loads only the key not prefetched yet
+        assertEquals("B:70", cache.get("b:70"));
+        assertEquals(List.of("a:4", "a:5", "b:70", "b:60", "b:50"), prefetched);
+
+        // A changed stride starts a new run
+        cache.get("a:10");
+        cache.get("a:20");
+        assertEquals(5, prefetched.size());
+        cache.get("a:30");
+        assertEquals(List.of("a:4", "a:5", "b:70", "b:60", "b:50", "a:40", "a:50"), prefetched);
+    }
+
+    @Test
+    public void testBudgetCapsPrefetches() {
+        PrefetchingCache<Long, Long> cache = new PrefetchingCache<>(new LRUDoublyLinkedListCache<>(10_000),
+                key -> key, KeyPattern.numeric(), 8, 10, 10, Runnable::run);
+        long start = System.nanoTime();
+        for (long key = 0; key < 5_000; key++) {
+            cache.get(key, id -> id);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertTrue(cache.getPrefetchCount() <= 10 + Math.ceil(seconds * 10), "prefetches " + cache.getPrefetchCount());
+        assertTrue(cache.getDroppedPrefetchCount() > 0);
+    }
+
+    @Test
+    public void testReadWaitsForLoadingPrefetch() throws InterruptedException {
+        Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        PrefetchingCache<Long, String> cache = new PrefetchingCache<>(new LRUDoublyLinkedListCache<>(100),
+                key -> "v" + key, KeyPattern.numeric(), 2, 1_000, 10, tasks::add);
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(3L);
+        assertEquals(2, tasks.size());
+        Thread worker = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            tasks.forEach(Runnable::run);
+        });
+        worker.start();
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("v4", cache.get(4L, key -> {
+            loads.incrementAndGet();
+            return "v" + key;
+        }));
+        worker.join();
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void testEvictDiscardsLoadingPrefetch() {
+        Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        PrefetchingCache<Long, String> cache = new PrefetchingCache<>(new LRUDoublyLinkedListCache<>(100),
+                key -> "stale", KeyPattern.numeric(), 2, 1_000, 10, tasks::add);
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(3L);
+        cache.evict(4L);
+        cache.put(5L, "fresh");
+        tasks.forEach(Runnable::run);
+        assertNull(cache.get(4L));
+        assertEquals("fresh", cache.get(5L));
+    }
+
+    @Test
+    public void testPrefetchedEntriesAreEvictedFirst() {
+        List<CacheService<Integer, String>> caches = List.of(
+                new LRUDoublyLinkedListCache<>(3),
+                new LFUDoublyLinkedListCache<>(3),
+                // Enough samples to find the prefetched entry among three
+                new SampledLRUCache<>(3, 64),
+                new ShardedCache<>(3, 1, LRUDoublyLinkedListCache::new));
+        for (CacheService<Integer, String> cache : caches) {
+            String name = cache.getClass().getSimpleName();
+            cache.put(1, "one");
+            cache.put(2, "two");
+            cache.prefetch(3, "three");
+            cache.prefetch(1, "ignored");
+            cache.put(4, "four");
+            assertNull(cache.get(3), name);
+            assertEquals("one", cache.get(1), name);
+            assertEquals("two", cache.get(2), name);
+
+            // Once read, a prefetched entry competes like any other
+            cache.evict(4);
+            cache.prefetch(5, "five");
+            assertEquals("five", cache.get(5), name);
+            cache.get(5);
+            cache.get(2);
+            cache.put(6, "six");
+            assertEquals("five", cache.get(5), name);
+        }
+    }
+
+    @Test
+    public void testWrongGuessesKeepReadEntries() {
+        List<CacheService<Integer, String>> caches = List.of(
+                new LRUDoublyLinkedListCache<>(4),
+                new LFUDoublyLinkedListCache<>(4),
+                new SampledLRUCache<>(4),
+                new ShardedCache<>(4, 1, LRUDoublyLinkedListCache::new));
+        for (CacheService<Integer, String> cache : caches) {
+            String name = cache.getClass().getSimpleName();
+            for (int key = 100; key < 104; key++) {
+                cache.put(key, "r" + key);
+                cache.get(key);
+            }
+            for (int key = 1; key <= 20; key++) {
+                cache.prefetch(key, "p" + key);
+            }
+            for (int key = 100; key < 104; key++) {
+                assertEquals("r" + key, cache.get(key), name);
+            }
+            for (int key = 1; key <= 20; key++) {
+                assertNull(cache.get(key), name);
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetchReplacesOldestUnreadPrefetch() {
+        List<CacheService<Integer, String>> caches = List.of(
+                new LRUDoublyLinkedListCache<>(4),
+                new LFUDoublyLinkedListCache<>(4),
+                new ShardedCache<>(4, 1, LRUDoublyLinkedListCache::new));
+        for (CacheService<Integer, String> cache : caches) {
+            String name = cache.getClass().getSimpleName();
+            cache.put(10, "r10");
+            cache.put(11, "r11");
+            for (int key = 1; key <= 5; key++) {
+                cache.prefetch(key, "p" + key);
+            }
+            assertEquals("r10", cache.get(10), name);
+            assertEquals("r11", cache.get(11), name);
+            assertNull(cache.get(1), name);
+            assertNull(cache.get(2), name);
+            assertNull(cache.get(3), name);
+            assertEquals("p4", cache.get(4), name);
+            assertEquals("p5", cache.get(5), name);
+        }
+    }
+
+    @Test
+    public void testWrappersForwardPrefetch() {
+        List<Function<LRUDoublyLinkedListCache<Integer, String>, CacheService<Integer, String>>> wrappers = List.of(
+                backing -> new InstrumentedCache<>("prefetch", backing),
+                backing -> new ProfilingCache<>(backing,
+                        new MissRatioProfiler<Integer>(LRUDoublyLinkedListCache::new, new int[]{3})),
+                backing -> new HotKeyTrackingCache<>(backing, new HotKeySketch<>(8)),
+                backing -> new NegativeLookupCache<>(backing, 100, 0.01, 2, 60_000),
+                backing -> new MaintainedCache<>(backing, 0, 64, Runnable::run));
+        for (Function<LRUDoublyLinkedListCache<Integer, String>, CacheService<Integer, String>> wrapper : wrappers) {
+            CacheService<Integer, String> cache = wrapper.apply(new LRUDoublyLinkedListCache<>(3));
+            String name = cache.getClass().getSimpleName();
+            cache.put(1, "one");
+            cache.put(20, "twenty");
+            cache.prefetch(30, "thirty");
+            cache.put(40, "forty");
+            assertNull(cache.get(30), name);
+            assertEquals("one", cache.get(1), name);
+            assertEquals("twenty", cache.get(20), name);
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        CacheService<Long, Long> backing = new LRUDoublyLinkedListCache<>(10);
+        assertThrows(IllegalArgumentException.class,
+                () -> new PrefetchingCache<>(backing, key -> key, KeyPattern.numeric(), 0, 10, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PrefetchingCache<>(backing, key -> key, KeyPattern.numeric(), 4, 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PrefetchingCache<>(backing, key -> key, KeyPattern.numeric(), 4, 10, 0));
+    }
+}
@@ -0,0 +1,210 @@
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LFUTreeMapCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.LRUHashMapQueueCache;
+import org.cache.LRULinkedHashMapCache;
+import org.cache.MRUCache;
+import org.cache.MemoryPressureController;
+import org.cache.ResizableCache;
+import org.cache.ShardedCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResizableCacheTest {
+
+    static Stream<IntFunction<ResizableCache<Integer, String>>> cacheProvider() {
+        return Stream.of(
+                LRULinkedHashMapCache::new,
+                LRUDoublyLinkedListCache::new,
+                LRUHashMapQueueCache::new,
+                LFUDoublyLinkedListCache::new,
+                LFUTreeMapCache::new,
+                MRUCache::new
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testShrinkEvictsGradually(IntFunction<ResizableCache<Integer, String>> factory) {
+        ResizableCache<Integer, String> cache = factory.apply(20);
+        for (int i = 0; i < 20; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        cache.setCapacity(4);
+        assertEquals(4, cache.getCapacity());
+        assertEquals(20, cache.size());
+
+        // Each operation evicts a bounded number of excess entries and a put never grows the cache
+        cache.get(19);
+        assertEquals(20 - ResizableCache.EXCESS_EVICTIONS_PER_OPERATION, cache.size());
+        cache.put(20, "v20");
+        assertTrue(cache.size() <= 20 - 2 * ResizableCache.EXCESS_EVICTIONS_PER_OPERATION);
+        for (int i = 0; i < 10; i++) {
+            cache.get(i);
+        }
+        assertEquals(4, cache.size());
+        assertEquals(17, cache.getEvictionCount());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testEvictExcess(IntFunction<ResizableCache<Integer, String>> factory) {
+        ResizableCache<Integer, String> cache = factory.apply(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(0, cache.evictExcess(100));
+
+        cache.setCapacity(4);
+        assertEquals(2, cache.evictExcess(2));
+        assertEquals(8, cache.size());
+        assertEquals(4, cache.evictExcess(100));
+        assertEquals(4, cache.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testShrinkKeepsPolicyOrder(IntFunction<ResizableCache<Integer, String>> factory) {
+        ResizableCache<Integer, String> cache = factory.apply(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        cache.get(3);
+
+        cache.setCapacity(1);
+        cache.evictExcess(100);
+        // LRU and LFU keep the most recently and most frequently used key, MRU evicts it first
+        Integer survivor = cache instanceof MRUCache ? 1 : 3;
+        assertNotNull(cache.get(survivor));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testGrowKeepsEntries(IntFunction<ResizableCache<Integer, String>> factory) {
+        ResizableCache<Integer, String> cache = factory.apply(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        cache.setCapacity(4);
+        cache.put(3, "three");
+        cache.put(4, "four");
+
+        assertEquals(4, cache.size());
+        assertEquals("one", cache.get(1));
+        assertEquals("four", cache.get(4));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cacheProvider")
+    public void testShrinkToZero(IntFunction<ResizableCache<Integer, String>> factory) {
+        ResizableCache<Integer, String> cache = factory.apply(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        cache.setCapacity(0);
+        cache.evictExcess(100);
+        assertEquals(0, cache.size());
+        cache.put(3, "three");
+        assertNull(cache.get(3));
+    }
+
+    @Test
+    public void testShardedCacheRedistributesCapacity() {
+        ShardedCache<Integer, String> cache = new ShardedCache<>(100, 4, LRUDoublyLinkedListCache::new);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(100, cache.size());
+
+        cache.setCapacity(40);
+        assertEquals(40, cache.getCapacity());
+        assertEquals(60, cache.evictExcess(1000));
+        assertEquals(40, cache.size());
+    }
+
+    @Test
+    public void testControllerShrinksAndGrows() {
+        ShardedCache<Integer, String> cache = new ShardedCache<>(1000, 4, LFUDoublyLinkedListCache::new);
+        try (MemoryPressureController controller = new MemoryPressureController(cache, 0.7, 0.9, 100, 60_000)) {
+            assertEquals(900, controller.adjust(0.75));
+            assertEquals(810, controller.adjust(0.75));
+            assertEquals(405, controller.adjust(0.95));
+            assertEquals(202, controller.adjust(0.95));
+            assertEquals(101, controller.adjust(0.95));
+            assertEquals(100, controller.adjust(0.95));
+            // Between the grow threshold and the soft limit nothing changes
+            assertEquals(100, controller.adjust(0.6));
+            assertEquals(200, controller.adjust(0.1));
+            for (int i = 0; i < 20; i++) {
+                controller.adjust(0.1);
+            }
+            assertEquals(1000, cache.getCapacity());
+        }
+    }
+
+    @Test
+    public void testControllerEvictsIdleCache() throws InterruptedException {
+        LRUDoublyLinkedListCache<Integer, String> cache = new LRUDoublyLinkedListCache<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+        }
+        try (MemoryPressureController controller = new MemoryPressureController(cache, 0.7, 0.9, 100, 60_000)) {
+            assertEquals(500, controller.adjust(0.95));
+
+            // No further operation on the cache; the controller drains the excess by itself
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (currentSize(cache) > 500 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(500, currentSize(cache));
+            synchronized (cache) {
+                assertEquals("v999", cache.get(999));
+                assertNull(cache.get(0));
+            }
+        }
+    }
+
+    private static int currentSize(ResizableCache<?, ?> cache) {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Test
+    public void testControllerRestoresThresholds() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && pool.getUsage().getMax() > 0) {
+                pools.add(pool);
+                pool.setCollectionUsageThreshold(12_345);
+            }
+        }
+        ShardedCache<Integer, String> cache = new ShardedCache<>(1000, 4, LRUDoublyLinkedListCache::new);
+        try {
+            MemoryPressureController controller = new MemoryPressureController(cache, 0.7, 0.9, 100, 60_000);
+            for (MemoryPoolMXBean pool : pools) {
+                assertNotEquals(12_345L, pool.getCollectionUsageThreshold());
+            }
+            controller.close();
+            for (MemoryPoolMXBean pool : pools) {
+                assertEquals(12_345L, pool.getCollectionUsageThreshold());
+            }
+        } finally {
+            for (MemoryPoolMXBean pool : pools) {
+                pool.setCollectionUsageThreshold(0);
+            }
+        }
+    }
+}
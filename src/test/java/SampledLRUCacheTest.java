@@ -0,0 +1,162 @@
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.SampledLRUCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SampledLRUCacheTest {
+
+    @Test
+    public void testBasicOperations() {
+        SampledLRUCache<Integer, String> cache = new SampledLRUCache<>(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(3));
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+        cache.evict(1);
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCapacityIsRespected() {
+        SampledLRUCache<Integer, Integer> cache = new SampledLRUCache<>(100);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(9_900, cache.getEvictionCount());
+        int present = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Integer value = cache.get(i);
+            if (value != null) {
+                assertEquals(i, value);
+                present++;
+            }
+        }
+        assertEquals(100, present);
+    }
+
+    @Test
+    public void testRecentlyUsedEntriesSurvive() {
+        SampledLRUCache<Integer, Integer> cache = new SampledLRUCache<>(1000, 10);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        for (int hot = 0; hot < 100; hot++) {
+            cache.get(hot);
+        }
+        // Keep the first hundred keys hot while a stream of new keys flows through
+        for (int i = 1000; i < 5000; i++) {
+            for (int hot = 0; hot < 100; hot += 10) {
+                cache.get(hot + i % 10);
+            }
+            cache.put(i, i);
+        }
+        for (int hot = 0; hot < 100; hot++) {
+            assertEquals(hot, cache.get(hot));
+        }
+    }
+
+    @Test
+    public void testEvictionAndReinsertionKeepProbeRunsIntact() {
+        SampledLRUCache<Integer, Integer> cache = new SampledLRUCache<>(500);
+        SplittableRandom random = new SplittableRandom(7);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(800);
+            if (random.nextInt(4) == 0) {
+                cache.evict(key);
+                expected.remove(key);
+            } else {
+                cache.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        // Every cached value is the latest one written, whatever sampling evicted
+        int present = 0;
+        for (int key = 0; key < 800; key++) {
+            Integer value = cache.get(key);
+            if (value != null) {
+                assertEquals(expected.get(key), value);
+                present++;
+            }
+        }
+        assertEquals(cache.size(), present);
+    }
+
+    @Test
+    public void testShrinkingEvictsExcessGradually() {
+        SampledLRUCache<Integer, Integer> cache = new SampledLRUCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        cache.setCapacity(10);
+        cache.get(0);
+        assertEquals(96, cache.size());
+        assertEquals(86, cache.evictExcess(Integer.MAX_VALUE));
+        assertEquals(10, cache.size());
+
+        cache.setCapacity(1000);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(1000 + i, i);
+        }
+        assertEquals(1000, cache.size());
+    }
+
+    @Test
+    public void testZeroCapacity() {
+        SampledLRUCache<Integer, String> cache = new SampledLRUCache<>(0);
+        cache.put(1, "one");
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new SampledLRUCache<>(10, 0));
+    }
+
+    @Test
+    public void testHitRateCloseToExactLRU() {
+        CacheStressHarness.ScrambledZipfianGenerator keys = new CacheStressHarness.ScrambledZipfianGenerator(100_000);
+        SampledLRUCache<Long, Long> sampled = new SampledLRUCache<>(5_000);
+        LRUDoublyLinkedListCache<Long, Long> exact = new LRUDoublyLinkedListCache<>(5_000);
+        SplittableRandom random = new SplittableRandom(42);
+        int sampledHits = 0;
+        int exactHits = 0;
+        int operations = 500_000;
+        for (int i = 0; i < operations; i++) {
+            long key = keys.next(random);
+            if (sampled.get(key) != null) {
+                sampledHits++;
+            } else {
+                sampled.put(key, key);
+            }
+            if (exact.get(key) != null) {
+                exactHits++;
+            } else {
+                exact.put(key, key);
+            }
+        }
+        double sampledRate = (double) sampledHits / operations;
+        double exactRate = (double) exactHits / operations;
+        assertTrue(Math.abs(sampledRate - exactRate) < 0.03, "sampled " + sampledRate + " vs exact " + exactRate);
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        SampledLRUCache<String, Integer> cache = new SampledLRUCache<>(10);
+        assertNull(cache.putIfAbsent("a", 1));
+        assertEquals(1, cache.putIfAbsent("a", 2));
+        assertEquals(3, cache.merge("a", 2, Integer::sum));
+        assertEquals(3, cache.replace("a", 4));
+        assertNull(cache.compute("a", (key, value) -> null));
+        assertNull(cache.get("a"));
+        assertEquals(5, cache.computeIfAbsent("b", key -> 5));
+    }
+}
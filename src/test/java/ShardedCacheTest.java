@@ -0,0 +1,99 @@
+import org.cache.CacheService;
+import org.cache.LFUDoublyLinkedListCache;
+import org.cache.LRUDoublyLinkedListCache;
+import org.cache.ShardedCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedCacheTest {
+
+    @Test
+    public void testPutGetEvict() {
+        CacheService<Integer, String> cache = new ShardedCache<>(100, 4, LRUDoublyLinkedListCache::new);
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        assertEquals("one", cache.get(1));
+        assertEquals("two", cache.get(2));
+
+        cache.evict(1);
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+    }
+
+    @Test
+    public void testShardCountIsPowerOfTwoNotAboveCapacity() {
+        assertEquals(8, new ShardedCache<Integer, String>(100, 6, LRUDoublyLinkedListCache::new).getShardCount());
+        assertEquals(4, new ShardedCache<Integer, String>(5, 16, LRUDoublyLinkedListCache::new).getShardCount());
+        assertEquals(1, new ShardedCache<Integer, String>(0, 16, LRUDoublyLinkedListCache::new).getShardCount());
+    }
+
+    @Test
+    public void testTotalCapacityRespected() {
+        CacheService<Integer, Integer> cache = new ShardedCache<>(100, 8, LFUDoublyLinkedListCache::new);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+
+        int present = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (cache.get(i) != null) {
+                present++;
+            }
+        }
+        assertTrue(present <= 100, "cache holds " + present + " entries");
+        assertTrue(present >= 90, "cache holds only " + present + " entries");
+    }
+
+    @Test
+    public void testSkewedKeysAreSpread() {
+        CacheService<Integer, Integer> cache = new ShardedCache<>(64, 8, LRUDoublyLinkedListCache::new);
+        // Hash codes differing only in high bits would all land in one shard without mixing
+        for (int i = 0; i < 64; i++) {
+            cache.put(i << 16, i);
+        }
+
+        int present = 0;
+        for (int i = 0; i < 64; i++) {
+            if (cache.get(i << 16) != null) {
+                present++;
+            }
+        }
+        assertTrue(present > 32, "only " + present + " of 64 keys kept");
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        CacheService<Integer, Integer> cache = new ShardedCache<>(1_000, 8, LRUDoublyLinkedListCache::new);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 100_000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int key = offset + i % 500;
+                    cache.put(key, key);
+                    Integer value = cache.get(key);
+                    if (value != null && value != key) {
+                        failure.set(new AssertionError("key " + key + " mapped to " + value));
+                    }
+                    if (i % 7 == 0) {
+                        cache.evict(key);
+                    }
+                }
+            });
+            thread.setUncaughtExceptionHandler((th, e) -> failure.set(e));
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+}
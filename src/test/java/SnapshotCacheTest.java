@@ -0,0 +1,136 @@
+import org.cache.SnapshotCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotCacheTest {
+
+    @Test
+    public void testWritesBecomeVisibleWhenPublished() {
+        SnapshotCache<Integer, String> cache = new SnapshotCache<>(100, 60_000);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertNull(cache.get(1));
+        cache.flush();
+        assertEquals("one", cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getSnapshotCount());
+
+        cache.evict(1);
+        cache.put(2, "deux");
+        assertEquals("one", cache.get(1));
+        cache.flush();
+        assertNull(cache.get(1));
+        assertEquals("deux", cache.get(2));
+        assertEquals(1, cache.size());
+
+        // Nothing pending: no new snapshot
+        cache.flush();
+        assertEquals(2, cache.getSnapshotCount());
+        cache.close();
+    }
+
+    @Test
+    public void testBatchIsPublishedAfterDelay() throws InterruptedException {
+        SnapshotCache<Integer, Integer> cache = new SnapshotCache<>(10_000, 20);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cache.size() < 1_000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1_000, cache.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i, cache.get(i));
+        }
+        assertNull(cache.get(1_000));
+        assertTrue(cache.getSnapshotCount() <= 2, "snapshots " + cache.getSnapshotCount());
+        cache.close();
+    }
+
+    @Test
+    public void testMaxSizeRejectsNewKeys() {
+        SnapshotCache<Integer, Integer> cache = new SnapshotCache<>(3, 60_000);
+        Map<Integer, Integer> entries = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            entries.put(i, i);
+        }
+        cache.putAll(entries);
+        cache.flush();
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getRejectedCount());
+
+        // Existing keys can still be updated
+        int kept = cache.get(0) != null ? 0 : cache.get(1) != null ? 1 : 2;
+        cache.put(kept, 42);
+        cache.flush();
+        assertEquals(42, cache.get(kept));
+        assertEquals(2, cache.getRejectedCount());
+        cache.close();
+    }
+
+    @Test
+    public void testReadersSeeConsistentSnapshots() throws InterruptedException {
+        SnapshotCache<Integer, Integer> cache = new SnapshotCache<>(100_000, 1);
+        Map<Integer, Integer> stable = new HashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            stable.put(i, -i);
+        }
+        cache.putAll(stable);
+        cache.flush();
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int key = 0;
+                while (!done.get()) {
+                    Integer value = cache.get(key);
+                    if (value == null || value != -key) {
+                        failure.compareAndSet(null, "key " + key + " read " + value);
+                    }
+                    key = (key + 1) % 1_000;
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 1_000; i < 20_000; i++) {
+            cache.put(i, i);
+            if (i % 5_000 == 0) {
+                cache.evict(i - 1);
+            }
+        }
+        cache.flush();
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get(), failure.get());
+        assertEquals(19_997, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void testCloseFlushesAndLaterWritesPublishAtOnce() {
+        SnapshotCache<String, String> cache = new SnapshotCache<>(10, 60_000);
+        cache.put("a", "1");
+        cache.close();
+        assertEquals("1", cache.get("a"));
+        cache.put("b", "2");
+        assertEquals("2", cache.get("b"));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotCache<>(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotCache<>(10, -1));
+    }
+}